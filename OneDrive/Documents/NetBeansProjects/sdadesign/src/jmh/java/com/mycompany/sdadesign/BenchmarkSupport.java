@@ -0,0 +1,50 @@
+package com.mycompany.sdadesign;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+// ========== BENCHMARK SUPPORT ==========
+// Shared fixtures for the JMH benchmarks. Console output is muted so the numbers measure the
+// store, not the terminal.
+final class BenchmarkSupport {
+    private static final PrintStream STDOUT = System.out;
+    private static final PrintStream NULL_OUT = new PrintStream(OutputStream.nullOutputStream());
+
+    static final PaymentStrategy SILENT_PAYMENT = (username, amount) -> {};
+
+    private BenchmarkSupport() {}
+
+    static void muteStdout() {
+        System.setOut(NULL_OUT);
+    }
+
+    static void restoreStdout() {
+        System.setOut(STDOUT);
+    }
+
+    static String title(int i) {
+        return "Title " + i;
+    }
+
+    static String user(int i) {
+        return "user" + i;
+    }
+
+    // Fresh store holding catalogSize books with plenty of stock and userCount registered users.
+    static BookStoreManager freshStore(int catalogSize, int userCount) {
+        BookStoreManager manager = BookStoreManager.getInstance();
+        manager.reset();
+        PaymentCartNotificationManager.getInstance().reset();
+        BookFactory factory = EBookFactory.getInstance();
+        String[] genres = {"fiction", "nonfiction", "science"};
+        for (int i = 0; i < catalogSize; i++) {
+            Book book = factory.createBook(genres[i % genres.length], title(i), "Author " + (i % 1000), 5 + (i % 50));
+            book.setQuantity(Integer.MAX_VALUE / 2);
+            manager.addBook(book);
+        }
+        for (int i = 0; i < userCount; i++) {
+            manager.addUser(new User(user(i)));
+        }
+        return manager;
+    }
+}
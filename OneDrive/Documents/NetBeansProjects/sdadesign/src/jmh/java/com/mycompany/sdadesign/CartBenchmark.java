@@ -0,0 +1,86 @@
+package com.mycompany.sdadesign;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.*;
+
+// ========== CART / PAY BENCHMARK ==========
+// Each benchmark thread shops as its own user, so the multi-threaded runs show whether
+// different users' carts contend with each other.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CartBenchmark {
+    @Param({"10000"})
+    int catalogSize;
+
+    @Param({"1", "1000"})
+    int userCount;
+
+    BookStoreManager manager;
+    PaymentCartNotificationManager pcm;
+    final AtomicInteger nextUser = new AtomicInteger();
+
+    @State(Scope.Thread)
+    public static class Shopper {
+        String username;
+
+        @Setup(Level.Trial)
+        public void setUp(CartBenchmark store) {
+            username = BenchmarkSupport.user(store.nextUser.getAndIncrement() % store.userCount);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkSupport.muteStdout();
+        manager = BenchmarkSupport.freshStore(catalogSize, userCount);
+        pcm = PaymentCartNotificationManager.getInstance();
+    }
+
+    @Setup(Level.Iteration)
+    public void clearOrders() {
+        manager.clearOrders();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkSupport.restoreStdout();
+    }
+
+    private String randomTitle() {
+        return BenchmarkSupport.title(ThreadLocalRandom.current().nextInt(catalogSize));
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void addToCartThenCheckout(Shopper shopper) {
+        pcm.addToCart(shopper.username, randomTitle(), 1, manager);
+        pcm.checkout(shopper.username, manager);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void addToCartThenCheckoutContended(Shopper shopper) {
+        addToCartThenCheckout(shopper);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void addToCartThenPay(Shopper shopper) {
+        for (int i = 0; i < 3; i++) {
+            pcm.addToCart(shopper.username, randomTitle(), 1, manager);
+        }
+        pcm.pay(shopper.username, BenchmarkSupport.SILENT_PAYMENT);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void addToCartThenPayContended(Shopper shopper) {
+        addToCartThenPay(shopper);
+    }
+}
@@ -0,0 +1,67 @@
+package com.mycompany.sdadesign;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// ========== CATALOG BENCHMARK ==========
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CatalogBenchmark {
+    @Param({"1000", "100000"})
+    int catalogSize;
+
+    BookStoreManager manager;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkSupport.muteStdout();
+        manager = BenchmarkSupport.freshStore(catalogSize, 0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkSupport.restoreStdout();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Book lookupHit() {
+        return manager.getBookByTitle(BenchmarkSupport.title(ThreadLocalRandom.current().nextInt(catalogSize)));
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Book lookupMiss() {
+        return manager.getBookByTitle("missing " + ThreadLocalRandom.current().nextInt(catalogSize));
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Book lookupHitContended() {
+        return manager.getBookByTitle(BenchmarkSupport.title(ThreadLocalRandom.current().nextInt(catalogSize)));
+    }
+
+    @Benchmark
+    @Threads(1)
+    public List<SearchHit> searchFullText() {
+        return manager.searchBooks("title " + ThreadLocalRandom.current().nextInt(catalogSize), 10);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public List<SearchHit> searchTypo() {
+        return manager.searchBooks("titel " + ThreadLocalRandom.current().nextInt(catalogSize), 10);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public List<String> autocomplete() {
+        return manager.suggestTitles("Title " + ThreadLocalRandom.current().nextInt(100), 10);
+    }
+}
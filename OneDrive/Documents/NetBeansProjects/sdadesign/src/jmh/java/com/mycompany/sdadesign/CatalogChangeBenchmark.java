@@ -0,0 +1,47 @@
+package com.mycompany.sdadesign;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// ========== CATALOG CHANGE BENCHMARK ==========
+// Throughput of publishing stock changes to the change stream, with no subscribers and with
+// three consumers that each see every event, from one and from four producing threads.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CatalogChangeBenchmark {
+    @Param({"0", "3"})
+    int consumers;
+
+    CatalogChangeStream stream;
+    Book book;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        stream = new CatalogChangeStream(1 << 16);
+        for (int i = 0; i < consumers; i++) {
+            stream.subscribe("bench-" + i, (event, sequence, endOfBatch) -> { });
+        }
+        book = BookFormat.EBOOK.factory().createBook(BookGenre.FICTION, "Benchmark", "Author", 10.0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        for (CatalogChangeStream.Subscription s : stream.getSubscriptions()) stream.unsubscribe(s);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void publish() {
+        stream.stockChanged(book, 1, 0);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void publishContended() {
+        stream.stockChanged(book, 1, 0);
+    }
+}
@@ -0,0 +1,89 @@
+package com.mycompany.sdadesign;
+
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// ========== CATALOG FOOTPRINT BENCHMARK ==========
+// Retained heap, native memory and full-GC pause per catalog for the heap layout (Book objects
+// in a queue, the title and sorted indexes and the search index) and for the OffHeapCatalog.
+// The time score is just the build time; read the counters.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 1)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g", "-XX:+UseSerialGC"})
+public class CatalogFootprintBenchmark {
+    @Param({"1000000"})
+    int bookCount;
+
+    @Param({"heap", "offheap"})
+    String layout;
+
+    Object retained;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+        public long bytesPerBook;
+        public long nativeBytesPerBook;
+        public long fullGcMillis;
+    }
+
+    @Setup(Level.Invocation)
+    public void release() {
+        retained = null;
+        BookMetadataRegistry.getInstance().setPooling(layout.equals("heap"));
+    }
+
+    @Benchmark
+    public Object build(Footprint footprint) {
+        long before = usedHeap();
+        if (layout.equals("heap")) {
+            retained = buildHeap();
+        } else {
+            OffHeapCatalog catalog = buildOffHeap();
+            footprint.nativeBytesPerBook = catalog.nativeBytes() / bookCount;
+            retained = catalog;
+        }
+        footprint.bytesPerBook = (usedHeap() - before) / bookCount;
+        long start = System.nanoTime();
+        System.gc();
+        footprint.fullGcMillis = (System.nanoTime() - start) / 1_000_000;
+        return retained;
+    }
+
+    private Object buildHeap() {
+        Queue<Book> books = new ConcurrentLinkedQueue<>();
+        CatalogIndex index = new CatalogIndex();
+        CatalogSearch search = new CatalogSearch();
+        for (int i = 0; i < bookCount; i++) {
+            Book book = book(i);
+            books.add(book);
+            index.add(book);
+            search.add(book);
+        }
+        return List.of(books, index, search);
+    }
+
+    private OffHeapCatalog buildOffHeap() {
+        OffHeapCatalog catalog = new OffHeapCatalog(new CatalogChangeStream(1 << 10));
+        for (int i = 0; i < bookCount; i++) catalog.add(book(i));
+        return catalog;
+    }
+
+    private static Book book(int i) {
+        BookGenre genre = BookGenre.values()[i % BookGenre.values().length];
+        Book book = EBookFactory.getInstance().createBook(genre, BenchmarkSupport.title(i), "Author " + (i % 5000), 5 + (i % 50));
+        book.setQuantity(i % 7);
+        return book;
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
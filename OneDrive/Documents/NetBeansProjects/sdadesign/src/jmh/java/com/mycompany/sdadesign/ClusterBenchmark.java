@@ -0,0 +1,62 @@
+package com.mycompany.sdadesign;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// ========== CLUSTER BENCHMARK ==========
+// Throughput of the routed catalog and order APIs against a LocalCluster of 1, 2 and 4 nodes.
+// Every call is a loopback round trip, so compare node counts with each other rather than with
+// the in-heap CatalogBenchmark. Scaling needs spare cores for the nodes' threads.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class ClusterBenchmark {
+    @Param({"1", "2", "4"})
+    int nodes;
+
+    @Param({"10000"})
+    int catalogSize;
+
+    LocalCluster cluster;
+    ShardedStore store;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        cluster = LocalCluster.start(nodes);
+        store = cluster.client();
+        List<Book> books = new ArrayList<>(catalogSize);
+        for (int i = 0; i < catalogSize; i++) {
+            Book book = EBookFactory.getInstance().createBook(BookGenre.FICTION, BenchmarkSupport.title(i), "Author", 10.0);
+            book.setQuantity(Integer.MAX_VALUE / 2);
+            books.add(book);
+        }
+        store.addBooks(books);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        cluster.close();
+    }
+
+    @Benchmark
+    public Book lookup() {
+        return store.getBookByTitle(BenchmarkSupport.title(ThreadLocalRandom.current().nextInt(catalogSize)));
+    }
+
+    @Benchmark
+    public void reserveAndOrder() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String title = BenchmarkSupport.title(random.nextInt(catalogSize));
+        if (store.reserve(title, 1)) {
+            store.placeOrder(OrderFactory.createOrder("ebook", "fiction", UUID.randomUUID().toString(),
+                BenchmarkSupport.user(random.nextInt(1000)), new Date(), 10.0, 1, "PLACED", title));
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.mycompany.sdadesign;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.*;
+
+// ========== INVENTORY CONTENTION BENCHMARK ==========
+// Every thread hammers the same hot title, the worst case for the stock CAS loop.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InventoryContentionBenchmark {
+    Book hotBook;
+    InventoryManager inventory;
+    final AtomicInteger nextUser = new AtomicInteger();
+
+    @State(Scope.Thread)
+    public static class Shopper {
+        String username;
+
+        @Setup(Level.Trial)
+        public void setUp(InventoryContentionBenchmark bench) {
+            username = BenchmarkSupport.user(bench.nextUser.getAndIncrement());
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        hotBook = EBookFactory.getInstance().createBook("fiction", "Hot Title", "Author", 10.0);
+        hotBook.setQuantity(Integer.MAX_VALUE / 2);
+        inventory = new InventoryManager(Duration.ofMinutes(15));
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean reserveRelease() {
+        boolean reserved = hotBook.tryReserve(1);
+        hotBook.release(1);
+        return reserved;
+    }
+
+    @Benchmark
+    @Threads(16)
+    public boolean reserveReleaseContended() {
+        return reserveRelease();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public boolean reserveThenCommitContended(Shopper shopper) {
+        inventory.reserve(shopper.username, hotBook, 1);
+        boolean committed = inventory.commit(shopper.username, hotBook, 1);
+        hotBook.release(1);
+        return committed;
+    }
+}
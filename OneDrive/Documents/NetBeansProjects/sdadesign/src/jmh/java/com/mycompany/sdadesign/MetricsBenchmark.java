@@ -0,0 +1,35 @@
+package com.mycompany.sdadesign;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// ========== METRICS BENCHMARK ==========
+// Cost of one instrumented call's bookkeeping (two nanoTime reads plus a histogram record),
+// alone and with eight threads recording the same operation.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricsBenchmark {
+    StoreMetrics metrics = StoreMetrics.getInstance();
+
+    @Benchmark
+    @Threads(1)
+    public long clockOnly() {
+        return System.nanoTime() - System.nanoTime();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void record() {
+        metrics.record(StoreOperation.BOOK_LOOKUP, System.nanoTime());
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void recordContended() {
+        metrics.record(StoreOperation.BOOK_LOOKUP, System.nanoTime());
+    }
+}
@@ -0,0 +1,65 @@
+package com.mycompany.sdadesign;
+
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// ========== ORDER PLACEMENT BENCHMARK ==========
+// placeOrder should cost the same whether ten or ten thousand observers are registered.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderBenchmark {
+    @Param({"1000"})
+    int userCount;
+
+    @Param({"0", "100", "10000"})
+    int observerCount;
+
+    BookStoreManager manager;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkSupport.muteStdout();
+        manager = BenchmarkSupport.freshStore(1000, userCount);
+        Observer silent = message -> {};
+        for (int i = 0; i < observerCount; i++) {
+            manager.registerObserver(silent);
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void clearOrders() {
+        manager.clearOrders();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkSupport.restoreStdout();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void placeOrder() {
+        int i = ThreadLocalRandom.current().nextInt(userCount);
+        manager.placeOrder(OrderFactory.createOrder("physical", "fiction", UUID.randomUUID().toString(),
+            BenchmarkSupport.user(i), new Date(), 10.0, 1, "PLACED", BenchmarkSupport.title(i)));
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void placeOrderContended() {
+        placeOrder();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void notifyObservers() {
+        manager.notifyObservers("Store announcement");
+    }
+}
@@ -0,0 +1,78 @@
+package com.mycompany.sdadesign;
+
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// ========== ORDER FOOTPRINT BENCHMARK ==========
+// Retained heap per order for the old layout (an Order object per row, a queue and three sorted
+// views over it) and for the columnar OrderStore with its three sort indexes. The time score is
+// just the build time; read the bytesPerOrder counter.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 1)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g", "-XX:+UseSerialGC"})
+public class OrderFootprintBenchmark {
+    @Param({"1000000"})
+    int orderCount;
+
+    @Param({"objects", "columnar"})
+    String layout;
+
+    Object retained;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+        public long bytesPerOrder;
+    }
+
+    @Setup(Level.Invocation)
+    public void release() {
+        retained = null;
+    }
+
+    @Benchmark
+    public Object build(Footprint footprint) {
+        long before = usedHeap();
+        retained = layout.equals("objects") ? buildObjects() : buildColumnar();
+        footprint.bytesPerOrder = (usedHeap() - before) / orderCount;
+        return retained;
+    }
+
+    private Object buildObjects() {
+        Queue<Order> orders = new ConcurrentLinkedQueue<>();
+        List<SortedView<Order>> views = List.of(
+            new SortedView<>(o -> o.getDate().getTime(), Long::valueOf),
+            new SortedView<>(Order::getPrice, Double::valueOf),
+            new SortedView<>(o -> o.getTitle().toLowerCase(Locale.ROOT), s -> s));
+        for (int i = 0; i < orderCount; i++) {
+            Order order = order(i);
+            orders.add(order);
+            for (SortedView<Order> view : views) view.add(order, i);
+        }
+        return List.of(orders, views);
+    }
+
+    private Object buildColumnar() {
+        OrderStore store = new OrderStore();
+        for (int i = 0; i < orderCount; i++) store.append(order(i));
+        for (OrderSort sort : OrderSort.values()) store.page(sort, null, 1, o -> true);
+        return store;
+    }
+
+    private static Order order(int i) {
+        return OrderFactory.createOrder("physical", "fiction", UUID.randomUUID().toString(),
+            BenchmarkSupport.user(i % 1000), new Date(1_700_000_000_000L + i * 1000L),
+            5 + (i % 50), 1 + (i % 3), i % 2 == 0 ? "PLACED" : "Pending", BenchmarkSupport.title(i % 10_000));
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
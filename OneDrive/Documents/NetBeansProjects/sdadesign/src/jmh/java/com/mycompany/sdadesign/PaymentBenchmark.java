@@ -0,0 +1,43 @@
+package com.mycompany.sdadesign;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// ========== PAYMENT BENCHMARK ==========
+// Many shoppers paying at once against a gateway with a fixed round-trip latency and a small
+// connection pool: one gateway call per shopper versus the batching payment pipeline.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+@Threads(64)
+public class PaymentBenchmark {
+    @Param({"1000"})
+    int latencyMicros;
+
+    @Param({"4"})
+    int connections;
+
+    StubPaymentGateway gateway;
+    PaymentPipeline pipeline;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        gateway = new StubPaymentGateway(Duration.ofNanos(latencyMicros * 1_000L), connections);
+        pipeline = new PaymentPipeline(256, connections);
+    }
+
+    @Benchmark
+    public void direct() {
+        gateway.pay("shopper", 10.0);
+    }
+
+    @Benchmark
+    public void pipelined() {
+        pipeline.charge(gateway, new PaymentRequest(UUID.randomUUID().toString(), "shopper", 10.0)).join();
+    }
+}
@@ -0,0 +1,117 @@
+package com.mycompany.sdadesign;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// ========== BOOK GENRE ==========
+enum BookGenre {
+    FICTION("fiction", "Fiction", FictionBook.class),
+    NONFICTION("nonfiction", "Non-Fiction", NonFictionBook.class),
+    SCIENCE("science", "Science", ScienceBook.class);
+
+    private static final BookGenre[] VALUES = values();
+
+    private final String key;
+    private final String label;
+    private final Class<? extends Book> bookType;
+
+    BookGenre(String key, String label, Class<? extends Book> bookType) {
+        this.key = key;
+        this.label = label;
+        this.bookType = bookType;
+    }
+
+    public String key() { return key; }
+    public String label() { return label; }
+    public Class<? extends Book> bookType() { return bookType; }
+
+    // Case-insensitive and allocation-free; null for an unknown genre.
+    public static BookGenre parse(String key) {
+        if (key == null) return null;
+        String k = key.strip();
+        for (BookGenre g : VALUES) {
+            if (g.key.equalsIgnoreCase(k)) return g;
+        }
+        return null;
+    }
+}
+
+// ========== BOOK FORMAT ==========
+enum BookFormat {
+    EBOOK("ebook"),
+    PHYSICAL("physical");
+
+    private static final BookFormat[] VALUES = values();
+
+    private final String key;
+
+    BookFormat(String key) {
+        this.key = key;
+    }
+
+    public String key() { return key; }
+
+    public BookFactory factory() {
+        return switch (this) {
+            case EBOOK -> EBookFactory.getInstance();
+            case PHYSICAL -> PhysicalBookFactory.getInstance();
+        };
+    }
+
+    // Case-insensitive and allocation-free; null for an unknown format.
+    public static BookFormat parse(String key) {
+        if (key == null) return null;
+        String k = key.strip();
+        for (BookFormat f : VALUES) {
+            if (f.key.equalsIgnoreCase(k)) return f;
+        }
+        return null;
+    }
+}
+
+// ========== BOOK METADATA ==========
+// The immutable, shareable part of a book. Instances come from BookMetadataRegistry, so equal
+// metadata is one object however many Book instances, orders or indexes refer to it.
+record BookMetadata(String title, String author, BookGenre genre, BookFormat format) {}
+
+// ========== BOOK METADATA REGISTRY ==========
+// Flyweight pool for BookMetadata. Authors are interned separately, since one author usually
+// has many titles; a catalog of a million books keeps one String per distinct author.
+class BookMetadataRegistry {
+    private final Map<BookMetadata, BookMetadata> metadata = new ConcurrentHashMap<>();
+    private final Map<String, String> authors = new ConcurrentHashMap<>();
+    // Off when books are copied into an OffHeapCatalog, which keeps the strings itself.
+    private volatile boolean pooling = true;
+
+    private BookMetadataRegistry() {}
+
+    private static class Holder {
+        static final BookMetadataRegistry INSTANCE = new BookMetadataRegistry();
+    }
+
+    public static BookMetadataRegistry getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    public BookMetadata of(String title, String author, BookGenre genre, BookFormat format) {
+        BookMetadata key = new BookMetadata(title, author, genre, format);
+        if (!pooling) return key;
+        BookMetadata shared = metadata.get(key);
+        if (shared != null) return shared;
+        BookMetadata fresh = new BookMetadata(title, authors.computeIfAbsent(author, a -> a), genre, format);
+        shared = metadata.putIfAbsent(fresh, fresh);
+        return shared != null ? shared : fresh;
+    }
+
+    public void setPooling(boolean pooling) {
+        this.pooling = pooling;
+    }
+
+    public int size() {
+        return metadata.size();
+    }
+
+    public int authorCount() {
+        return authors.size();
+    }
+}
@@ -0,0 +1,186 @@
+package com.mycompany.sdadesign;
+
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// ========== MONEY ==========
+// Cart arithmetic is done in whole cents; doubles only at the edges (Book prices, receipts).
+final class Money {
+    private Money() {}
+
+    static long cents(double amount) {
+        return Math.round(amount * 100);
+    }
+
+    static double amount(long cents) {
+        return cents / 100.0;
+    }
+
+    static String format(long cents) {
+        String sign = cents < 0 ? "-" : "";
+        long abs = Math.abs(cents);
+        return sign + "$" + abs / 100 + "." + (abs % 100 < 10 ? "0" : "") + abs % 100;
+    }
+}
+
+// ========== CART LINE ==========
+// One title in a cart, resolved to its Book. The unit price is fixed when the title is first added.
+record CartLine(Book book, int quantity, long unitCents) {
+    CartLine(Book book, int quantity) {
+        this(book, quantity, Money.cents(book.getPrice()));
+    }
+
+    long cents() {
+        return unitCents * quantity;
+    }
+
+    CartLine withQuantity(int newQuantity) {
+        return new CartLine(book, newQuantity, unitCents);
+    }
+}
+
+// ========== CART TOTALS ==========
+// The running sums pricing rules look at: overall, per genre and per format. CartSession adjusts
+// them on every add and remove, so pricing never walks the lines.
+final class CartTotals {
+    private static final int GENRES = BookGenre.values().length;
+    private static final int FORMATS = BookFormat.values().length;
+
+    private long subtotalCents;
+    private int items;
+    private final long[] genreCents = new long[GENRES];
+    private final int[] genreItems = new int[GENRES];
+    private final long[] formatCents = new long[FORMATS];
+
+    static CartTotals of(Collection<CartLine> lines) {
+        CartTotals totals = new CartTotals();
+        for (CartLine line : lines) totals.add(line.book(), line.unitCents(), line.quantity());
+        return totals;
+    }
+
+    // Negative quantities take copies back out.
+    void add(Book book, long unitCents, int quantity) {
+        long cents = unitCents * quantity;
+        int genre = book.getMetadata().genre().ordinal();
+        subtotalCents += cents;
+        items += quantity;
+        genreCents[genre] += cents;
+        genreItems[genre] += quantity;
+        formatCents[book.getFormat().ordinal()] += cents;
+    }
+
+    CartTotals copy() {
+        CartTotals c = new CartTotals();
+        c.subtotalCents = subtotalCents;
+        c.items = items;
+        System.arraycopy(genreCents, 0, c.genreCents, 0, GENRES);
+        System.arraycopy(genreItems, 0, c.genreItems, 0, GENRES);
+        System.arraycopy(formatCents, 0, c.formatCents, 0, FORMATS);
+        return c;
+    }
+
+    public long subtotalCents() { return subtotalCents; }
+    public int items() { return items; }
+    public long centsIn(BookGenre genre) { return genreCents[genre.ordinal()]; }
+    public int itemsIn(BookGenre genre) { return genreItems[genre.ordinal()]; }
+    public long centsIn(BookFormat format) { return formatCents[format.ordinal()]; }
+}
+
+// ========== PRICING RULES ==========
+// A promotion. Rules see only the cart's totals, never its lines, and each is evaluated against
+// the undiscounted totals, so what a rule offers does not depend on the other rules. How much
+// of it is applied can: see PricingEngine.quote.
+interface PricingRule {
+    String describe();
+
+    // Zero when the rule does not apply.
+    long discountCents(CartTotals totals);
+}
+
+// A percentage off every copy of one genre, e.g. 10% off Science.
+record GenrePercentOff(BookGenre genre, int percent) implements PricingRule {
+    public String describe() { return percent + "% off " + genre.label(); }
+    public long discountCents(CartTotals totals) { return totals.centsIn(genre) * percent / 100; }
+}
+
+// A percentage off the whole cart once it holds at least minItems copies.
+record BulkPercentOff(int minItems, int percent) implements PricingRule {
+    public String describe() { return percent + "% off " + minItems + "+ books"; }
+    public long discountCents(CartTotals totals) {
+        return totals.items() >= minItems ? totals.subtotalCents() * percent / 100 : 0;
+    }
+}
+
+// A fixed amount off once the cart reaches a spend threshold.
+record SpendThresholdOff(long minCents, long offCents) implements PricingRule {
+    public String describe() { return Money.format(offCents) + " off orders over " + Money.format(minCents); }
+    public long discountCents(CartTotals totals) {
+        return totals.subtotalCents() >= minCents ? offCents : 0;
+    }
+}
+
+// ========== PRICE QUOTE ==========
+record AppliedDiscount(String description, long cents) {}
+
+record PriceQuote(long subtotalCents, List<AppliedDiscount> discounts, long totalCents) {
+    long discountCents() {
+        return subtotalCents - totalCents;
+    }
+
+    // Spreads the discount over the lines in proportion to their value, in whole cents, so
+    // per-line order prices add up to exactly the total charged.
+    long[] allocate(List<CartLine> lines) {
+        long[] cents = new long[lines.size()];
+        long discount = discountCents();
+        long given = 0;
+        int largest = 0;
+        for (int i = 0; i < cents.length; i++) {
+            long line = lines.get(i).cents();
+            long share = subtotalCents == 0 ? 0 : line * discount / subtotalCents;
+            cents[i] = line - share;
+            given += share;
+            if (line > lines.get(largest).cents()) largest = i;
+        }
+        if (cents.length > 0) cents[largest] -= discount - given;
+        return cents;
+    }
+}
+
+// ========== PRICING ENGINE ==========
+// The active promotions. A quote is one pass over the rules against a cart's running totals,
+// so its cost does not grow with the number of lines.
+class PricingEngine {
+    private final List<PricingRule> rules = new CopyOnWriteArrayList<>();
+
+    public void addRule(PricingRule rule) {
+        rules.add(rule);
+    }
+
+    public boolean removeRule(PricingRule rule) {
+        return rules.remove(rule);
+    }
+
+    public List<PricingRule> getRules() {
+        return Collections.unmodifiableList(rules);
+    }
+
+    public void clear() {
+        rules.clear();
+    }
+
+    // Rules apply in the order they were added. Discounts never take the total below zero, so
+    // once they reach the subtotal a later rule gets only what is left, or nothing.
+    public PriceQuote quote(CartTotals totals) {
+        long subtotal = totals.subtotalCents();
+        if (rules.isEmpty()) return new PriceQuote(subtotal, List.of(), subtotal);
+        List<AppliedDiscount> applied = new ArrayList<>(2);
+        long remaining = subtotal;
+        for (PricingRule rule : rules) {
+            long off = Math.min(rule.discountCents(totals), remaining);
+            if (off <= 0) continue;
+            applied.add(new AppliedDiscount(rule.describe(), off));
+            remaining -= off;
+        }
+        return new PriceQuote(subtotal, applied, remaining);
+    }
+}
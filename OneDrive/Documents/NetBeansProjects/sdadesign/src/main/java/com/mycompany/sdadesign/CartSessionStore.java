@@ -0,0 +1,324 @@
+package com.mycompany.sdadesign;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+// ========== NOTIFICATION RING ==========
+// Keeps only the most recent messages; older ones are overwritten.
+class NotificationRing {
+    private final String[] slots;
+    private long written;
+
+    public NotificationRing(int capacity) {
+        this.slots = new String[capacity];
+    }
+
+    public synchronized void add(String message) {
+        slots[(int) (written++ % slots.length)] = message;
+    }
+
+    public synchronized boolean isEmpty() {
+        return written == 0;
+    }
+
+    // Oldest first.
+    public synchronized List<String> snapshot() {
+        int n = (int) Math.min(written, slots.length);
+        List<String> result = new ArrayList<>(n);
+        for (long i = written - n; i < written; i++) result.add(slots[(int) (i % slots.length)]);
+        return result;
+    }
+}
+
+// ========== CART SPILL ==========
+// Carts of evicted sessions, one small file per user under a two-level hashed directory so no
+// directory grows past a few thousand entries. A file is deleted once its cart is restored.
+// Lines are stored by title and unit price and resolved against the catalog on restore; titles
+// that have since left the catalog are dropped.
+class CartSpill {
+    private static final int MAGIC = 0x43415254; // "CART"
+    private static final int VERSION = 2;
+
+    private final Path dir;
+
+    public CartSpill(Path dir) {
+        this.dir = dir;
+    }
+
+    public Path getDirectory() {
+        return dir;
+    }
+
+    public void write(CartSession session) throws IOException {
+        Path file = fileFor(session.getUsername());
+        Files.createDirectories(file.getParent());
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(session.getUsername());
+            List<CartLine> lines = session.getLines();
+            out.writeInt(lines.size());
+            for (CartLine line : lines) {
+                out.writeUTF(line.book().getTitle());
+                out.writeInt(line.quantity());
+                out.writeLong(line.unitCents());
+            }
+            List<String> notes = session.getNotifications();
+            out.writeInt(notes.size());
+            for (String note : notes) out.writeUTF(note);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Returns null when nothing was spilled for the user.
+    public CartSession restore(String username, int notificationCapacity, Function<String, Book> catalog)
+            throws IOException {
+        Path file = fileFor(username);
+        CartSession session;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || !in.readUTF().equals(username)) return null;
+            session = new CartSession(username, notificationCapacity);
+            for (int i = in.readInt(); i > 0; i--) {
+                Book book = catalog.apply(in.readUTF());
+                int quantity = in.readInt();
+                long unitCents = in.readLong();
+                if (book != null) session.restore(new CartLine(book, quantity, unitCents));
+            }
+            for (int i = in.readInt(); i > 0; i--) session.notify(in.readUTF());
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        Files.deleteIfExists(file);
+        return session;
+    }
+
+    private Path fileFor(String username) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(username.getBytes(StandardCharsets.UTF_8));
+            String name = HexFormat.of().formatHex(digest);
+            return dir.resolve(name.substring(0, 2)).resolve(name.substring(2, 4)).resolve(name + ".cart");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
+
+// ========== CART SESSION STORE ==========
+// Live cart sessions, bounded two ways: a session idle for longer than the TTL is evicted, and
+// when more than maxLive sessions are open the least recently used go first. An evicted session
+// with cart lines or notifications is spilled to disk and comes back the next time the user
+// opens a session.
+// Each eviction also calls onEvict, so the owner can drop whatever else it holds for the user;
+// catalog resolves the titles of a spilled cart back to books.
+//
+// Each user maps to a future of their session. Disk I/O never runs under the map's lock: a
+// restore first installs an incomplete future and reads the spill outside the map, and an
+// eviction swaps in an incomplete future before writing the spill. Only callers for that same
+// user wait on it; a waiter that sees null (the session was spilled) looks again.
+//
+// Callers may still hold a session object after it was evicted, so changes go through update()
+// or updateAndGet(): eviction retires the session under its monitor before spilling it, and these
+// run the change under that same monitor, moving on to the user's current session if the one
+// they hold is retired.
+class CartSessionStore {
+    private final Map<String, CompletableFuture<CartSession>> live = new ConcurrentHashMap<>();
+    private final long idleNanos;
+    private final int maxLive;
+    private final int notificationCapacity;
+    private final Consumer<String> onEvict;
+    private final Function<String, Book> catalog;
+    private final Thread sweeper;
+    private volatile CartSpill spill;
+
+    private final LongAdder spilled = new LongAdder();
+    private final LongAdder restored = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+
+    public CartSessionStore(Duration idleTtl, int maxLive, int notificationCapacity, Path spillDir,
+                            Consumer<String> onEvict, Function<String, Book> catalog) {
+        this.idleNanos = idleTtl.toNanos();
+        this.maxLive = maxLive;
+        this.notificationCapacity = notificationCapacity;
+        this.spill = new CartSpill(spillDir);
+        this.onEvict = onEvict;
+        this.catalog = catalog;
+        long interval = Math.max(Duration.ofSeconds(1).toNanos(), Math.min(idleNanos / 4, Duration.ofSeconds(30).toNanos()));
+        this.sweeper = new Thread(() -> sweepEvery(interval), "cart-session-sweeper");
+        sweeper.setDaemon(true);
+        sweeper.start();
+    }
+
+    public void setSpillDirectory(Path dir) {
+        this.spill = new CartSpill(dir);
+    }
+
+    // Returns the user's live session, restoring a spilled cart or starting an empty one.
+    public CartSession get(String username) {
+        while (true) {
+            CompletableFuture<CartSession> entry = live.get(username);
+            if (entry == null) {
+                CompletableFuture<CartSession> loading = new CompletableFuture<>();
+                if (live.putIfAbsent(username, loading) != null) continue;
+                try {
+                    loading.complete(restoreOrCreate(username));
+                } catch (RuntimeException e) {
+                    live.remove(username, loading);
+                    loading.completeExceptionally(e);
+                    throw e;
+                }
+                entry = loading;
+                if (live.size() > maxLive) LockSupport.unpark(sweeper);
+            }
+            CartSession session = entry.join();
+            if (session == null) continue;
+            session.touch();
+            return session;
+        }
+    }
+
+    // Runs change on the user's live session under its monitor, so it cannot land in a session
+    // that has already been spilled.
+    public <T> T updateAndGet(String username, Function<CartSession, T> change) {
+        while (true) {
+            CartSession session = get(username);
+            synchronized (session) {
+                if (!session.isRetired()) return change.apply(session);
+            }
+        }
+    }
+
+    public void update(String username, Consumer<CartSession> change) {
+        updateAndGet(username, session -> {
+            change.accept(session);
+            return null;
+        });
+    }
+
+    // The live session, or null; never touches disk or waits.
+    public CartSession peek(String username) {
+        return ready(live.get(username));
+    }
+
+    private static CartSession ready(CompletableFuture<CartSession> entry) {
+        return entry != null && entry.isDone() && !entry.isCompletedExceptionally() ? entry.join() : null;
+    }
+
+    private CartSession restoreOrCreate(String username) {
+        try {
+            CartSession session = spill.restore(username, notificationCapacity, catalog);
+            if (session != null) {
+                restored.increment();
+                if (!session.isEmpty()) session.notify("Welcome back! Your saved cart was restored.");
+                return session;
+            }
+        } catch (IOException e) {
+            System.err.println("[Sessions] Could not restore cart of " + username + ": " + e.getMessage());
+        }
+        return new CartSession(username, notificationCapacity);
+    }
+
+    public int size() {
+        return live.size();
+    }
+
+    public Collection<CartSession> liveSessions() {
+        List<CartSession> sessions = new ArrayList<>(live.size());
+        for (CompletableFuture<CartSession> entry : live.values()) {
+            CartSession s = ready(entry);
+            if (s != null) sessions.add(s);
+        }
+        return sessions;
+    }
+
+    public long openCarts() {
+        return liveSessions().stream().filter(s -> !s.isEmpty()).count();
+    }
+
+    public long getSpilled() { return spilled.sum(); }
+    public long getRestored() { return restored.sum(); }
+    public long getEvicted() { return evicted.sum(); }
+
+    public void clear() {
+        live.clear();
+    }
+
+    // ---------- eviction ----------
+
+    private void sweepEvery(long intervalNanos) {
+        while (true) {
+            LockSupport.parkNanos(intervalNanos);
+            try {
+                evictIdle(System.nanoTime());
+                if (live.size() > maxLive) evictLeastRecent(live.size() - maxLive);
+            } catch (RuntimeException e) {
+                System.err.println("[Sessions] Sweep failed: " + e.getMessage());
+            }
+        }
+    }
+
+    public int evictIdle(long nowNanos) {
+        int count = 0;
+        for (String username : live.keySet()) {
+            if (evictIf(username, s -> nowNanos - s.getLastAccessNanos() > idleNanos)) count++;
+        }
+        return count;
+    }
+
+    private void evictLeastRecent(int excess) {
+        long[] stamps = liveSessions().stream().mapToLong(CartSession::getLastAccessNanos).sorted().toArray();
+        if (excess <= 0 || stamps.length == 0) return;
+        long cutoff = stamps[Math.min(excess, stamps.length) - 1];
+        for (String username : live.keySet()) {
+            evictIf(username, s -> s.getLastAccessNanos() <= cutoff);
+        }
+    }
+
+    // Takes the session out of the map and retires it before spilling it: callers for this user
+    // wait on the placeholder and then restore from the spill, and update() will not change a
+    // retired session, so nothing reaches the cart once it is written. The owner's onEvict runs
+    // before the waiters are let go, so it cannot undo holds they take on the restored cart.
+    // If the spill fails the session goes back in and the waiters get it.
+    private boolean evictIf(String username, Predicate<CartSession> shouldEvict) {
+        CompletableFuture<CartSession> entry = live.get(username);
+        CartSession s = ready(entry);
+        if (s == null) return false;
+        CompletableFuture<CartSession> evicting = new CompletableFuture<>();
+        synchronized (s) {
+            if (!shouldEvict.test(s) || !live.replace(username, entry, evicting)) return false;
+            s.retire();
+        }
+        if (!s.isEmpty() || s.hasNotifications()) {
+            try {
+                spill.write(s);
+                spilled.increment();
+            } catch (IOException e) {
+                System.err.println("[Sessions] Could not spill cart of " + username + ": " + e.getMessage());
+                s.reinstate();
+                live.replace(username, evicting, entry);
+                evicting.complete(s);
+                return false;
+            }
+        }
+        onEvict.accept(username);
+        live.remove(username, evicting);
+        evicting.complete(null);
+        evicted.increment();
+        return true;
+    }
+}
@@ -0,0 +1,300 @@
+package com.mycompany.sdadesign;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// ========== CATALOG CHANGES ==========
+enum CatalogChangeType { ADDED, PRICE_CHANGED, STOCK_CHANGED }
+
+// One slot of the ring, reused once every consumer has moved past it: handlers copy out what
+// they want to keep. Stock changes carry copies in stock; price changes carry the price's bits.
+final class CatalogEvent {
+    private CatalogChangeType type;
+    private Book book;
+    private long before;
+    private long after;
+
+    void set(CatalogChangeType type, Book book, long before, long after) {
+        this.type = type;
+        this.book = book;
+        this.before = before;
+        this.after = after;
+    }
+
+    public CatalogChangeType type() { return type; }
+    public Book book() { return book; }
+    public int stockBefore() { return (int) before; }
+    public int stockAfter() { return (int) after; }
+    public double priceBefore() { return Double.longBitsToDouble(before); }
+    public double priceAfter() { return Double.longBitsToDouble(after); }
+
+    @Override
+    public String toString() {
+        return switch (type) {
+            case ADDED -> "ADDED " + book.getTitle();
+            case PRICE_CHANGED -> "PRICE_CHANGED " + book.getTitle() + " " + priceBefore() + " -> " + priceAfter();
+            case STOCK_CHANGED -> "STOCK_CHANGED " + book.getTitle() + " " + stockBefore() + " -> " + stockAfter();
+        };
+    }
+}
+
+interface CatalogChangeHandler {
+    // endOfBatch is true on the last event currently available, e.g. to flush a cache once.
+    void onEvent(CatalogEvent event, long sequence, boolean endOfBatch);
+}
+
+// ========== SEQUENCE ==========
+// A counter padded onto its own cache line, so a consumer advancing its position never
+// invalidates the line the producers' cursor or another consumer lives on.
+class SequencePadding {
+    long p01, p02, p03, p04, p05, p06, p07;
+}
+
+class SequenceValue extends SequencePadding {
+    protected volatile long value;
+}
+
+class Sequence extends SequenceValue {
+    private static final VarHandle VALUE;
+    static {
+        try {
+            VALUE = MethodHandles.lookup().findVarHandle(SequenceValue.class, "value", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    long p11, p12, p13, p14, p15, p16, p17;
+
+    Sequence(long initial) {
+        value = initial;
+    }
+
+    public long get() {
+        return value;
+    }
+
+    // Release store: everything written before it is visible to whoever reads the new value.
+    public void set(long v) {
+        VALUE.setRelease(this, v);
+    }
+
+    public long getAndAdd(long n) {
+        return (long) VALUE.getAndAdd(this, n);
+    }
+}
+
+// ========== CATALOG CHANGE STREAM ==========
+// Multi-producer, multi-consumer ring of catalog changes in the style of the LMAX Disruptor.
+// Producers claim a sequence with one atomic add on the cursor, fill the preallocated slot and
+// mark it published by storing the sequence's lap number in the slot's flag. Every consumer
+// runs on its own thread with its own sequence and sees every event, in order, in batches of
+// whatever is published; a slot is reused only once the slowest consumer has passed it, so a
+// producer that laps the ring waits for it. With no subscribers, publishing returns immediately.
+// Consumers never block producers otherwise: they spin, then yield, then park until a producer
+// publishes the slot they are waiting on, so an idle stream costs no CPU.
+class CatalogChangeStream {
+    private static final VarHandle FLAG = MethodHandles.arrayElementVarHandle(int[].class);
+    private static final int SPINS = 100;
+    private static final int YIELDS = 100;
+    // Only a backstop: producers unpark a waiting consumer as soon as they publish.
+    private static final long PARK_NANOS = 1_000_000_000;
+
+    private final CatalogEvent[] entries;
+    private final int[] published;
+    private final int mask;
+    private final int shift;
+    private final Sequence cursor = new Sequence(-1);
+    // Lower bound on the slowest consumer's sequence, so producers rarely scan all of them.
+    private final Sequence gatingCache = new Sequence(-1);
+    private volatile Subscription[] subscriptions = new Subscription[0];
+
+    public CatalogChangeStream(int capacity) {
+        if (Integer.bitCount(capacity) != 1) throw new IllegalArgumentException("Capacity must be a power of two");
+        this.entries = new CatalogEvent[capacity];
+        for (int i = 0; i < capacity; i++) entries[i] = new CatalogEvent();
+        this.published = new int[capacity];
+        Arrays.fill(published, -1);
+        this.mask = capacity - 1;
+        this.shift = Integer.numberOfTrailingZeros(capacity);
+    }
+
+    public int capacity() {
+        return entries.length;
+    }
+
+    // ---------- producing ----------
+
+    public void added(Book book) {
+        publish(CatalogChangeType.ADDED, book, 0, 0);
+    }
+
+    public void priceChanged(Book book, double before, double after) {
+        publish(CatalogChangeType.PRICE_CHANGED, book, Double.doubleToRawLongBits(before), Double.doubleToRawLongBits(after));
+    }
+
+    public void stockChanged(Book book, int before, int after) {
+        publish(CatalogChangeType.STOCK_CHANGED, book, before, after);
+    }
+
+    private void publish(CatalogChangeType type, Book book, long before, long after) {
+        Subscription[] gating = subscriptions;
+        if (gating.length == 0) return;
+        long seq = claim(gating);
+        int index = (int) seq & mask;
+        entries[index].set(type, book, before, after);
+        // Volatile, not release: the store must be ordered before the reads of waiting below,
+        // pairing with the consumer's write of waiting before its last look at the slot.
+        FLAG.setVolatile(published, index, (int) (seq >>> shift));
+        for (Subscription s : gating) {
+            if (s.waiting) LockSupport.unpark(s.thread);
+        }
+    }
+
+    private long claim(Subscription[] gating) {
+        long seq = cursor.getAndAdd(1) + 1;
+        long wrapPoint = seq - entries.length;
+        if (wrapPoint > gatingCache.get()) {
+            long slowest;
+            while (wrapPoint > (slowest = slowest(gating, seq - 1))) {
+                LockSupport.parkNanos(1);
+                gating = subscriptions;
+            }
+            gatingCache.set(slowest);
+        }
+        return seq;
+    }
+
+    private static long slowest(Subscription[] gating, long fallback) {
+        long min = fallback;
+        for (Subscription c : gating) min = Math.min(min, c.sequence.get());
+        return min;
+    }
+
+    private boolean isPublished(long seq) {
+        return (int) FLAG.getAcquire(published, (int) seq & mask) == (int) (seq >>> shift);
+    }
+
+    // The last sequence in [from, claimed] up to which every slot is published.
+    private long highestPublished(long from, long claimed) {
+        for (long seq = from; seq <= claimed; seq++) {
+            if (!isPublished(seq)) return seq - 1;
+        }
+        return claimed;
+    }
+
+    // ---------- consuming ----------
+
+    // Starts a consumer that sees every change published from now on.
+    public synchronized Subscription subscribe(String name, CatalogChangeHandler handler) {
+        Subscription subscription = new Subscription(name, handler);
+        subscription.sequence.set(cursor.get());
+        Subscription[] next = Arrays.copyOf(subscriptions, subscriptions.length + 1);
+        next[next.length - 1] = subscription;
+        subscriptions = next;
+        // A producer may have claimed past the first read before it saw this consumer.
+        subscription.sequence.set(cursor.get());
+        subscription.thread.start();
+        return subscription;
+    }
+
+    public synchronized void unsubscribe(Subscription subscription) {
+        subscription.running = false;
+        LockSupport.unpark(subscription.thread);
+        List<Subscription> next = new ArrayList<>(Arrays.asList(subscriptions));
+        next.remove(subscription);
+        subscriptions = next.toArray(new Subscription[0]);
+    }
+
+    public List<Subscription> getSubscriptions() {
+        return List.of(subscriptions);
+    }
+
+    public long getPublished() {
+        return cursor.get() + 1;
+    }
+
+    // Events the slowest consumer has yet to handle.
+    public long maxLag() {
+        Subscription[] gating = subscriptions;
+        long head = cursor.get();
+        return gating.length == 0 ? 0 : head - slowest(gating, head);
+    }
+
+    class Subscription {
+        private final String name;
+        private final CatalogChangeHandler handler;
+        private final Sequence sequence = new Sequence(-1);
+        private final Thread thread;
+        private final LongAdder handled = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private volatile boolean running = true;
+        // Set while parked, so producers know to wake the thread.
+        private volatile boolean waiting;
+
+        private Subscription(String name, CatalogChangeHandler handler) {
+            this.name = name;
+            this.handler = handler;
+            this.thread = Thread.ofPlatform().daemon().name("catalog-changes-" + name).unstarted(this::run);
+        }
+
+        public String getName() { return name; }
+        public long getSequence() { return sequence.get(); }
+        public long getHandled() { return handled.sum(); }
+        public long getFailures() { return failures.sum(); }
+
+        public long lag() {
+            return cursor.get() - sequence.get();
+        }
+
+        private void run() {
+            long next = sequence.get() + 1;
+            int idle = 0;
+            try {
+                while (running) {
+                    long available = highestPublished(next, cursor.get());
+                    if (available < next) {
+                        idle = idle(idle, next);
+                        continue;
+                    }
+                    idle = 0;
+                    for (long seq = next; seq <= available; seq++) {
+                        try {
+                            handler.onEvent(entries[(int) seq & mask], seq, seq == available);
+                        } catch (Throwable e) {
+                            // One bad event, Errors included, must not stall the ring for every producer.
+                            failures.increment();
+                            System.err.println("[Changes] " + name + " failed on event " + seq + ": " + e);
+                        }
+                    }
+                    handled.add(available - next + 1);
+                    sequence.set(available);
+                    next = available + 1;
+                }
+            } finally {
+                // A consumer that dies anyway stops gating producers instead of wedging them in claim().
+                if (running) unsubscribe(this);
+            }
+        }
+
+        private int idle(int idle, long next) {
+            if (idle < SPINS) {
+                Thread.onSpinWait();
+            } else if (idle < SPINS + YIELDS) {
+                Thread.yield();
+            } else {
+                waiting = true;
+                // A producer that published before it could see waiting is caught by this look.
+                if (running && (int) FLAG.getVolatile(published, (int) next & mask) != (int) (next >>> shift)) {
+                    LockSupport.parkNanos(this, PARK_NANOS);
+                }
+                waiting = false;
+                return idle;
+            }
+            return idle + 1;
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package com.mycompany.sdadesign;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+// ========== IMPORT RESULT ==========
+record ImportResult(long rows, long rejected, long elapsedNanos) {
+    double rowsPerSecond() {
+        return elapsedNanos == 0 ? 0 : rows * 1_000_000_000.0 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%,d books imported, %,d rows rejected in %.2f s (%,.0f rows/s)",
+            rows, rejected, elapsedNanos / 1e9, rowsPerSecond());
+    }
+}
+
+// ========== CATALOG IMPORTER ==========
+// Bulk catalog load from CSV or JSON Lines. The file is cut into line-aligned chunks, each
+// chunk is mapped and parsed on a fork-join worker, and books are handed to the store in
+// batches without any per-book console output. One record is always one line: chunks are
+// cut at newlines, so a quoted field may not contain a line break.
+//
+// CSV:  format,genre,title,author,price,quantity   (optional header, RFC 4180 quoting within a line)
+// JSON: one {"format":..,"genre":..,"title":..,"author":..,"price":..,"quantity":..} per line;
+//       a surrounding [ ] array with one object per line is accepted too.
+class CatalogImporter {
+    static final int DEFAULT_CHUNK_SIZE = 8 * 1024 * 1024;
+    static final int DEFAULT_BATCH_SIZE = 10_000;
+
+    private final BookStoreManager manager;
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+    private final int batchSize;
+
+    public CatalogImporter(BookStoreManager manager) {
+        this(manager, ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE, DEFAULT_BATCH_SIZE);
+    }
+
+    public CatalogImporter(BookStoreManager manager, ForkJoinPool pool, int chunkSize, int batchSize) {
+        this.manager = manager;
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+        this.batchSize = batchSize;
+    }
+
+    public ImportResult importFile(Path file) throws IOException {
+        boolean json = file.getFileName().toString().toLowerCase(Locale.ROOT).matches(".*\\.(json|jsonl|ndjson)");
+        long start = System.nanoTime();
+        LongAdder rows = new LongAdder();
+        LongAdder rejected = new LongAdder();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            List<long[]> chunks = split(channel);
+            // An empty file has no chunks: nothing to import.
+            if (chunks.isEmpty()) return new ImportResult(0, 0, System.nanoTime() - start);
+            pool.invoke(new ChunkTask(channel, chunks, 0, chunks.size(), json, rows, rejected));
+        }
+        return new ImportResult(rows.sum(), rejected.sum(), System.nanoTime() - start);
+    }
+
+    // Chunk boundaries always fall just after a newline so no line is split between workers.
+    private List<long[]> split(FileChannel channel) throws IOException {
+        long size = channel.size();
+        List<long[]> chunks = new ArrayList<>();
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+        long start = 0;
+        while (start < size) {
+            long end = Math.min(size, start + chunkSize);
+            scan:
+            while (end < size) {
+                probe.clear();
+                int n = channel.read(probe, end);
+                if (n <= 0) {
+                    end = size;
+                    break;
+                }
+                for (int i = 0; i < n; i++) {
+                    if (probe.get(i) == '\n') {
+                        end += i + 1;
+                        break scan;
+                    }
+                }
+                end += n;
+            }
+            chunks.add(new long[] {start, Math.min(end, size)});
+            start = end;
+        }
+        return chunks;
+    }
+
+    // Never serialized: fork-join tasks only need RecursiveAction's scheduling.
+    @SuppressWarnings("serial")
+    private class ChunkTask extends RecursiveAction {
+        private final FileChannel channel;
+        private final List<long[]> chunks;
+        private final int from;
+        private final int to;
+        private final boolean json;
+        private final LongAdder rows;
+        private final LongAdder rejected;
+
+        ChunkTask(FileChannel channel, List<long[]> chunks, int from, int to, boolean json,
+                  LongAdder rows, LongAdder rejected) {
+            this.channel = channel;
+            this.chunks = chunks;
+            this.from = from;
+            this.to = to;
+            this.json = json;
+            this.rows = rows;
+            this.rejected = rejected;
+        }
+
+        @Override
+        protected void compute() {
+            if (to == from) return;
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new ChunkTask(channel, chunks, from, mid, json, rows, rejected),
+                          new ChunkTask(channel, chunks, mid, to, json, rows, rejected));
+                return;
+            }
+            long[] range = chunks.get(from);
+            try {
+                ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, range[0], range[1] - range[0]);
+                parseChunk(StandardCharsets.UTF_8.decode(mapped), json, rows, rejected);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private void parseChunk(CharSequence text, boolean json, LongAdder rows, LongAdder rejected) {
+        List<Book> batch = new ArrayList<>(batchSize);
+        int lineStart = 0;
+        int length = text.length();
+        for (int i = 0; i <= length; i++) {
+            if (i < length && text.charAt(i) != '\n') continue;
+            String line = text.subSequence(lineStart, i).toString().strip();
+            lineStart = i + 1;
+            if (line.isEmpty()) continue;
+
+            Book book;
+            try {
+                book = json ? parseJson(line) : parseCsv(line);
+            } catch (RuntimeException e) {
+                book = null;
+            }
+            if (book == null) {
+                if (!isHeaderOrBracket(line)) rejected.increment();
+                continue;
+            }
+            batch.add(book);
+            if (batch.size() == batchSize) {
+                manager.addBooks(batch);
+                rows.add(batch.size());
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            manager.addBooks(batch);
+            rows.add(batch.size());
+        }
+    }
+
+    private static boolean isHeaderOrBracket(String line) {
+        return line.equals("[") || line.equals("]") || line.toLowerCase(Locale.ROOT).startsWith("format,");
+    }
+
+    private Book create(String format, String genre, String title, String author, String price, String quantity) {
+        BookFactory factory = BookFactory.forFormat(format);
+        if (factory == null || title.isEmpty()) return null;
+        try {
+            double amount = Double.parseDouble(price);
+            boolean stocked = quantity != null && !quantity.isEmpty();
+            int stock = stocked ? Integer.parseInt(quantity) : 0;
+            // Negative, NaN or infinite prices and negative stock are bad rows, not books.
+            if (!(amount >= 0 && amount < Double.POSITIVE_INFINITY) || stock < 0) return null;
+            Book book = factory.createBook(genre, title, author, amount);
+            if (book != null && stocked) book.setQuantity(stock);
+            return book;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // ---------- CSV ----------
+
+    Book parseCsv(String line) {
+        List<String> fields = new ArrayList<>(6);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString().strip());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString().strip());
+        if (fields.size() < 5) return null;
+        return create(fields.get(0), fields.get(1), fields.get(2), fields.get(3), fields.get(4),
+            fields.size() > 5 ? fields.get(5) : null);
+    }
+
+    // ---------- JSON ----------
+
+    // Flat objects only: string and number values, no nesting.
+    Book parseJson(String line) {
+        String obj = line;
+        if (obj.startsWith("[")) obj = obj.substring(1).strip();
+        if (obj.endsWith("]")) obj = obj.substring(0, obj.length() - 1).strip();
+        if (obj.endsWith(",")) obj = obj.substring(0, obj.length() - 1).strip();
+        if (!obj.startsWith("{") || !obj.endsWith("}")) return null;
+
+        Map<String, String> values = new HashMap<>();
+        int i = 1;
+        int end = obj.length() - 1;
+        StringBuilder buf = new StringBuilder();
+        while (i < end) {
+            i = skipSpace(obj, i);
+            if (i >= end) break;
+            if (obj.charAt(i) != '"') return null;
+            i = readString(obj, i, buf);
+            String key = buf.toString();
+            i = skipSpace(obj, i);
+            if (i >= end || obj.charAt(i) != ':') return null;
+            i = skipSpace(obj, i + 1);
+            if (i < end && obj.charAt(i) == '"') {
+                i = readString(obj, i, buf);
+                values.put(key, buf.toString());
+            } else {
+                int valueStart = i;
+                while (i < end && obj.charAt(i) != ',') i++;
+                values.put(key, obj.substring(valueStart, i).strip());
+            }
+            i = skipSpace(obj, i);
+            if (i < end && obj.charAt(i) == ',') i++;
+        }
+        return create(values.getOrDefault("format", "physical"), values.getOrDefault("genre", ""),
+            values.getOrDefault("title", ""), values.getOrDefault("author", ""),
+            values.getOrDefault("price", ""), values.get("quantity"));
+    }
+
+    private static int skipSpace(String s, int i) {
+        while (i < s.length() && Character.isWhitespace(s.charAt(i))) i++;
+        return i;
+    }
+
+    // Reads the string literal starting at the opening quote into buf; returns the index after it.
+    private static int readString(String s, int i, StringBuilder buf) {
+        buf.setLength(0);
+        for (i = i + 1; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"') return i + 1;
+            if (c == '\\' && i + 1 < s.length()) {
+                char e = s.charAt(++i);
+                switch (e) {
+                    case 'n' -> buf.append('\n');
+                    case 't' -> buf.append('\t');
+                    case 'r' -> buf.append('\r');
+                    case 'b' -> buf.append('\b');
+                    case 'f' -> buf.append('\f');
+                    case 'u' -> {
+                        if (i + 4 < s.length()) {
+                            buf.append((char) Integer.parseInt(s.substring(i + 1, i + 5), 16));
+                            i += 4;
+                        }
+                    }
+                    default -> buf.append(e);
+                }
+            } else {
+                buf.append(c);
+            }
+        }
+        return s.length();
+    }
+}
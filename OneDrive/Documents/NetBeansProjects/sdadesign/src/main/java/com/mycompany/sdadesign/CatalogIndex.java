@@ -0,0 +1,79 @@
+package com.mycompany.sdadesign;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// ========== CATALOG INDEX ==========
+// Title, author and genre lookups over the book catalog, kept in step with addBook, plus
+// title- and price-ordered views for paging. Price changes arrive from the catalog change
+// stream and move the book within the price view, so for a moment after setPrice returns a
+// price-sorted page can still list the book at its old position; its getPrice() is already new.
+class CatalogIndex {
+    private final Map<String, Book> byTitle = new ConcurrentHashMap<>();
+    private final Map<String, Queue<Book>> byAuthor = new ConcurrentHashMap<>();
+    private final Map<Class<? extends Book>, Queue<Book>> byGenre = new ConcurrentHashMap<>();
+    private final Map<BookSort, SortedView<Book>> sorted = new EnumMap<>(Map.of(
+        BookSort.TITLE, new SortedView<Book>(b -> key(b.getTitle()), s -> s),
+        BookSort.PRICE, new SortedView<Book>(Book::getPrice, Double::valueOf)));
+    private final AtomicLong sequence = new AtomicLong();
+    // Every book added, duplicates included: byTitle keeps only the first book of each title.
+    private final AtomicInteger count = new AtomicInteger();
+
+    static String key(String text) {
+        return text.toLowerCase(Locale.ROOT);
+    }
+
+    public void add(Book book) {
+        // First book with a given title wins, matching the old linear scan.
+        byTitle.putIfAbsent(key(book.getTitle()), book);
+        byAuthor.computeIfAbsent(key(book.getAuthor()), k -> new ConcurrentLinkedQueue<>()).add(book);
+        byGenre.computeIfAbsent(book.getClass(), k -> new ConcurrentLinkedQueue<>()).add(book);
+        long seq = sequence.incrementAndGet();
+        for (SortedView<Book> view : sorted.values()) view.add(book, seq);
+        count.incrementAndGet();
+    }
+
+    public void onChange(CatalogEvent event, long sequence, boolean endOfBatch) {
+        if (event.type() == CatalogChangeType.PRICE_CHANGED) {
+            sorted.get(BookSort.PRICE).rekey(event.book(), event.priceBefore());
+        }
+    }
+
+    public Page<Book> page(BookQuery query, String cursor, int limit) {
+        return sorted.get(query.sort()).page(cursor, limit, query::matches);
+    }
+
+    public Book findByTitle(String title) {
+        if (title == null) return null;
+        return byTitle.get(key(title));
+    }
+
+    public List<Book> findByAuthor(String author) {
+        if (author == null) return List.of();
+        Queue<Book> matches = byAuthor.get(key(author));
+        return matches == null ? List.of() : List.copyOf(matches);
+    }
+
+    public <T extends Book> List<T> findByGenre(Class<T> genre) {
+        Queue<Book> matches = byGenre.get(genre);
+        if (matches == null) return List.of();
+        List<T> result = new ArrayList<>();
+        for (Book b : matches) result.add(genre.cast(b));
+        return result;
+    }
+
+    public void clear() {
+        byTitle.clear();
+        byAuthor.clear();
+        byGenre.clear();
+        for (SortedView<Book> view : sorted.values()) view.clear();
+        count.set(0);
+    }
+
+    public int size() {
+        return count.get();
+    }
+}
@@ -0,0 +1,313 @@
+package com.mycompany.sdadesign;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// ========== SEARCH HIT ==========
+record SearchHit(Book book, double score) {}
+
+// ========== CATALOG SEARCH ==========
+// In-memory full-text search over title and author, updated incrementally as books are added.
+//  - inverted index: token -> books, separately for title and author, ranked by tf-idf style
+//    weights (title matches count double);
+//  - prefix lookups: the token and title dictionaries are ordered maps, so every key starting with
+//    a prefix is one contiguous sub-range (the same walk a trie does, without per-char nodes);
+//  - fuzzy matching: a trigram index over the token dictionary, split by token length, finds
+//    candidates for misspelt words, confirmed with a bounded edit distance;
+//  - a forward index, book -> its title and author tokens, so scoring a candidate against a
+//    common token never re-tokenizes the book.
+class CatalogSearch {
+    private static final double TITLE_WEIGHT = 2.0;
+    private static final double AUTHOR_WEIGHT = 1.0;
+    private static final double PREFIX_WEIGHT = 0.8;
+    private static final double FUZZY_WEIGHT = 0.6;
+    private static final int MAX_EXPANSIONS = 16;
+    private static final int MAX_EDITS = 2;
+    // Tokens with more postings than this are common: they are never scanned, only checked
+    // against the candidates found through rarer tokens.
+    private static final int COMMON_TOKEN_POSTINGS = 20_000;
+
+    private final Map<String, Queue<Book>> titlePostings = new ConcurrentHashMap<>();
+    private final Map<String, Queue<Book>> authorPostings = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<String, TokenStats> tokens = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<String, Book> titles = new ConcurrentSkipListMap<>();
+    // Keyed by trigramKey(gram, token length), so fuzzy lookups only visit tokens close in length.
+    private final Map<String, Set<String>> trigrams = new ConcurrentHashMap<>();
+    private final Map<Book, Document> documentsByBook = new ConcurrentHashMap<>();
+    private final AtomicInteger documents = new AtomicInteger();
+
+    // One per dictionary token, shared by every document that contains it. The trigram count is
+    // fixed by the token, so fuzzy scoring reads it instead of recomputing the token's trigrams.
+    private static final class TokenStats {
+        final AtomicInteger postings = new AtomicInteger();
+        final int grams;
+
+        TokenStats(String token) {
+            this.grams = trigramsOf(token).size();
+        }
+    }
+
+    private record Document(TokenStats[] title, TokenStats[] author) {
+        static boolean contains(TokenStats[] field, TokenStats token) {
+            for (TokenStats t : field) if (t == token) return true;
+            return false;
+        }
+    }
+
+    public void add(Book book) {
+        documents.incrementAndGet();
+        titles.putIfAbsent(CatalogIndex.key(book.getTitle()), book);
+        TokenStats[] title = index(book.getTitle(), book, titlePostings);
+        TokenStats[] author = index(book.getAuthor(), book, authorPostings);
+        documentsByBook.put(book, new Document(title, author));
+    }
+
+    private TokenStats[] index(String text, Book book, Map<String, Queue<Book>> postings) {
+        Set<String> distinct = new LinkedHashSet<>(tokenize(text));
+        TokenStats[] field = new TokenStats[distinct.size()];
+        int i = 0;
+        for (String token : distinct) {
+            postings.computeIfAbsent(token, k -> new ConcurrentLinkedQueue<>()).add(book);
+            TokenStats stats = tokens.computeIfAbsent(token, TokenStats::new);
+            if (stats.postings.getAndIncrement() == 0) {
+                for (String gram : trigramsOf(token)) {
+                    trigrams.computeIfAbsent(trigramKey(gram, token.length()), k -> new ConcurrentSkipListSet<>()).add(token);
+                }
+            }
+            field[i++] = stats;
+        }
+        return field;
+    }
+
+    public void clear() {
+        titlePostings.clear();
+        authorPostings.clear();
+        tokens.clear();
+        titles.clear();
+        trigrams.clear();
+        documentsByBook.clear();
+        documents.set(0);
+    }
+
+    // ---------- queries ----------
+
+    private record TokenMatch(String token, double weight, int postings) {}
+
+    // Terms are scored rarest first. Rare tokens contribute every book in their postings; a common
+    // token only adds to candidates already found, checked against the book's own words, so its
+    // score is exact for every candidate. When every match is common, the rarest one's postings
+    // are the candidates. Only a lone common token is cut to its first COMMON_TOKEN_POSTINGS
+    // postings: each of them scores the same, so the cut changes ties only.
+    public List<SearchHit> search(String query, int limit) {
+        List<String> terms = tokenize(query);
+        if (terms.isEmpty()) return List.of();
+
+        List<TokenMatch> matches = new ArrayList<>();
+        for (int i = 0; i < terms.size(); i++) {
+            boolean last = i == terms.size() - 1;
+            for (Map.Entry<String, Double> match : expand(terms.get(i), last).entrySet()) {
+                matches.add(new TokenMatch(match.getKey(), match.getValue(), postingCount(match.getKey())));
+            }
+        }
+        matches.sort(Comparator.comparingInt(TokenMatch::postings));
+
+        Map<Book, double[]> scores = new HashMap<>();
+        List<TokenMatch> common = new ArrayList<>();
+        for (TokenMatch m : matches) {
+            if (m.postings() > COMMON_TOKEN_POSTINGS) {
+                common.add(m);
+                continue;
+            }
+            double idf = idf(m.token());
+            accumulate(scores, titlePostings.get(m.token()), m.weight() * TITLE_WEIGHT * idf);
+            accumulate(scores, authorPostings.get(m.token()), m.weight() * AUTHOR_WEIGHT * idf);
+        }
+        if (!common.isEmpty()) {
+            if (scores.isEmpty()) {
+                String rarest = common.get(0).token();
+                int cap = common.size() == 1 ? COMMON_TOKEN_POSTINGS : Integer.MAX_VALUE;
+                seed(scores, titlePostings.get(rarest), cap);
+                seed(scores, authorPostings.get(rarest), cap);
+            }
+            rescore(scores, common);
+        }
+        return top(scores, limit);
+    }
+
+    private static void seed(Map<Book, double[]> scores, Queue<Book> postings, int cap) {
+        if (postings == null) return;
+        int scanned = 0;
+        for (Book b : postings) {
+            if (scanned++ == cap) break;
+            scores.putIfAbsent(b, new double[1]);
+        }
+    }
+
+    // Adds each common token's weight to the candidates whose title or author contains it, read
+    // from the candidate's stored tokens.
+    private void rescore(Map<Book, double[]> scores, List<TokenMatch> common) {
+        TokenStats[] stats = new TokenStats[common.size()];
+        double[] idf = new double[common.size()];
+        for (int i = 0; i < stats.length; i++) {
+            stats[i] = tokens.get(common.get(i).token());
+            idf[i] = idf(common.get(i).token());
+        }
+        for (Map.Entry<Book, double[]> e : scores.entrySet()) {
+            Document doc = documentsByBook.get(e.getKey());
+            if (doc == null) continue;
+            for (int i = 0; i < stats.length; i++) {
+                double weight = common.get(i).weight() * idf[i];
+                if (Document.contains(doc.title(), stats[i])) e.getValue()[0] += weight * TITLE_WEIGHT;
+                if (Document.contains(doc.author(), stats[i])) e.getValue()[0] += weight * AUTHOR_WEIGHT;
+            }
+        }
+    }
+
+    // Completes a partially typed title: titles starting with the prefix first, then titles
+    // containing a word that starts with the prefix's last word.
+    public List<String> autocomplete(String prefix, int limit) {
+        String key = CatalogIndex.key(prefix.strip());
+        if (key.isEmpty()) return List.of();
+        LinkedHashSet<String> result = new LinkedHashSet<>();
+        for (Book b : titles.subMap(key, true, key + Character.MAX_VALUE, true).values()) {
+            if (result.size() >= limit) return new ArrayList<>(result);
+            result.add(b.getTitle());
+        }
+        for (SearchHit hit : search(prefix, limit)) {
+            if (result.size() >= limit) break;
+            result.add(hit.book().getTitle());
+        }
+        return new ArrayList<>(result);
+    }
+
+    // Exact token, plus prefix completions for the word being typed, plus fuzzy neighbours when
+    // the word is not in the dictionary at all.
+    private Map<String, Double> expand(String term, boolean last) {
+        Map<String, Double> matches = new LinkedHashMap<>();
+        if (tokens.containsKey(term)) matches.put(term, 1.0);
+        if (last) {
+            int n = 0;
+            for (String token : tokens.subMap(term, false, term + Character.MAX_VALUE, true).keySet()) {
+                if (n++ >= MAX_EXPANSIONS) break;
+                matches.putIfAbsent(token, PREFIX_WEIGHT * term.length() / token.length());
+            }
+        }
+        if (matches.isEmpty()) matches.putAll(fuzzy(term));
+        return matches;
+    }
+
+    // Only tokens within MAX_EDITS of the term's length can be within MAX_EDITS edits, so only
+    // those trigram lists are walked; the best-overlapping candidates are kept in a bounded heap
+    // and only they pay for an edit distance.
+    private Map<String, Double> fuzzy(String term) {
+        Set<String> grams = trigramsOf(term);
+        Map<String, Integer> shared = new HashMap<>();
+        for (int length = Math.max(1, term.length() - MAX_EDITS); length <= term.length() + MAX_EDITS; length++) {
+            for (String gram : grams) {
+                Set<String> candidates = trigrams.get(trigramKey(gram, length));
+                if (candidates == null) continue;
+                for (String candidate : candidates) shared.merge(candidate, 1, Integer::sum);
+            }
+        }
+        int keep = MAX_EXPANSIONS * 4;
+        Comparator<Map.Entry<String, Integer>> overlap = Map.Entry.<String, Integer>comparingByValue()
+            .thenComparing(Map.Entry.<String, Integer>comparingByKey().reversed());
+        PriorityQueue<Map.Entry<String, Integer>> best = new PriorityQueue<>(keep + 1, overlap);
+        for (Map.Entry<String, Integer> e : shared.entrySet()) {
+            if (best.size() == keep && overlap.compare(e, best.peek()) <= 0) continue;
+            best.add(e);
+            if (best.size() > keep) best.poll();
+        }
+        Map<String, Double> matches = new HashMap<>();
+        for (Map.Entry<String, Integer> e : best) {
+            String candidate = e.getKey();
+            TokenStats stats = tokens.get(candidate);
+            if (stats == null) continue;
+            int distance = editDistance(term, candidate, MAX_EDITS);
+            if (distance <= MAX_EDITS) {
+                double dice = 2.0 * e.getValue() / (grams.size() + stats.grams);
+                matches.put(candidate, FUZZY_WEIGHT * dice / (1 + distance));
+            }
+        }
+        return matches;
+    }
+
+    private static String trigramKey(String gram, int length) {
+        return gram + '/' + length;
+    }
+
+    private int postingCount(String token) {
+        TokenStats stats = tokens.get(token);
+        return stats == null ? 0 : stats.postings.get();
+    }
+
+    private double idf(String token) {
+        return Math.log(1.0 + documents.get() / (1.0 + postingCount(token)));
+    }
+
+    private static void accumulate(Map<Book, double[]> scores, Queue<Book> postings, double weight) {
+        if (postings == null) return;
+        for (Book b : postings) scores.computeIfAbsent(b, k -> new double[1])[0] += weight;
+    }
+
+    private static List<SearchHit> top(Map<Book, double[]> scores, int limit) {
+        PriorityQueue<SearchHit> heap = new PriorityQueue<>(Comparator.comparingDouble(SearchHit::score));
+        for (Map.Entry<Book, double[]> e : scores.entrySet()) {
+            heap.add(new SearchHit(e.getKey(), e.getValue()[0]));
+            if (heap.size() > limit) heap.poll();
+        }
+        List<SearchHit> result = new ArrayList<>(heap);
+        result.sort(Comparator.comparingDouble(SearchHit::score).reversed()
+            .thenComparing(h -> h.book().getTitle()));
+        return result;
+    }
+
+    // ---------- text ----------
+
+    static List<String> tokenize(String text) {
+        List<String> result = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean word = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (word && start < 0) {
+                start = i;
+            } else if (!word && start >= 0) {
+                result.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return result;
+    }
+
+    static Set<String> trigramsOf(String token) {
+        String padded = "$$" + token + "$";
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) grams.add(padded.substring(i, i + 3));
+        return grams;
+    }
+
+    // Levenshtein distance, giving up (returning max + 1) once it must exceed max.
+    static int editDistance(String a, String b, int max) {
+        int[] prev = new int[b.length() + 1];
+        int[] curr = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) prev[j] = j;
+        for (int i = 1; i <= a.length(); i++) {
+            curr[0] = i;
+            int rowMin = curr[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                curr[j] = Math.min(Math.min(curr[j - 1] + 1, prev[j] + 1), prev[j - 1] + cost);
+                rowMin = Math.min(rowMin, curr[j]);
+            }
+            if (rowMin > max) return max + 1;
+            int[] swap = prev;
+            prev = curr;
+            curr = swap;
+        }
+        return prev[b.length()];
+    }
+}
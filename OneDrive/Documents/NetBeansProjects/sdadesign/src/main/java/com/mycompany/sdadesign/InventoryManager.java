@@ -0,0 +1,286 @@
+package com.mycompany.sdadesign;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+// ========== STOCK RESERVATION ==========
+class Reservation {
+    static final int ACTIVE = 0;
+    static final int COMMITTED = 1;
+    static final int RELEASED = 2;
+
+    private final String username;
+    private final Book book;
+    private final int quantity;
+    private final long expiresAtNanos;
+    private final AtomicInteger state = new AtomicInteger(ACTIVE);
+    // Wheel links, touched only by the expiry thread.
+    Reservation prev;
+    Reservation next;
+    int slot = -1;
+
+    public Reservation(String username, Book book, int quantity, long expiresAtNanos) {
+        this.username = username;
+        this.book = book;
+        this.quantity = quantity;
+        this.expiresAtNanos = expiresAtNanos;
+    }
+
+    public String getUsername() { return username; }
+    public Book getBook() { return book; }
+    public int getQuantity() { return quantity; }
+    public long getExpiresAtNanos() { return expiresAtNanos; }
+
+    public boolean isActive() {
+        return state.get() == ACTIVE;
+    }
+
+    // Commit and release race with the expiry sweeper; only one transition out of ACTIVE wins.
+    public boolean commit() {
+        return state.compareAndSet(ACTIVE, COMMITTED);
+    }
+
+    public boolean release() {
+        if (state.compareAndSet(ACTIVE, RELEASED)) {
+            book.release(quantity);
+            return true;
+        }
+        return false;
+    }
+}
+
+// ========== EXPIRY WHEEL ==========
+// Hashed timing wheel for hold expiry. Slots are doubly linked lists owned by the expiry thread
+// alone; other threads only append to two lock-free queues, one of new holds and one of holds to
+// drop, which the thread drains once per tick. Scheduling and cancelling are one queue offer
+// each, a cancelled hold is unlinked in O(1) within a tick, and no lock is shared between
+// users. Holds due more than one turn out stay in their slot until the turn they fall due.
+class ExpiryWheel {
+    private static final int SLOTS = 512;
+
+    private final long tickNanos;
+    private final long start = System.nanoTime();
+    private final Reservation[] heads = new Reservation[SLOTS];
+    private final Queue<Reservation> scheduled = new ConcurrentLinkedQueue<>();
+    private final Queue<Reservation> cancelled = new ConcurrentLinkedQueue<>();
+    private final Consumer<Reservation> onExpiry;
+    private volatile boolean clearRequested;
+    private long nextTick;
+
+    ExpiryWheel(Duration tick, Consumer<Reservation> onExpiry) {
+        this.tickNanos = tick.toNanos();
+        this.onExpiry = onExpiry;
+    }
+
+    public void schedule(Reservation r) {
+        scheduled.add(r);
+    }
+
+    public void cancel(Reservation r) {
+        cancelled.add(r);
+    }
+
+    public void clear() {
+        scheduled.clear();
+        cancelled.clear();
+        clearRequested = true;
+    }
+
+    void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            long due = start + (nextTick + 1) * tickNanos;
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(this, wait);
+                continue;
+            }
+            tick(System.nanoTime());
+        }
+    }
+
+    private void tick(long now) {
+        if (clearRequested) {
+            clearRequested = false;
+            Arrays.fill(heads, null);
+        }
+        Reservation r;
+        while ((r = cancelled.poll()) != null) unlink(r);
+        while ((r = scheduled.poll()) != null) {
+            if (r.isActive() && r.slot < 0) link(r, Math.max(ticksAt(r.getExpiresAtNanos()), nextTick));
+        }
+        int slot = (int) (nextTick % SLOTS);
+        for (r = heads[slot]; r != null; ) {
+            Reservation next = r.next;
+            if (!r.isActive()) {
+                unlink(r);
+            } else if (r.getExpiresAtNanos() <= now) {
+                unlink(r);
+                onExpiry.accept(r);
+            }
+            r = next;
+        }
+        nextTick++;
+    }
+
+    private long ticksAt(long nanos) {
+        return Math.max(0, (nanos - start) / tickNanos);
+    }
+
+    private void link(Reservation r, long tick) {
+        int slot = (int) (tick % SLOTS);
+        r.slot = slot;
+        r.prev = null;
+        r.next = heads[slot];
+        if (r.next != null) r.next.prev = r;
+        heads[slot] = r;
+    }
+
+    private void unlink(Reservation r) {
+        if (r.slot < 0) return;
+        if (r.prev != null) r.prev.next = r.next;
+        else if (heads[r.slot] == r) heads[r.slot] = r.next;
+        if (r.next != null) r.next.prev = r.prev;
+        r.prev = null;
+        r.next = null;
+        r.slot = -1;
+    }
+}
+
+// ========== INVENTORY MANAGER ==========
+// Holds stock for carts until payment; reservations that are never paid expire back into stock.
+// Books are matched with equals, so two views of one off-heap record count as the same book.
+// Each user's holds sit in their own queue and expiry runs on a timing wheel, so users never
+// share a lock.
+class InventoryManager {
+    private static final Duration TICK = Duration.ofMillis(100);
+
+    private final Duration holdTime;
+    private final Map<String, Queue<Reservation>> byUser = new ConcurrentHashMap<>();
+    private final ExpiryWheel expiry = new ExpiryWheel(TICK, this::expired);
+
+    public InventoryManager(Duration holdTime) {
+        this.holdTime = holdTime;
+        Thread sweeper = new Thread(expiry::run, "inventory-expiry");
+        sweeper.setDaemon(true);
+        sweeper.start();
+    }
+
+    public Reservation reserve(String username, Book book, int qty) {
+        if (qty <= 0 || !book.tryReserve(qty)) return null;
+        return hold(username, book, qty);
+    }
+
+    private Reservation hold(String username, Book book, int qty) {
+        Reservation r = new Reservation(username, book, qty, System.nanoTime() + holdTime.toNanos());
+        // Added under the map's lock so dropUserIfIdle never discards a queue being added to.
+        byUser.compute(username, (k, q) -> {
+            Queue<Reservation> held = q != null ? q : new ConcurrentLinkedQueue<>();
+            held.add(r);
+            return held;
+        });
+        expiry.schedule(r);
+        return r;
+    }
+
+    // Turns the user's holds on this book into a sale. Stock whose hold already expired is
+    // re-reserved; if that is no longer possible nothing is committed and false is returned.
+    public boolean commit(String username, Book book, int qty) {
+        Queue<Reservation> held = byUser.get(username);
+        int covered = 0;
+        if (held != null) {
+            for (Reservation r : held) {
+                if (r.getBook().equals(book) && covered < qty && r.commit()) {
+                    covered += r.getQuantity();
+                    held.remove(r);
+                    expiry.cancel(r);
+                }
+            }
+        }
+        if (covered > qty) {
+            book.release(covered - qty);
+        } else if (covered < qty && !book.tryReserve(qty - covered)) {
+            book.release(covered);
+            return false;
+        }
+        dropUserIfIdle(username);
+        return true;
+    }
+
+    // Returns qty of the user's held copies of this book to stock. A hold larger than what is
+    // left to free is split: its surplus goes back and the rest stays held under a new reservation.
+    public void release(String username, Book book, int qty) {
+        Queue<Reservation> held = byUser.get(username);
+        if (held == null) return;
+        int remaining = qty;
+        for (Reservation r : held) {
+            if (remaining <= 0) break;
+            if (!r.getBook().equals(book)) continue;
+            if (r.getQuantity() <= remaining) {
+                if (r.release()) {
+                    remaining -= r.getQuantity();
+                    held.remove(r);
+                    expiry.cancel(r);
+                }
+            } else if (r.commit()) {
+                held.remove(r);
+                expiry.cancel(r);
+                book.release(remaining);
+                hold(username, book, r.getQuantity() - remaining);
+                remaining = 0;
+            }
+        }
+        dropUserIfIdle(username);
+    }
+
+    public void releaseAll(String username) {
+        Queue<Reservation> held = byUser.remove(username);
+        if (held == null) return;
+        for (Reservation r : held) {
+            if (r.release()) expiry.cancel(r);
+        }
+    }
+
+    // Puts every held copy back into stock, e.g. before a snapshot that does not keep holds.
+    public void releaseEverything() {
+        for (String username : byUser.keySet()) releaseAll(username);
+    }
+
+    public int reservedBy(String username) {
+        Queue<Reservation> held = byUser.get(username);
+        if (held == null) return 0;
+        int total = 0;
+        for (Reservation r : held) {
+            if (r.isActive()) total += r.getQuantity();
+        }
+        return total;
+    }
+
+    public long reservedTotal() {
+        long total = 0;
+        for (String username : byUser.keySet()) total += reservedBy(username);
+        return total;
+    }
+
+    // Keeps byUser from growing with every user who ever held stock.
+    private void dropUserIfIdle(String username) {
+        byUser.computeIfPresent(username, (k, q) -> q.isEmpty() ? null : q);
+    }
+
+    public void clear() {
+        byUser.clear();
+        expiry.clear();
+    }
+
+    // Called on the expiry thread for a hold whose time is up.
+    private void expired(Reservation r) {
+        if (r.release()) {
+            Queue<Reservation> held = byUser.get(r.getUsername());
+            if (held != null && held.remove(r)) dropUserIfIdle(r.getUsername());
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.mycompany.sdadesign;
+
+import java.util.Collection;
+import java.util.StringJoiner;
+import java.util.function.Function;
+
+// ========== JSON ==========
+final class Json {
+    private Json() {}
+
+    static String quote(String s) {
+        StringBuilder sb = new StringBuilder(s.length() + 2).append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    static String book(Book b) {
+        return "{\"title\":" + quote(b.getTitle())
+            + ",\"author\":" + quote(b.getAuthor())
+            + ",\"genre\":" + quote(b.getGenre())
+            + ",\"price\":" + b.getPrice()
+            + ",\"quantity\":" + b.getQuantity() + "}";
+    }
+
+    static String order(Order o) {
+        return "{\"orderId\":" + quote(o.getOrderId())
+            + ",\"user\":" + quote(o.getUser())
+            + ",\"title\":" + quote(o.getTitle())
+            + ",\"quantity\":" + o.getQuantity()
+            + ",\"price\":" + o.getPrice()
+            + ",\"status\":" + quote(o.getStatus())
+            + ",\"date\":" + o.getDate().getTime() + "}";
+    }
+
+    static <T> String array(Collection<T> items, Function<T, String> render) {
+        StringJoiner joiner = new StringJoiner(",", "[", "]");
+        for (T item : items) joiner.add(render.apply(item));
+        return joiner.toString();
+    }
+
+    static <T> String page(Page<T> page, Function<T, String> render) {
+        return "{\"items\":" + array(page.items(), render)
+            + ",\"next\":" + (page.nextCursor() == null ? "null" : quote(page.nextCursor())) + "}";
+    }
+
+    static String error(String message) {
+        return "{\"error\":" + quote(message) + "}";
+    }
+}
@@ -0,0 +1,314 @@
+package com.mycompany.sdadesign;
+
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// ========== SHOPPER ACTIONS ==========
+// The steps of the logged-in user menu, as the simulator drives them.
+enum ShopperAction {
+    VIEW_BOOKS("view"),
+    SEARCH("search"),
+    ADD_TO_CART("add"),
+    VIEW_CART("cart"),
+    CHECKOUT("checkout"),
+    PAY("pay"),
+    PLACE_ORDER("place");
+
+    private final String key;
+
+    ShopperAction(String key) {
+        this.key = key;
+    }
+
+    public String key() {
+        return key;
+    }
+
+    static ShopperAction parse(String key) {
+        for (ShopperAction a : values()) {
+            if (a.key.equalsIgnoreCase(key.strip())) return a;
+        }
+        return null;
+    }
+}
+
+// ========== ZIPF SAMPLER ==========
+// Rank k (0-based) is drawn with probability proportional to 1 / (k + 1)^s: a few bestsellers
+// take most of the traffic and the long tail still gets some. Sampling is a binary search over
+// the precomputed cumulative distribution, so it is O(log n) and allocation-free.
+class ZipfSampler {
+    private final double[] cumulative;
+
+    ZipfSampler(int n, double exponent) {
+        cumulative = new double[n];
+        double sum = 0;
+        for (int k = 0; k < n; k++) {
+            sum += 1.0 / Math.pow(k + 1, exponent);
+            cumulative[k] = sum;
+        }
+        for (int k = 0; k < n; k++) cumulative[k] /= sum;
+    }
+
+    public int next(Random random) {
+        int i = Arrays.binarySearch(cumulative, random.nextDouble());
+        return Math.min(i < 0 ? -i - 1 : i, cumulative.length - 1);
+    }
+}
+
+// ========== SIMULATION CONFIG ==========
+// Parsed from "key=value,..." with any key left out taking its default, e.g.
+//   shoppers=20000,seconds=60,warmup=10,think=200,zipf=1.0,titles=50000,view=30,add=25,pay=10
+// think is the mean pause between a shopper's actions in milliseconds; action keys are weights.
+record SimulationConfig(int shoppers, Duration duration, Duration warmup, Duration thinkTime,
+                        double zipfExponent, int catalogSize, Map<ShopperAction, Integer> mix) {
+    static final Map<ShopperAction, Integer> DEFAULT_MIX = defaultMix();
+
+    private static Map<ShopperAction, Integer> defaultMix() {
+        Map<ShopperAction, Integer> mix = new EnumMap<>(ShopperAction.class);
+        mix.put(ShopperAction.VIEW_BOOKS, 30);
+        mix.put(ShopperAction.SEARCH, 15);
+        mix.put(ShopperAction.ADD_TO_CART, 25);
+        mix.put(ShopperAction.VIEW_CART, 10);
+        mix.put(ShopperAction.CHECKOUT, 3);
+        mix.put(ShopperAction.PAY, 12);
+        mix.put(ShopperAction.PLACE_ORDER, 5);
+        return Collections.unmodifiableMap(mix);
+    }
+
+    static SimulationConfig parse(String spec) {
+        int shoppers = 10_000;
+        long seconds = 30, warmup = 5, think = 100, titles = 10_000;
+        double zipf = 1.0;
+        Map<ShopperAction, Integer> mix = new EnumMap<>(DEFAULT_MIX);
+        for (String pair : spec.split(",")) {
+            if (pair.isBlank()) continue;
+            int eq = pair.indexOf('=');
+            if (eq < 0) throw new IllegalArgumentException("Expected key=value: " + pair);
+            String key = pair.substring(0, eq).strip();
+            String value = pair.substring(eq + 1).strip();
+            try {
+                switch (key) {
+                    case "shoppers" -> shoppers = Integer.parseInt(value);
+                    case "seconds" -> seconds = Long.parseLong(value);
+                    case "warmup" -> warmup = Long.parseLong(value);
+                    case "think" -> think = Long.parseLong(value);
+                    case "zipf" -> zipf = Double.parseDouble(value);
+                    case "titles" -> titles = Long.parseLong(value);
+                    default -> {
+                        ShopperAction action = ShopperAction.parse(key);
+                        if (action == null) throw new IllegalArgumentException("Unknown setting: " + key);
+                        mix.put(action, Integer.parseInt(value));
+                    }
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Not a number for " + key + ": " + value);
+            }
+        }
+        if (shoppers <= 0 || seconds <= 0 || warmup < 0 || think < 0 || titles <= 0) {
+            throw new IllegalArgumentException("Counts and durations must be positive");
+        }
+        if (mix.values().stream().mapToInt(Integer::intValue).sum() <= 0) {
+            throw new IllegalArgumentException("The action mix needs a positive weight");
+        }
+        return new SimulationConfig(shoppers, Duration.ofSeconds(seconds), Duration.ofSeconds(warmup),
+            Duration.ofMillis(think), zipf, (int) titles, mix);
+    }
+}
+
+// ========== LOAD SIMULATOR ==========
+// Closed-loop workload: one virtual thread per shopper, each repeatedly pausing for an
+// exponentially distributed think time and then running one action picked by weight from the
+// mix, against the real BookStoreManager and PaymentCartNotificationManager. Titles are picked
+// by Zipf rank over a shuffled catalog. Latency is recorded per action once warmup is over.
+//
+// Shoppers are not registered accounts (hashing thousands of passwords would dominate the run)
+// and pay through a no-op strategy, so nothing is printed per action. An empty store is seeded
+// with `titles` synthetic books with ample stock; an imported catalog is used as is.
+class LoadSimulator {
+    private static final PaymentStrategy SIMULATED_PAYMENT = new PaymentStrategy() {
+        @Override
+        public void pay(String username, double amount) {}
+
+        @Override
+        public String getMethodName() {
+            return "Simulated";
+        }
+    };
+    private static final String[] SEARCH_WORDS = {"title", "the", "book", "1", "42", "author"};
+
+    private final SimulationConfig config;
+    private final BookStoreManager manager;
+    private final PaymentCartNotificationManager pcm;
+    private final Map<ShopperAction, LatencyRecorder> latencies = new EnumMap<>(ShopperAction.class);
+    private final Map<ShopperAction, LongAdder> misses = new EnumMap<>(ShopperAction.class);
+    private final Map<ShopperAction, LongAdder> errors = new EnumMap<>(ShopperAction.class);
+    private final ShopperAction[] actions;
+    private final int[] cumulativeWeights;
+    private List<String> titles;
+    private ZipfSampler popularity;
+
+    LoadSimulator(SimulationConfig config, BookStoreManager manager, PaymentCartNotificationManager pcm) {
+        this.config = config;
+        this.manager = manager;
+        this.pcm = pcm;
+        List<ShopperAction> weighted = new ArrayList<>();
+        List<Integer> cumulative = new ArrayList<>();
+        int sum = 0;
+        for (Map.Entry<ShopperAction, Integer> e : config.mix().entrySet()) {
+            if (e.getValue() <= 0) continue;
+            sum += e.getValue();
+            weighted.add(e.getKey());
+            cumulative.add(sum);
+        }
+        actions = weighted.toArray(ShopperAction[]::new);
+        cumulativeWeights = cumulative.stream().mapToInt(Integer::intValue).toArray();
+        for (ShopperAction a : ShopperAction.values()) {
+            latencies.put(a, new LatencyRecorder());
+            misses.put(a, new LongAdder());
+            errors.put(a, new LongAdder());
+        }
+    }
+
+    public void run(PrintStream report) throws InterruptedException {
+        prepareCatalog();
+        report.printf("[Simulate] %,d shoppers, %,d titles (zipf %.2f), think %d ms, %d s warmup + %d s measured%n",
+            config.shoppers(), titles.size(), config.zipfExponent(), config.thinkTime().toMillis(),
+            config.warmup().toSeconds(), config.duration().toSeconds());
+
+        long start = System.nanoTime();
+        long measureFrom = start + config.warmup().toNanos();
+        long end = measureFrom + config.duration().toNanos();
+        try (ExecutorService shoppers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < config.shoppers(); i++) {
+                String username = "shopper" + i;
+                shoppers.execute(() -> shop(username, measureFrom, end));
+            }
+            shoppers.shutdown();
+            if (!shoppers.awaitTermination(config.duration().toSeconds() + config.warmup().toSeconds() + 60, TimeUnit.SECONDS)) {
+                report.println("[Simulate] Shoppers did not stop in time; reporting what was measured.");
+            }
+        }
+        print(report, config.duration().toNanos() / 1e9);
+    }
+
+    private void prepareCatalog() {
+        if (manager.getBookCount() == 0) {
+            List<Book> seed = new ArrayList<>(config.catalogSize());
+            String[] genres = {"fiction", "nonfiction", "science"};
+            for (int i = 0; i < config.catalogSize(); i++) {
+                Book book = EBookFactory.getInstance().createBook(genres[i % genres.length], "Title " + i,
+                    "Author " + (i % 1000), 5 + (i % 50));
+                book.setQuantity(Integer.MAX_VALUE / 2);
+                seed.add(book);
+            }
+            manager.addBooks(seed);
+        }
+        List<String> all = new ArrayList<>();
+        for (Book book : manager.catalogBooks()) all.add(book.getTitle());
+        Collections.shuffle(all, new Random(42)); // popularity should not follow insertion order
+        titles = all;
+        popularity = new ZipfSampler(all.size(), config.zipfExponent());
+    }
+
+    private void shop(String username, long measureFrom, long end) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        double meanThinkNanos = config.thinkTime().toNanos();
+        try {
+            while (true) {
+                if (meanThinkNanos > 0) {
+                    long pause = (long) (-Math.log(1 - random.nextDouble()) * meanThinkNanos);
+                    TimeUnit.NANOSECONDS.sleep(Math.min(pause, end - System.nanoTime()));
+                }
+                long started = System.nanoTime();
+                if (started >= end) return;
+                ShopperAction action = pickAction(random);
+                boolean hit;
+                try {
+                    hit = perform(action, username, random);
+                } catch (RuntimeException e) {
+                    if (started >= measureFrom) errors.get(action).increment();
+                    continue;
+                }
+                if (started >= measureFrom) {
+                    latencies.get(action).record(System.nanoTime() - started);
+                    if (!hit) misses.get(action).increment();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private ShopperAction pickAction(Random random) {
+        int roll = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (roll < cumulativeWeights[i]) return actions[i];
+        }
+        return actions[actions.length - 1];
+    }
+
+    // False when the action ran but found nothing to do: out of stock, empty cart and the like.
+    private boolean perform(ShopperAction action, String username, Random random) {
+        return switch (action) {
+            case VIEW_BOOKS -> {
+                BookSort sort = random.nextBoolean() ? BookSort.TITLE : BookSort.PRICE;
+                yield !manager.queryBooks(BookQuery.sortedBy(sort), null, 20).items().isEmpty();
+            }
+            case SEARCH -> {
+                String query = random.nextInt(4) == 0
+                    ? SEARCH_WORDS[random.nextInt(SEARCH_WORDS.length)]
+                    : titles.get(popularity.next(random));
+                yield !manager.searchBooks(query, 20).isEmpty();
+            }
+            case ADD_TO_CART -> pcm.addItem(username, nextTitle(random), 1 + random.nextInt(2), manager) == CartResult.ADDED;
+            case VIEW_CART -> {
+                Map<String, Integer> items = pcm.session(username).getItems();
+                manager.getRecommendations().forCart(username, items.keySet(), 3);
+                yield !items.isEmpty();
+            }
+            case CHECKOUT -> {
+                if (pcm.session(username).isEmpty()) yield false;
+                pcm.checkout(username, manager);
+                yield true;
+            }
+            case PAY -> !pcm.settle(username, SIMULATED_PAYMENT).orders().isEmpty();
+            case PLACE_ORDER -> placeOrder(username, random);
+        };
+    }
+
+    // Same steps as the "Place Order" menu entry.
+    private boolean placeOrder(String username, Random random) {
+        Book book = manager.getBookByTitle(nextTitle(random));
+        int quantity = 1 + random.nextInt(2);
+        if (book == null || !book.tryReserve(quantity)) return false;
+        manager.placeOrder(OrderFactory.createOrder(BookFormat.EBOOK.key(), book.getGenre(), UUID.randomUUID().toString(),
+            username, new Date(), book.getPrice() * quantity, quantity, OrderStatus.PENDING.label(), book.getTitle()));
+        return true;
+    }
+
+    private String nextTitle(Random random) {
+        return titles.get(popularity.next(random));
+    }
+
+    private void print(PrintStream out, double seconds) {
+        out.printf("%-10s %10s %10s %10s %10s %10s %10s %8s %7s%n",
+            "action", "ops", "ops/s", "p50 us", "p99 us", "p999 us", "max us", "misses", "errors");
+        long total = 0;
+        for (ShopperAction action : ShopperAction.values()) {
+            LatencyRecorder r = latencies.get(action);
+            long count = r.getCount();
+            if (count == 0 && errors.get(action).sum() == 0) continue;
+            total += count;
+            out.printf("%-10s %,10d %,10.0f %,10.1f %,10.1f %,10.1f %,10.1f %,8d %,7d%n",
+                action.key(), count, count / seconds, r.percentile(50) / 1e3, r.percentile(99) / 1e3,
+                r.percentile(99.9) / 1e3, r.getMax() / 1e3, misses.get(action).sum(), errors.get(action).sum());
+        }
+        out.printf("%-10s %,10d %,10.0f%n", "total", total, total / seconds);
+    }
+}
@@ -0,0 +1,140 @@
+package com.mycompany.sdadesign;
+
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// ========== NOTIFICATION DISPATCHER ==========
+// Moves observer fan-out off the publishing thread. Publishers only enqueue; a pump thread
+// drains the bounded queue in batches and delivers each topic's messages on a virtual thread.
+class NotificationDispatcher {
+    static final String BROADCAST = "*";
+
+    private record Notification(String topic, String message) {}
+
+    private final BlockingQueue<Notification> queue;
+    private final int maxBatch;
+    private final Map<String, List<Observer>> topics = new ConcurrentHashMap<>();
+    private final ExecutorService deliveryExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final LongAdder published = new LongAdder();
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder backpressureWaits = new LongAdder();
+    private final AtomicInteger highWaterMark = new AtomicInteger();
+
+    public NotificationDispatcher(int capacity, int maxBatch) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.maxBatch = maxBatch;
+        Thread.ofVirtual().name("notification-pump").start(this::pump);
+    }
+
+    public void subscribe(String topic, Observer observer) {
+        topics.computeIfAbsent(topic, k -> new CopyOnWriteArrayList<>()).add(observer);
+    }
+
+    public void unsubscribe(String topic, Observer observer) {
+        List<Observer> subscribers = topics.get(topic);
+        if (subscribers != null) subscribers.remove(observer);
+    }
+
+    public void unsubscribeAll(Observer observer) {
+        for (List<Observer> subscribers : topics.values()) subscribers.remove(observer);
+    }
+
+    public void clear() {
+        topics.clear();
+        queue.clear();
+    }
+
+    public int subscriberCount() {
+        int count = 0;
+        for (List<Observer> subscribers : topics.values()) count += subscribers.size();
+        return count;
+    }
+
+    public void broadcast(String message) {
+        publish(BROADCAST, message);
+    }
+
+    // Never fans out on the caller's thread. Only blocks when the queue is full, which is
+    // counted as a backpressure wait.
+    public void publish(String topic, String message) {
+        Notification n = new Notification(topic, message);
+        if (!queue.offer(n)) {
+            backpressureWaits.increment();
+            try {
+                queue.put(n);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        published.increment();
+        highWaterMark.accumulateAndGet(queue.size(), Math::max);
+    }
+
+    public long getPublished() { return published.sum(); }
+    public long getDelivered() { return delivered.sum(); }
+    public long getBatches() { return batches.sum(); }
+    public long getBackpressureWaits() { return backpressureWaits.sum(); }
+    public int getQueueDepth() { return queue.size(); }
+    public int getHighWaterMark() { return highWaterMark.get(); }
+
+    private void pump() {
+        List<Notification> batch = new ArrayList<>(maxBatch);
+        while (true) {
+            try {
+                batch.add(queue.take());
+                queue.drainTo(batch, maxBatch - 1);
+                deliver(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                System.err.println("[Notifications] Delivery failed: " + e.getMessage());
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    // Groups the batch by topic so each subscriber sees its messages in publish order, then
+    // waits for the batch to finish before starting the next one.
+    private void deliver(List<Notification> batch) throws InterruptedException {
+        Map<String, List<String>> byTopic = new LinkedHashMap<>();
+        for (Notification n : batch) {
+            byTopic.computeIfAbsent(n.topic(), k -> new ArrayList<>()).add(n.message());
+        }
+        List<Future<?>> pending = new ArrayList<>(byTopic.size());
+        for (Map.Entry<String, List<String>> entry : byTopic.entrySet()) {
+            List<Observer> subscribers = topics.getOrDefault(entry.getKey(), List.of());
+            if (subscribers.isEmpty()) continue;
+            List<String> messages = entry.getValue();
+            pending.add(deliveryExecutor.submit(() -> {
+                for (String message : messages) {
+                    for (Observer o : subscribers) {
+                        o.update(message);
+                        delivered.increment();
+                    }
+                }
+            }));
+        }
+        for (Future<?> f : pending) {
+            try {
+                f.get();
+            } catch (ExecutionException e) {
+                System.err.println("[Notifications] Observer failed: " + e.getCause());
+            }
+        }
+        batches.increment();
+    }
+}
@@ -0,0 +1,495 @@
+package com.mycompany.sdadesign;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.VarHandle;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+// ========== UTF-8 ARENA ==========
+// Append-only string storage in native blocks. A string is [int length][UTF-8 bytes] and is
+// addressed by a long reference: block number in the high half, byte offset in the low half.
+class Utf8Arena {
+    private static final int BLOCK_BYTES = 4 << 20;
+
+    private final Arena arena;
+    private volatile MemorySegment[] blocks = new MemorySegment[0];
+    private MemorySegment current;
+    private long used;
+    private long bytes;
+
+    Utf8Arena(Arena arena) {
+        this.arena = arena;
+    }
+
+    // Single writer: callers hold the owning catalog's lock.
+    long put(String value) {
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        long need = Integer.BYTES + utf8.length;
+        if (current == null || used + need > current.byteSize()) {
+            current = arena.allocate(Math.max(BLOCK_BYTES, need), Integer.BYTES);
+            MemorySegment[] grown = Arrays.copyOf(blocks, blocks.length + 1);
+            grown[grown.length - 1] = current;
+            blocks = grown;
+            used = 0;
+        }
+        current.set(ValueLayout.JAVA_INT_UNALIGNED, used, utf8.length);
+        MemorySegment.copy(utf8, 0, current, ValueLayout.JAVA_BYTE, used + Integer.BYTES, utf8.length);
+        long ref = (long) (blocks.length - 1) << 32 | used;
+        used += need;
+        bytes += need;
+        return ref;
+    }
+
+    String get(long ref) {
+        MemorySegment block = blocks[(int) (ref >>> 32)];
+        long offset = ref & 0xFFFF_FFFFL;
+        byte[] utf8 = new byte[block.get(ValueLayout.JAVA_INT_UNALIGNED, offset)];
+        MemorySegment.copy(block, ValueLayout.JAVA_BYTE, offset + Integer.BYTES, utf8, 0, utf8.length);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    // Encoded length, without decoding the string.
+    int length(long ref) {
+        return blocks[(int) (ref >>> 32)].get(ValueLayout.JAVA_INT_UNALIGNED, ref & 0xFFFF_FFFFL);
+    }
+
+    long bytes() {
+        return bytes;
+    }
+}
+
+// ========== OFF-HEAP CATALOG ==========
+// Book records outside the Java heap, for catalogs large enough that millions of Book objects
+// and their Strings make GC pauses the problem. Records live in chunks of 64K with one native
+// segment per chunk, laid out column by column (price, stock, title and author references, genre,
+// format), so a scan walks contiguous primitive columns in a plain counted loop. Titles and
+// authors sit in a UTF-8 arena; the title lookup table is an open-addressing hash table in
+// native memory too. The heap holds only a few hundred segment handles however large the
+// catalog. Books handed out are OffHeapBook views that read and write the record in place.
+//
+// One writer at a time appends (add is synchronized); lookups, scans and stock changes are
+// lock-free. Memory is released when the catalog becomes unreachable.
+class OffHeapCatalog {
+    private static final int CHUNK_BITS = 16;
+    private static final int CHUNK = 1 << CHUNK_BITS;
+    private static final long PRICE = 0;
+    private static final long QUANTITY = PRICE + (long) Double.BYTES * CHUNK;
+    private static final long TITLE = QUANTITY + (long) Integer.BYTES * CHUNK;
+    private static final long AUTHOR = TITLE + (long) Long.BYTES * CHUNK;
+    private static final long GENRE = AUTHOR + (long) Long.BYTES * CHUNK;
+    private static final long FORMAT = GENRE + CHUNK;
+    private static final long CHUNK_BYTES = FORMAT + CHUNK;
+
+    private static final VarHandle INT = ValueLayout.JAVA_INT.varHandle();
+    private static final VarHandle LONG = ValueLayout.JAVA_LONG.varHandle();
+    private static final VarHandle DOUBLE = ValueLayout.JAVA_DOUBLE.varHandle();
+    private static final BookGenre[] GENRES = BookGenre.values();
+    private static final BookFormat[] FORMATS = BookFormat.values();
+
+    private final Arena arena = Arena.ofAuto();
+    private final Utf8Arena strings = new Utf8Arena(arena);
+    private final CatalogChangeStream changes;
+    private volatile MemorySegment[] chunks = new MemorySegment[0];
+    private volatile int size;
+    // Slots of (title hash << 32 | record + 1); zero is empty. Replaced whole when it grows.
+    private volatile MemorySegment table;
+    private int tableSlots = 1 << 10;
+    private int titled;
+
+    OffHeapCatalog(CatalogChangeStream changes) {
+        this.changes = changes;
+        this.table = arena.allocate((long) Long.BYTES * tableSlots, Long.BYTES);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Native bytes in use: record chunks, strings and the title table.
+    public long nativeBytes() {
+        return chunks.length * CHUNK_BYTES + strings.bytes() + table.byteSize();
+    }
+
+    // ---------- writing ----------
+
+    // Copies the book in and returns the view of its record. A title already in the catalog is
+    // stored but not indexed again, so lookups keep finding the first one, as CatalogIndex does.
+    public synchronized OffHeapBook add(Book book) {
+        int index = size;
+        if ((index & (CHUNK - 1)) == 0) {
+            MemorySegment[] grown = Arrays.copyOf(chunks, chunks.length + 1);
+            grown[grown.length - 1] = arena.allocate(CHUNK_BYTES, Long.BYTES);
+            chunks = grown;
+        }
+        MemorySegment chunk = chunks[index >>> CHUNK_BITS];
+        long i = index & (CHUNK - 1);
+        chunk.set(ValueLayout.JAVA_DOUBLE, PRICE + i * Double.BYTES, book.getPrice());
+        chunk.set(ValueLayout.JAVA_INT, QUANTITY + i * Integer.BYTES, book.getQuantity());
+        chunk.set(ValueLayout.JAVA_LONG, TITLE + i * Long.BYTES, strings.put(book.getTitle()));
+        chunk.set(ValueLayout.JAVA_LONG, AUTHOR + i * Long.BYTES, strings.put(book.getAuthor()));
+        chunk.set(ValueLayout.JAVA_BYTE, GENRE + i, (byte) book.getMetadata().genre().ordinal());
+        chunk.set(ValueLayout.JAVA_BYTE, FORMAT + i, (byte) book.getFormat().ordinal());
+        String key = CatalogIndex.key(book.getTitle());
+        if (find(key, table, tableSlots) < 0) {
+            if (++titled * 2 > tableSlots) rehash();
+            insert(table, tableSlots, StoreSnapshot.titleHash(key), index);
+        }
+        size = index + 1;
+        return new OffHeapBook(this, index);
+    }
+
+    private void rehash() {
+        int slots = tableSlots * 2;
+        MemorySegment grown = arena.allocate((long) Long.BYTES * slots, Long.BYTES);
+        for (long s = 0; s < tableSlots; s++) {
+            long entry = table.get(ValueLayout.JAVA_LONG, s * Long.BYTES);
+            if (entry != 0) insert(grown, slots, (int) (entry >>> 32), (int) entry - 1);
+        }
+        tableSlots = slots;
+        table = grown;
+    }
+
+    private static void insert(MemorySegment table, int slots, int hash, int index) {
+        int slot = hash & (slots - 1);
+        while (table.get(ValueLayout.JAVA_LONG, (long) slot * Long.BYTES) != 0) slot = (slot + 1) & (slots - 1);
+        LONG.setRelease(table, (long) slot * Long.BYTES, (long) hash << 32 | (index + 1L));
+    }
+
+    // ---------- lookups ----------
+
+    // The first book with this title, in any case, or null.
+    public OffHeapBook find(String title) {
+        MemorySegment t = table;
+        int index = find(CatalogIndex.key(title), t, (int) (t.byteSize() / Long.BYTES));
+        return index < 0 ? null : new OffHeapBook(this, index);
+    }
+
+    private int find(String key, MemorySegment table, int slots) {
+        int hash = StoreSnapshot.titleHash(key);
+        for (int slot = hash & (slots - 1); ; slot = (slot + 1) & (slots - 1)) {
+            long entry = (long) LONG.getAcquire(table, (long) slot * Long.BYTES);
+            if (entry == 0) return -1;
+            int index = (int) entry - 1;
+            if ((int) (entry >>> 32) == hash && CatalogIndex.key(title(index)).equals(key)) return index;
+        }
+    }
+
+    public OffHeapBook get(int index) {
+        Objects.checkIndex(index, size);
+        return new OffHeapBook(this, index);
+    }
+
+    // Every record in storage order, as views.
+    public Collection<Book> books() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<Book> iterator() {
+                int end = size;
+                return new Iterator<>() {
+                    private int next;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < end;
+                    }
+
+                    @Override
+                    public Book next() {
+                        if (next >= end) throw new NoSuchElementException();
+                        return new OffHeapBook(OffHeapCatalog.this, next++);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    // Case-insensitive; compares encoded lengths first so most records are never decoded.
+    public List<Book> findByAuthor(String author) {
+        int length = author.getBytes(StandardCharsets.UTF_8).length;
+        List<Book> matches = new ArrayList<>();
+        int end = size;
+        for (int index = 0; index < end; index++) {
+            long ref = chunk(index).get(ValueLayout.JAVA_LONG, AUTHOR + slot(index) * Long.BYTES);
+            if (strings.length(ref) == length && strings.get(ref).equalsIgnoreCase(author)) {
+                matches.add(new OffHeapBook(this, index));
+            }
+        }
+        return matches;
+    }
+
+    public List<Book> findByGenre(Class<? extends Book> type) {
+        int genre = genreOrdinal(type);
+        List<Book> matches = new ArrayList<>();
+        if (genre < 0) return matches;
+        int end = size;
+        for (int index = 0; index < end; index++) {
+            if (chunk(index).get(ValueLayout.JAVA_BYTE, GENRE + slot(index)) == genre) {
+                matches.add(new OffHeapBook(this, index));
+            }
+        }
+        return matches;
+    }
+
+    private static int genreOrdinal(Class<? extends Book> type) {
+        for (BookGenre g : GENRES) {
+            if (g.bookType() == type) return g.ordinal();
+        }
+        return -1;
+    }
+
+    // Books whose title or author contains every word of the query, ignoring case; title matches
+    // rank first. A linear scan, with no typo tolerance: there is no search index off the heap.
+    public List<SearchHit> search(String query, int limit) {
+        String[] words = query.strip().toLowerCase(Locale.ROOT).split("\\s+");
+        if (words[0].isEmpty() || limit <= 0) return List.of();
+        List<SearchHit> hits = new ArrayList<>();
+        int end = size;
+        for (int index = 0; index < end; index++) {
+            String title = title(index).toLowerCase(Locale.ROOT);
+            String author = author(index).toLowerCase(Locale.ROOT);
+            double score = 0;
+            for (String word : words) {
+                if (title.contains(word)) score += 2;
+                else if (author.contains(word)) score += 1;
+                else { score = 0; break; }
+            }
+            if (score > 0) hits.add(new SearchHit(new OffHeapBook(this, index), score));
+        }
+        hits.sort(Comparator.comparingDouble(SearchHit::score).reversed());
+        return hits.size() > limit ? new ArrayList<>(hits.subList(0, limit)) : hits;
+    }
+
+    // Titles starting with the prefix, ignoring case, in storage order.
+    public List<String> titlesStartingWith(String prefix, int limit) {
+        String key = CatalogIndex.key(prefix.strip());
+        List<String> result = new ArrayList<>();
+        if (key.isEmpty()) return result;
+        int end = size;
+        for (int index = 0; index < end && result.size() < limit; index++) {
+            String title = title(index);
+            if (CatalogIndex.key(title).startsWith(key)) result.add(title);
+        }
+        return result;
+    }
+
+    // Storage order with the query's filters; the query's sort is not applied, since the store
+    // keeps no sorted index. The cursor is the next record to look at.
+    public Page<Book> page(BookQuery query, String cursor, int limit) {
+        int from = cursor == null ? 0 : decodeCursor(cursor);
+        int genre = query.genre() == null ? -1 : genreOrdinal(query.genre());
+        double min = query.minPrice() == null ? Double.NEGATIVE_INFINITY : query.minPrice();
+        double max = query.maxPrice() == null ? Double.POSITIVE_INFINITY : query.maxPrice();
+        List<Book> items = new ArrayList<>(Math.min(limit, 256));
+        int end = size;
+        for (int index = from; index < end; index++) {
+            MemorySegment chunk = chunk(index);
+            long i = slot(index);
+            if (genre >= 0 && chunk.get(ValueLayout.JAVA_BYTE, GENRE + i) != genre) continue;
+            double price = chunk.get(ValueLayout.JAVA_DOUBLE, PRICE + i * Double.BYTES);
+            if (price < min || price > max) continue;
+            if (query.author() != null && !author(index).equalsIgnoreCase(query.author())) continue;
+            if (items.size() == limit) return new Page<>(items, encodeCursor(index));
+            items.add(new OffHeapBook(this, index));
+        }
+        return new Page<>(items, null);
+    }
+
+    private static String encodeCursor(int index) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(("@" + index).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static int decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!raw.startsWith("@")) throw new IllegalArgumentException();
+            return Integer.parseInt(raw.substring(1));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    // ---------- scans ----------
+    // One counted loop per chunk over primitive columns, with no per-record branches or
+    // allocation, so the JIT can unroll and vectorize it.
+
+    // Copies in stock across the catalog.
+    public long stockTotal() {
+        long total = 0;
+        MemorySegment[] all = chunks;
+        int end = size;
+        for (int c = 0; c < all.length; c++) {
+            MemorySegment chunk = all[c];
+            int n = Math.min(CHUNK, end - (c << CHUNK_BITS));
+            for (long i = 0; i < n; i++) total += chunk.get(ValueLayout.JAVA_INT, QUANTITY + i * Integer.BYTES);
+        }
+        return total;
+    }
+
+    // Titles with no copies in stock.
+    public int outOfStock() {
+        int count = 0;
+        MemorySegment[] all = chunks;
+        int end = size;
+        for (int c = 0; c < all.length; c++) {
+            MemorySegment chunk = all[c];
+            int n = Math.min(CHUNK, end - (c << CHUNK_BITS));
+            for (long i = 0; i < n; i++) {
+                count += chunk.get(ValueLayout.JAVA_INT, QUANTITY + i * Integer.BYTES) == 0 ? 1 : 0;
+            }
+        }
+        return count;
+    }
+
+    // Titles per genre priced within [min, max], indexed by BookGenre ordinal.
+    public int[] countByGenre(double min, double max) {
+        int[] counts = new int[GENRES.length];
+        MemorySegment[] all = chunks;
+        int end = size;
+        for (int c = 0; c < all.length; c++) {
+            MemorySegment chunk = all[c];
+            int n = Math.min(CHUNK, end - (c << CHUNK_BITS));
+            for (long i = 0; i < n; i++) {
+                double price = chunk.get(ValueLayout.JAVA_DOUBLE, PRICE + i * Double.BYTES);
+                int inRange = price >= min && price <= max ? 1 : 0;
+                counts[chunk.get(ValueLayout.JAVA_BYTE, GENRE + i)] += inRange;
+            }
+        }
+        return counts;
+    }
+
+    // ---------- record access, for OffHeapBook ----------
+
+    CatalogChangeStream changes() {
+        return changes;
+    }
+
+    private MemorySegment chunk(int index) {
+        return chunks[index >>> CHUNK_BITS];
+    }
+
+    private static long slot(int index) {
+        return index & (CHUNK - 1);
+    }
+
+    String title(int index) {
+        return strings.get(chunk(index).get(ValueLayout.JAVA_LONG, TITLE + slot(index) * Long.BYTES));
+    }
+
+    String author(int index) {
+        return strings.get(chunk(index).get(ValueLayout.JAVA_LONG, AUTHOR + slot(index) * Long.BYTES));
+    }
+
+    BookGenre genre(int index) {
+        return GENRES[chunk(index).get(ValueLayout.JAVA_BYTE, GENRE + slot(index))];
+    }
+
+    BookFormat format(int index) {
+        return FORMATS[chunk(index).get(ValueLayout.JAVA_BYTE, FORMAT + slot(index))];
+    }
+
+    double price(int index) {
+        return (double) DOUBLE.getVolatile(chunk(index), PRICE + slot(index) * Double.BYTES);
+    }
+
+    // Returns the previous price.
+    double swapPrice(int index, double price) {
+        return (double) DOUBLE.getAndSet(chunk(index), PRICE + slot(index) * Double.BYTES, price);
+    }
+
+    int quantity(int index) {
+        return (int) INT.getVolatile(chunk(index), QUANTITY + slot(index) * Integer.BYTES);
+    }
+
+    // Returns the previous quantity.
+    int swapQuantity(int index, int quantity) {
+        return (int) INT.getAndSet(chunk(index), QUANTITY + slot(index) * Integer.BYTES, quantity);
+    }
+
+    boolean casQuantity(int index, int expected, int quantity) {
+        return INT.compareAndSet(chunk(index), QUANTITY + slot(index) * Integer.BYTES, expected, quantity);
+    }
+
+    // Returns the previous quantity.
+    int addQuantity(int index, int delta) {
+        return (int) INT.getAndAdd(chunk(index), QUANTITY + slot(index) * Integer.BYTES, delta);
+    }
+}
+
+// ========== OFF-HEAP BOOK ==========
+// Flyweight view of one OffHeapCatalog record: a catalog reference and a record number, nothing
+// else. Getters read the record and stock or price changes write it, so every view of a record
+// sees the same book; views of one record are equal. Metadata is decoded on first use.
+class OffHeapBook extends Book {
+    private final OffHeapCatalog catalog;
+    private final int index;
+    private BookMetadata decoded;
+
+    OffHeapBook(OffHeapCatalog catalog, int index) {
+        super(null, 0);
+        this.catalog = catalog;
+        this.index = index;
+        publishChangesTo(catalog.changes());
+    }
+
+    @Override
+    public BookMetadata getMetadata() {
+        BookMetadata m = decoded;
+        if (m == null) {
+            m = new BookMetadata(catalog.title(index), catalog.author(index), catalog.genre(index), catalog.format(index));
+            decoded = m;
+        }
+        return m;
+    }
+
+    @Override public String getTitle() { return getMetadata().title(); }
+    @Override public String getAuthor() { return getMetadata().author(); }
+    @Override public BookFormat getFormat() { return catalog.format(index); }
+    @Override public String getGenre() { return catalog.genre(index).key(); }
+    @Override public double getPrice() { return catalog.price(index); }
+    @Override public int getQuantity() { return catalog.quantity(index); }
+
+    @Override
+    public void setPrice(double price) {
+        priceChanged(catalog.swapPrice(index, price), price);
+    }
+
+    @Override
+    public void setQuantity(int quantity) {
+        stockChanged(catalog.swapQuantity(index, quantity), quantity);
+    }
+
+    @Override
+    public boolean tryReserve(int qty) {
+        while (true) {
+            int current = catalog.quantity(index);
+            if (current < qty) return false;
+            if (catalog.casQuantity(index, current, current - qty)) {
+                stockChanged(current, current - qty);
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public void release(int qty) {
+        int before = catalog.addQuantity(index, qty);
+        stockChanged(before, before + qty);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof OffHeapBook other && other.catalog == catalog && other.index == index;
+    }
+
+    @Override
+    public int hashCode() {
+        return index;
+    }
+}
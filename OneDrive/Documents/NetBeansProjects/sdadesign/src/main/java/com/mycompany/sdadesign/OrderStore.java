@@ -0,0 +1,673 @@
+package com.mycompany.sdadesign;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+// ========== ORDER STATUS ==========
+// Order lifecycle: pending -> paid -> shipped -> delivered, with cancellation possible until the
+// order ships. Statuses never repeat, so a status reached once is never reached again.
+enum OrderStatus {
+    PENDING("Pending"), PAID("Paid"), SHIPPED("Shipped"), DELIVERED("Delivered"), CANCELLED("Cancelled");
+
+    private final String label;
+
+    OrderStatus(String label) {
+        this.label = label;
+    }
+
+    public String label() {
+        return label;
+    }
+
+    public boolean isFinal() {
+        return this == DELIVERED || this == CANCELLED;
+    }
+
+    // One step of the lifecycle.
+    public boolean canBecome(OrderStatus next) {
+        return switch (this) {
+            case PENDING -> next == PAID || next == CANCELLED;
+            case PAID -> next == SHIPPED || next == CANCELLED;
+            case SHIPPED -> next == DELIVERED;
+            case DELIVERED, CANCELLED -> false;
+        };
+    }
+
+    // Reachable in any number of steps.
+    public boolean leadsTo(OrderStatus later) {
+        if (canBecome(later)) return true;
+        for (OrderStatus next : values()) {
+            if (canBecome(next) && next.leadsTo(later)) return true;
+        }
+        return false;
+    }
+
+    // Accepts labels and names; "PLACED" is what paid orders were called in older journals.
+    static OrderStatus parse(String text) {
+        if ("PLACED".equalsIgnoreCase(text)) return PAID;
+        for (OrderStatus s : values()) {
+            if (s.label.equalsIgnoreCase(text) || s.name().equalsIgnoreCase(text)) return s;
+        }
+        throw new IllegalArgumentException("Unknown order status: " + text);
+    }
+}
+
+// ========== STRING DICTIONARY ==========
+// Interns repeated strings (user names, titles) as dense int codes.
+class StringDictionary {
+    private final Map<String, Integer> codes = new ConcurrentHashMap<>();
+    private volatile String[] values = new String[64];
+    private int size;
+
+    public int code(String value) {
+        Integer code = codes.get(value);
+        return code != null ? code : add(value);
+    }
+
+    // -1 when the value was never coded.
+    public int find(String value) {
+        Integer code = codes.get(value);
+        return code != null ? code : -1;
+    }
+
+    private synchronized int add(String value) {
+        Integer code = codes.get(value);
+        if (code != null) return code;
+        String[] current = values;
+        if (size == current.length) current = values = Arrays.copyOf(current, size * 2);
+        current[size] = value;
+        codes.put(value, size);
+        return size++;
+    }
+
+    public String value(int code) {
+        return values[code];
+    }
+
+    public synchronized void clear() {
+        codes.clear();
+        values = new String[64];
+        size = 0;
+    }
+
+    synchronized void writeTo(SnapshotWriter out) throws IOException {
+        out.putInt(size);
+        for (int i = 0; i < size; i++) out.putString(values[i]);
+    }
+
+    // Codes come back in the order they were written, so stored rows keep pointing at the same values.
+    synchronized void readFrom(ByteBuffer in) {
+        clear();
+        for (int i = in.getInt(); i > 0; i--) add(StoreSnapshot.getString(in));
+    }
+}
+
+// ========== ORDER STORE ==========
+// Append-only columnar order log. Each order is one row across primitive columns: the UUID id as
+// two longs, epoch millis, dictionary codes for user and title, a status byte, price and quantity,
+// about 45 bytes per order. Order objects handed out are two-field views over a row.
+//
+// Writers append under the store lock; readers take no lock. A row's columns are written before
+// the size is published, and grown columns before either, so a reader that sees size n sees every
+// row below n.
+//
+// Status is the only mutable column. It lives in fixed-size chunks that are never copied, and
+// moves along the lifecycle by compare-and-set, so transitions take no lock and a column grow
+// cannot lose one. Lookups by id, user, time and status go through secondary indexes instead
+// of scanning the log.
+class OrderStore {
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int STATUS_CHUNK_BITS = 16;
+    private static final int STATUS_CHUNK = 1 << STATUS_CHUNK_BITS;
+    private static final VarHandle STATUS = MethodHandles.arrayElementVarHandle(byte[].class);
+
+    private static final class Columns {
+        final long[] idHigh, idLow, time;
+        final int[] user, title, quantity;
+        final double[] price;
+
+        Columns(int capacity) {
+            idHigh = new long[capacity];
+            idLow = new long[capacity];
+            time = new long[capacity];
+            user = new int[capacity];
+            title = new int[capacity];
+            quantity = new int[capacity];
+            price = new double[capacity];
+        }
+
+        Columns grow(int rows) {
+            Columns c = new Columns(idHigh.length * 2);
+            System.arraycopy(idHigh, 0, c.idHigh, 0, rows);
+            System.arraycopy(idLow, 0, c.idLow, 0, rows);
+            System.arraycopy(time, 0, c.time, 0, rows);
+            System.arraycopy(user, 0, c.user, 0, rows);
+            System.arraycopy(title, 0, c.title, 0, rows);
+            System.arraycopy(quantity, 0, c.quantity, 0, rows);
+            System.arraycopy(price, 0, c.price, 0, rows);
+            return c;
+        }
+    }
+
+    // A user's rows in append order. Appends happen under the store lock; the array is published
+    // before the count, so a reader that sees count n sees n rows.
+    private static final class RowList {
+        private volatile int[] rows = new int[4];
+        private volatile int count;
+
+        void add(int row) {
+            int[] r = rows;
+            if (count == r.length) rows = r = Arrays.copyOf(r, r.length * 2);
+            r[count] = row;
+            count = count + 1;
+        }
+    }
+
+    private static final OrderStatus[] STATUSES = OrderStatus.values();
+
+    private final StringDictionary users = new StringDictionary();
+    private final StringDictionary titles = new StringDictionary();
+    private final Map<OrderSort, SortedRows> indexes = new EnumMap<>(OrderSort.class);
+    private volatile Columns columns = new Columns(INITIAL_CAPACITY);
+    private volatile byte[][] statusChunks = new byte[1][STATUS_CHUNK];
+    private volatile int size;
+
+    // Secondary indexes, written under the store lock. idTable holds row + 1 per slot, hashed on
+    // the order id. The status sets may still hold a row that has moved on; reads skip and prune
+    // it, while statusCounts are exact.
+    private volatile int[] idTable = new int[2 * INITIAL_CAPACITY];
+    private volatile RowList[] userRows = new RowList[64];
+    private final ConcurrentSkipListMap<Long, int[]> byTime = new ConcurrentSkipListMap<>();
+    private final Map<OrderStatus, ConcurrentSkipListSet<Integer>> byStatus = new EnumMap<>(OrderStatus.class);
+    private final Map<OrderStatus, LongAdder> statusCounts = new EnumMap<>(OrderStatus.class);
+
+    public OrderStore() {
+        indexes.put(OrderSort.DATE, new SortedRows(this::compareByDate));
+        indexes.put(OrderSort.PRICE, new SortedRows(this::compareByPrice));
+        indexes.put(OrderSort.TITLE, new SortedRows(this::compareByTitle));
+        for (OrderStatus s : STATUSES) {
+            byStatus.put(s, new ConcurrentSkipListSet<>());
+            statusCounts.put(s, new LongAdder());
+        }
+    }
+
+    public synchronized Order append(Order order) {
+        int row = size;
+        Columns c = columns;
+        if (row == c.idHigh.length) columns = c = c.grow(row);
+        UUID id = UUID.fromString(order.getOrderId());
+        c.idHigh[row] = id.getMostSignificantBits();
+        c.idLow[row] = id.getLeastSignificantBits();
+        c.time[row] = order.getTimeMillis();
+        c.user[row] = users.code(order.getUser());
+        c.title[row] = titles.code(order.getTitle());
+        c.quantity[row] = order.getQuantity();
+        c.price[row] = order.getPrice();
+        OrderStatus status = OrderStatus.parse(order.getStatus());
+        if (row >> STATUS_CHUNK_BITS == statusChunks.length) addStatusChunk();
+        statusChunks[row >> STATUS_CHUNK_BITS][row & (STATUS_CHUNK - 1)] = (byte) status.ordinal();
+        index(row, status);
+        size = row + 1;
+        return new StoredOrder(this, row);
+    }
+
+    // Appends every order or, if any of them has a malformed id or status, none of them.
+    public synchronized void appendAll(Collection<? extends Order> batch) {
+        for (Order order : batch) {
+            UUID.fromString(order.getOrderId());
+            OrderStatus.parse(order.getStatus());
+        }
+        for (Order order : batch) append(order);
+    }
+
+    // The id index goes last: a row cannot be found, and so cannot change status, before it is
+    // in the status index.
+    private void index(int row, OrderStatus status) {
+        Columns c = columns;
+        byStatus.get(status).add(row);
+        statusCounts.get(status).increment();
+        int user = c.user[row];
+        RowList[] lists = userRows;
+        if (user >= lists.length) userRows = lists = Arrays.copyOf(lists, Math.max(lists.length * 2, user + 1));
+        if (lists[user] == null) lists[user] = new RowList();
+        lists[user].add(row);
+        byTime.merge(c.time[row], new int[] {row}, (rows, one) -> {
+            int[] merged = Arrays.copyOf(rows, rows.length + 1);
+            merged[rows.length] = one[0];
+            return merged;
+        });
+        int[] table = idTable;
+        if ((row + 1) * 2 > table.length) {
+            table = new int[table.length * 2];
+            for (int r = 0; r < row; r++) table[idSlot(table, c, r)] = r + 1;
+            idTable = table;
+        }
+        table[idSlot(table, c, row)] = row + 1;
+    }
+
+    private static int idSlot(int[] table, Columns c, int row) {
+        return probe(table, c, c.idHigh[row], c.idLow[row]);
+    }
+
+    // The slot holding this id, or the free slot where it would go.
+    private static int probe(int[] table, Columns c, long high, long low) {
+        int mask = table.length - 1;
+        long h = (high ^ low) * 0x9E3779B97F4A7C15L;
+        int i = (int) (h ^ h >>> 32) & mask;
+        while (table[i] != 0) {
+            int r = table[i] - 1;
+            if (c.idHigh[r] == high && c.idLow[r] == low) return i;
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    private void addStatusChunk() {
+        byte[][] chunks = Arrays.copyOf(statusChunks, statusChunks.length + 1);
+        chunks[chunks.length - 1] = new byte[STATUS_CHUNK];
+        statusChunks = chunks;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public Order get(int row) {
+        if (row < 0 || row >= size) throw new IndexOutOfBoundsException(row);
+        return new StoredOrder(this, row);
+    }
+
+    public synchronized void clear() {
+        size = 0;
+        columns = new Columns(INITIAL_CAPACITY);
+        statusChunks = new byte[1][STATUS_CHUNK];
+        users.clear();
+        titles.clear();
+        for (SortedRows index : indexes.values()) index.clear();
+        idTable = new int[2 * INITIAL_CAPACITY];
+        userRows = new RowList[64];
+        byTime.clear();
+        for (OrderStatus s : STATUSES) {
+            byStatus.get(s).clear();
+            statusCounts.get(s).reset();
+        }
+    }
+
+    // ---------- lookups ----------
+
+    // Null if no order has this id.
+    public Order find(String orderId) {
+        UUID id;
+        try {
+            id = UUID.fromString(orderId);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        int rows = size;
+        int[] table = idTable;
+        Columns c = columns;
+        int entry = table[probe(table, c, id.getMostSignificantBits(), id.getLeastSignificantBits())];
+        return entry == 0 || entry > rows ? null : new StoredOrder(this, entry - 1);
+    }
+
+    // Oldest first.
+    public List<Order> forUser(String user) {
+        int code = users.find(user);
+        RowList[] lists = userRows;
+        RowList list = code < 0 || code >= lists.length ? null : lists[code];
+        if (list == null) return List.of();
+        int n = list.count;
+        int[] rows = list.rows;
+        List<Order> result = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) result.add(new StoredOrder(this, rows[i]));
+        return result;
+    }
+
+    // Orders placed in [fromMillis, toMillis), oldest first.
+    public List<Order> between(long fromMillis, long toMillis) {
+        List<Order> result = new ArrayList<>();
+        if (fromMillis >= toMillis) return result;
+        int rows = size;
+        for (int[] atTime : byTime.subMap(fromMillis, true, toMillis, false).values()) {
+            for (int row : atTime) {
+                if (row < rows) result.add(new StoredOrder(this, row));
+            }
+        }
+        return result;
+    }
+
+    // In the order they were placed.
+    public List<Order> withStatus(OrderStatus status) {
+        List<Order> result = new ArrayList<>();
+        Iterator<Integer> rows = byStatus.get(status).iterator();
+        while (rows.hasNext()) {
+            int row = rows.next();
+            if (status(row) == status) {
+                result.add(new StoredOrder(this, row));
+            } else {
+                rows.remove(); // moved on, and statuses never come back
+            }
+        }
+        return result;
+    }
+
+    public long count(OrderStatus status) {
+        return statusCounts.get(status).sum();
+    }
+
+    // ---------- transitions ----------
+
+    // Moves the order one lifecycle step by compare-and-set. False if the order is no longer in
+    // a status that can become `next`, e.g. because another caller moved it first.
+    public boolean transition(Order order, OrderStatus next) {
+        int row = rowOf(order);
+        while (true) {
+            OrderStatus current = status(row);
+            if (!current.canBecome(next)) return false;
+            if (casStatus(row, current, next)) {
+                moved(row, current, next);
+                return true;
+            }
+        }
+    }
+
+    // Replays a journaled transition. Journal records of racing transitions can be written in
+    // either order; since statuses never repeat, applying only moves that lead forward ends on
+    // the same status the live store reached.
+    boolean restoreStatus(Order order, OrderStatus status) {
+        int row = rowOf(order);
+        while (true) {
+            OrderStatus current = status(row);
+            if (!current.leadsTo(status)) return false;
+            if (casStatus(row, current, status)) {
+                moved(row, current, status);
+                return true;
+            }
+        }
+    }
+
+    private int rowOf(Order order) {
+        if (!(order instanceof StoredOrder stored) || stored.store() != this) {
+            throw new IllegalArgumentException("Order is not in this store: " + order.getOrderId());
+        }
+        return stored.row();
+    }
+
+    private boolean casStatus(int row, OrderStatus expected, OrderStatus next) {
+        byte[] chunk = statusChunks[row >> STATUS_CHUNK_BITS];
+        return STATUS.compareAndSet(chunk, row & (STATUS_CHUNK - 1), (byte) expected.ordinal(), (byte) next.ordinal());
+    }
+
+    private void moved(int row, OrderStatus from, OrderStatus to) {
+        statusCounts.get(from).decrement();
+        statusCounts.get(to).increment();
+        byStatus.get(to).add(row);
+        byStatus.get(from).remove(row);
+    }
+
+    public Page<Order> page(OrderSort sort, String cursor, int limit, Predicate<? super Order> filter) {
+        return indexes.get(sort).page(cursor, limit, filter);
+    }
+
+    // Pages through one user's orders only, sorting just their rows instead of filtering the log.
+    public Page<Order> pageForUser(String user, OrderSort sort, String cursor, int limit, Predicate<? super Order> filter) {
+        int code = users.find(user);
+        RowList[] lists = userRows;
+        RowList list = code < 0 || code >= lists.length ? null : lists[code];
+        if (list == null) return new Page<>(List.of(), null);
+        int n = list.count;
+        int[] rows = Arrays.copyOf(list.rows, n);
+        SortedRows index = indexes.get(sort);
+        return index.page(new SortedRows.Snapshot(index.inOrder(rows) ? rows : index.sorted(rows), n), size, cursor, limit, filter);
+    }
+
+    // ---------- snapshots ----------
+    // Columns are written whole and read back with one bulk copy each; the sort indexes are not
+    // stored and catch up on their first page request as usual.
+
+    synchronized void writeTo(SnapshotWriter out) throws IOException {
+        int rows = size;
+        Columns c = columns;
+        users.writeTo(out);
+        titles.writeTo(out);
+        out.putInt(rows);
+        out.putLongs(c.idHigh, rows);
+        out.putLongs(c.idLow, rows);
+        out.putLongs(c.time, rows);
+        out.putInts(c.user, rows);
+        out.putInts(c.title, rows);
+        out.putInts(c.quantity, rows);
+        out.putDoubles(c.price, rows);
+        byte[][] chunks = statusChunks;
+        for (int from = 0; from < rows; from += STATUS_CHUNK) {
+            out.putBytes(chunks[from >> STATUS_CHUNK_BITS], Math.min(STATUS_CHUNK, rows - from));
+        }
+    }
+
+    synchronized void readFrom(ByteBuffer in) {
+        clear();
+        users.readFrom(in);
+        titles.readFrom(in);
+        int rows = in.getInt();
+        Columns c = new Columns(Math.max(INITIAL_CAPACITY, rows));
+        StoreSnapshot.getLongs(in, c.idHigh, rows);
+        StoreSnapshot.getLongs(in, c.idLow, rows);
+        StoreSnapshot.getLongs(in, c.time, rows);
+        StoreSnapshot.getInts(in, c.user, rows);
+        StoreSnapshot.getInts(in, c.title, rows);
+        StoreSnapshot.getInts(in, c.quantity, rows);
+        StoreSnapshot.getDoubles(in, c.price, rows);
+        columns = c;
+        for (int from = 0; from < rows; from += STATUS_CHUNK) {
+            if (from >> STATUS_CHUNK_BITS == statusChunks.length) addStatusChunk();
+            in.get(statusChunks[from >> STATUS_CHUNK_BITS], 0, Math.min(STATUS_CHUNK, rows - from));
+        }
+        for (int row = 0; row < rows; row++) index(row, status(row));
+        size = rows;
+    }
+
+    // ---------- column reads ----------
+
+    String orderId(int row) {
+        Columns c = columns;
+        return new UUID(c.idHigh[row], c.idLow[row]).toString();
+    }
+
+    long time(int row) { return columns.time[row]; }
+    String user(int row) { return users.value(columns.user[row]); }
+    String title(int row) { return titles.value(columns.title[row]); }
+    double price(int row) { return columns.price[row]; }
+    int quantity(int row) { return columns.quantity[row]; }
+    OrderStatus status(int row) {
+        byte[] chunk = statusChunks[row >> STATUS_CHUNK_BITS];
+        return STATUSES[(byte) STATUS.getAcquire(chunk, row & (STATUS_CHUNK - 1))];
+    }
+
+    private int compareByDate(int a, int b) {
+        Columns c = columns;
+        int cmp = Long.compare(c.time[a], c.time[b]);
+        return cmp != 0 ? cmp : Integer.compare(a, b);
+    }
+
+    private int compareByPrice(int a, int b) {
+        Columns c = columns;
+        int cmp = Double.compare(c.price[a], c.price[b]);
+        return cmp != 0 ? cmp : Integer.compare(a, b);
+    }
+
+    private int compareByTitle(int a, int b) {
+        Columns c = columns;
+        int cmp = c.title[a] == c.title[b] ? 0
+            : String.CASE_INSENSITIVE_ORDER.compare(titles.value(c.title[a]), titles.value(c.title[b]));
+        return cmp != 0 ? cmp : Integer.compare(a, b);
+    }
+
+    // ---------- sorted row indexes ----------
+
+    private interface RowComparator {
+        int compare(int a, int b);
+    }
+
+    // Row numbers in sort order, as a plain int[]. Rows appended since the last query are sorted
+    // and merged in when the next page is asked for; rows that already arrive in order (the usual
+    // case for dates) are simply appended. A cursor is the last row of the previous page, found
+    // again by binary search.
+    private final class SortedRows {
+        private record Snapshot(int[] rows, int count) {}
+
+        private final RowComparator order;
+        private int[] rows = new int[0];
+        private int count;
+
+        SortedRows(RowComparator order) {
+            this.order = order;
+        }
+
+        synchronized void clear() {
+            rows = new int[0];
+            count = 0;
+        }
+
+        private synchronized Snapshot catchUp() {
+            int total = size;
+            if (total > count) {
+                int[] fresh = new int[total - count];
+                for (int i = 0; i < fresh.length; i++) fresh[i] = count + i;
+                if (!inOrder(fresh)) fresh = sorted(fresh);
+                rows = count > 0 && order.compare(rows[count - 1], fresh[0]) > 0
+                    ? merge(rows, count, fresh)
+                    : append(rows, count, fresh);
+                count = total;
+            }
+            return new Snapshot(rows, count);
+        }
+
+        private boolean inOrder(int[] fresh) {
+            for (int i = 1; i < fresh.length; i++) {
+                if (order.compare(fresh[i - 1], fresh[i]) > 0) return false;
+            }
+            return true;
+        }
+
+        private int[] sorted(int[] fresh) {
+            Integer[] boxed = new Integer[fresh.length];
+            for (int i = 0; i < fresh.length; i++) boxed[i] = fresh[i];
+            Arrays.sort(boxed, order::compare);
+            for (int i = 0; i < fresh.length; i++) fresh[i] = boxed[i];
+            return fresh;
+        }
+
+        private int[] append(int[] current, int used, int[] fresh) {
+            int[] target = current.length >= used + fresh.length
+                ? current
+                : Arrays.copyOf(current, Math.max(used + fresh.length, current.length * 2));
+            System.arraycopy(fresh, 0, target, used, fresh.length);
+            return target;
+        }
+
+        private int[] merge(int[] current, int used, int[] fresh) {
+            int[] target = new int[Math.max(used + fresh.length, current.length)];
+            int i = 0, j = 0, k = 0;
+            while (i < used && j < fresh.length) {
+                target[k++] = order.compare(current[i], fresh[j]) <= 0 ? current[i++] : fresh[j++];
+            }
+            while (i < used) target[k++] = current[i++];
+            while (j < fresh.length) target[k++] = fresh[j++];
+            return target;
+        }
+
+        Page<Order> page(String cursor, int limit, Predicate<? super Order> filter) {
+            Snapshot snapshot = catchUp();
+            return page(snapshot, snapshot.count(), cursor, limit, filter);
+        }
+
+        // rows is any sorted subset of the store's rows; cursors may name any row below total.
+        Page<Order> page(Snapshot snapshot, int total, String cursor, int limit, Predicate<? super Order> filter) {
+            int start = cursor == null ? 0 : positionAfter(snapshot, decode(cursor, total));
+            List<Order> items = new ArrayList<>(Math.min(limit, 256));
+            int last = -1;
+            for (int i = start; i < snapshot.count(); i++) {
+                Order o = new StoredOrder(OrderStore.this, snapshot.rows()[i]);
+                if (!filter.test(o)) continue;
+                if (items.size() == limit) return new Page<>(items, encode(last));
+                items.add(o);
+                last = snapshot.rows()[i];
+            }
+            return new Page<>(items, null);
+        }
+
+        private int positionAfter(Snapshot snapshot, int row) {
+            int lo = 0, hi = snapshot.count() - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                int cmp = order.compare(snapshot.rows()[mid], row);
+                if (cmp == 0) return mid + 1;
+                if (cmp < 0) lo = mid + 1; else hi = mid - 1;
+            }
+            return lo;
+        }
+    }
+
+    private static String encode(int row) {
+        return Base64.getUrlEncoder().withoutPadding()
+            .encodeToString(Integer.toString(row).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static int decode(String cursor, int count) {
+        try {
+            int row = Integer.parseInt(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+            if (row < 0 || row >= count) throw new IllegalArgumentException();
+            return row;
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
+
+// ========== STORED ORDER ==========
+// An order read through from its OrderStore row; holds no order data itself.
+final class StoredOrder extends Order {
+    private final OrderStore store;
+    private final int row;
+
+    StoredOrder(OrderStore store, int row) {
+        this.store = store;
+        this.row = row;
+    }
+
+    public String getOrderId() { return store.orderId(row); }
+    public String getUser() { return store.user(row); }
+    public Date getDate() { return new Date(store.time(row)); }
+    public long getTimeMillis() { return store.time(row); }
+    public double getPrice() { return store.price(row); }
+    public int getQuantity() { return store.quantity(row); }
+    public String getStatus() { return store.status(row).label(); }
+    public OrderStatus getOrderStatus() { return store.status(row); }
+    public String getTitle() { return store.title(row); }
+
+    OrderStore store() { return store; }
+    int row() { return row; }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof StoredOrder o && o.store == store && o.row == row;
+    }
+
+    @Override
+    public int hashCode() {
+        return System.identityHashCode(store) * 31 + row;
+    }
+}
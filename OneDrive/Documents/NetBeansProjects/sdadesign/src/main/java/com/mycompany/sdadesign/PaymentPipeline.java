@@ -0,0 +1,250 @@
+package com.mycompany.sdadesign;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+// ========== PAYMENT REQUEST ==========
+// idempotencyKey is null when the caller supplied none.
+record PaymentRequest(String idempotencyKey, String username, double amount) {}
+
+// A strategy whose gateway settles a whole batch in one call; the batch succeeds or fails as a unit.
+interface BatchPaymentStrategy extends PaymentStrategy {
+    void payAll(List<PaymentRequest> batch);
+}
+
+// ========== PAYMENT PIPELINE ==========
+// Runs charges off the caller's thread, one lane per strategy instance, so two strategies of the
+// same type with different settings are never charged through each other. A lane's pump waits for
+// a free in-flight slot, then takes everything queued so far (up to maxBatch) as one batch, so the
+// busier the lane the fewer gateway round trips per charge. A lane left idle retires, so callers
+// creating a strategy per payment do not leave a pump behind for each one.
+class PaymentPipeline {
+    private static final long LANE_IDLE_MILLIS = 30_000;
+
+    private record Charge(PaymentRequest request, PaymentStrategy strategy, CompletableFuture<Void> done) {}
+
+    private final int maxBatch;
+    private final int maxInFlight;
+    // Identity-keyed: strategies do not override equals, so callers share one instance per
+    // method to batch together (see StoreHttpServer and the console's CARD/PAYPAL/CRYPTO).
+    private final Map<PaymentStrategy, BlockingQueue<Charge>> lanes = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final LongAdder charges = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    public PaymentPipeline(int maxBatch, int maxInFlight) {
+        this.maxBatch = maxBatch;
+        this.maxInFlight = maxInFlight;
+    }
+
+    public CompletableFuture<Void> charge(PaymentStrategy strategy, PaymentRequest request) {
+        Charge charge = new Charge(request, strategy, new CompletableFuture<>());
+        // Enqueued inside compute so a retiring pump cannot drop the lane between lookup and add.
+        lanes.compute(strategy, (s, queue) -> {
+            if (queue == null) queue = startLane(s);
+            queue.add(charge);
+            return queue;
+        });
+        return charge.done();
+    }
+
+    public long getCharges() { return charges.sum(); }
+    public long getBatches() { return batches.sum(); }
+    public long getFailures() { return failures.sum(); }
+
+    public long getQueueDepth() {
+        long depth = 0;
+        for (BlockingQueue<Charge> lane : lanes.values()) depth += lane.size();
+        return depth;
+    }
+
+    private BlockingQueue<Charge> startLane(PaymentStrategy strategy) {
+        BlockingQueue<Charge> queue = new LinkedBlockingQueue<>();
+        Thread.ofVirtual().name("payments-" + strategy.getClass().getSimpleName()).start(() -> pump(strategy, queue));
+        return queue;
+    }
+
+    private void pump(PaymentStrategy strategy, BlockingQueue<Charge> queue) {
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        while (true) {
+            try {
+                inFlight.acquire();
+                Charge first = queue.poll(LANE_IDLE_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    inFlight.release();
+                    // Retire only when nothing is queued or in flight; charge() enqueues under the same bin lock.
+                    if (lanes.computeIfPresent(strategy, (s, q) ->
+                            q == queue && q.isEmpty() && inFlight.availablePermits() == maxInFlight ? null : q) != queue) {
+                        return;
+                    }
+                    continue;
+                }
+                List<Charge> batch = new ArrayList<>();
+                batch.add(first);
+                queue.drainTo(batch, maxBatch - 1);
+                executor.execute(() -> {
+                    try {
+                        process(batch);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void process(List<Charge> batch) {
+        batches.increment();
+        if (batch.get(0).strategy() instanceof BatchPaymentStrategy gateway) {
+            List<PaymentRequest> requests = new ArrayList<>(batch.size());
+            for (Charge c : batch) requests.add(c.request());
+            try {
+                gateway.payAll(requests);
+                for (Charge c : batch) succeed(c);
+            } catch (RuntimeException e) {
+                for (Charge c : batch) fail(c, e);
+            }
+            return;
+        }
+        PaymentStrategy strategy = batch.get(0).strategy();
+        for (Charge c : batch) {
+            try {
+                strategy.pay(c.request().username(), c.request().amount());
+                succeed(c);
+            } catch (RuntimeException e) {
+                fail(c, e);
+            }
+        }
+    }
+
+    private void succeed(Charge c) {
+        charges.increment();
+        c.done().complete(null);
+    }
+
+    private void fail(Charge c, RuntimeException e) {
+        failures.increment();
+        c.done().completeExceptionally(e);
+    }
+}
+
+// ========== IDEMPOTENCY KEYS ==========
+// Remembers keyed operations for a retention window. The first caller with a key runs the
+// operation; callers repeating the key get the same future back instead of running it again.
+// A failed operation forgets its key, so the caller can retry it.
+class IdempotencyKeys<T> {
+    private record Expiry(String key, CompletableFuture<?> result, long atMillis) {}
+
+    private final Map<String, CompletableFuture<T>> results = new ConcurrentHashMap<>();
+    // Retention is fixed, so keys expire in the order they were added.
+    private final Queue<Expiry> expiries = new ConcurrentLinkedQueue<>();
+    private final long retentionMillis;
+
+    public IdempotencyKeys(Duration retention) {
+        this.retentionMillis = retention.toMillis();
+    }
+
+    public CompletableFuture<T> run(String key, Supplier<CompletableFuture<T>> operation) {
+        long now = System.currentTimeMillis();
+        purgeExpired(now);
+        CompletableFuture<T> result = new CompletableFuture<>();
+        CompletableFuture<T> existing = results.putIfAbsent(key, result);
+        if (existing != null) return existing;
+        expiries.add(new Expiry(key, result, now + retentionMillis));
+
+        CompletableFuture<T> attempt;
+        try {
+            attempt = operation.get();
+        } catch (RuntimeException e) {
+            attempt = CompletableFuture.failedFuture(e);
+        }
+        attempt.whenComplete((value, failure) -> {
+            if (failure != null) {
+                results.remove(key, result);
+                result.completeExceptionally(failure);
+            } else {
+                result.complete(value);
+            }
+        });
+        return result;
+    }
+
+    public int size() {
+        return results.size();
+    }
+
+    public void clear() {
+        results.clear();
+        expiries.clear();
+    }
+
+    private void purgeExpired(long now) {
+        Expiry head;
+        while ((head = expiries.peek()) != null && head.atMillis() <= now) {
+            if (expiries.remove(head)) results.remove(head.key(), head.result());
+        }
+    }
+}
+
+// ========== STUB PAYMENT GATEWAY ==========
+// Local stand-in for a remote processor. Every call costs one round trip of the configured latency
+// and at most `connections` calls run at once; a batch is a single call.
+class StubPaymentGateway implements BatchPaymentStrategy {
+    private final Duration latency;
+    private final Semaphore connections;
+    private final LongAdder roundTrips = new LongAdder();
+    private final LongAdder charged = new LongAdder();
+
+    public StubPaymentGateway(Duration latency, int connections) {
+        this.latency = latency;
+        this.connections = new Semaphore(connections);
+    }
+
+    @Override
+    public void pay(String username, double amount) {
+        roundTrip(1);
+    }
+
+    @Override
+    public void payAll(List<PaymentRequest> batch) {
+        roundTrip(batch.size());
+    }
+
+    @Override
+    public String getMethodName() {
+        return "Stub Gateway";
+    }
+
+    public long getRoundTrips() { return roundTrips.sum(); }
+    public long getCharged() { return charged.sum(); }
+
+    private void roundTrip(int count) {
+        connections.acquireUninterruptibly();
+        try {
+            Thread.sleep(latency);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Payment interrupted");
+        } finally {
+            connections.release();
+        }
+        roundTrips.increment();
+        charged.add(count);
+    }
+}
@@ -0,0 +1,308 @@
+package com.mycompany.sdadesign;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+// ========== INT COUNTER MAP ==========
+// Open-addressing int -> int map with linear probing, for non-negative keys. No boxing: a
+// co-purchase row costs two int slots per entry instead of a HashMap node and two Integers.
+class IntCounterMap {
+    private static final int FREE = -1;
+
+    private int[] keys;
+    private int[] counts;
+    private int size;
+
+    IntCounterMap(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(4, expected * 2 - 1)) << 1;
+        keys = new int[capacity];
+        counts = new int[capacity];
+        Arrays.fill(keys, FREE);
+    }
+
+    int add(int key, int delta) {
+        int slot = slot(key);
+        if (keys[slot] == FREE) {
+            keys[slot] = key;
+            if (++size * 4 > keys.length * 3) {
+                grow();
+                slot = slot(key);
+            }
+        }
+        return counts[slot] += delta;
+    }
+
+    int get(int key) {
+        int slot = slot(key);
+        return keys[slot] == FREE ? 0 : counts[slot];
+    }
+
+    boolean contains(int key) {
+        return keys[slot(key)] != FREE;
+    }
+
+    int size() {
+        return size;
+    }
+
+    // Visits every entry; the order is unspecified.
+    void forEach(IntEntryVisitor visitor) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != FREE) visitor.visit(keys[i], counts[i]);
+        }
+    }
+
+    private int slot(int key) {
+        int mask = keys.length - 1;
+        int h = key * 0x9E3779B9;
+        int i = (h ^ h >>> 16) & mask;
+        while (keys[i] != FREE && keys[i] != key) i = (i + 1) & mask;
+        return i;
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        int[] oldCounts = counts;
+        keys = new int[oldKeys.length * 2];
+        counts = new int[oldKeys.length * 2];
+        Arrays.fill(keys, FREE);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE) {
+                int slot = slot(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                counts[slot] = oldCounts[i];
+            }
+        }
+    }
+
+    @FunctionalInterface
+    interface IntEntryVisitor {
+        void visit(int key, int count);
+    }
+}
+
+// ========== RECOMMENDATIONS ==========
+// "Customers who bought this also bought". Each logged order adds its title to the buyer's
+// history and bumps the co-purchase count between that title and the buyer's recent titles.
+// A pair counts once per user however many copies they buy. Rows are scored with cosine
+// similarity, co(a, b) / sqrt(buyers(a) * buyers(b)), so bestsellers do not crowd out
+// everything else.
+//
+// Neither orders nor queries touch the matrix. record() only queues the purchase; a background
+// pass folds the queued purchases into the matrix, recomputes the top titles of every row they
+// changed and publishes them in an immutable cache, so checkout never waits on it, a lookup is an
+// array read and a per-user or per-cart lookup merges a few cached rows. A purchase therefore
+// shows up in recommendations, and stops being recommended back to its buyer, one refresh later.
+class Recommendations {
+    static final int CACHED_PER_TITLE = 20;
+    // Co-purchases are counted against at most this many of a user's most recent titles.
+    static final int RECENT_TITLES = 256;
+
+    // Written by the refresh pass, read by queries; both hold the history's monitor.
+    private static final class History {
+        final IntCounterMap owned = new IntCounterMap(8);
+        final int[] recent = new int[RECENT_TITLES];
+        int count;
+    }
+
+    private record Purchase(String user, int title) {}
+
+    private final StringDictionary titles = new StringDictionary();
+    private final Map<String, History> histories = new ConcurrentHashMap<>();
+    private final Queue<Purchase> purchases = new ConcurrentLinkedQueue<>();
+    // Taken only by refresh passes, clear() and getTitleCount(), never on the order path.
+    private final Object lock = new Object();
+    // Guarded by lock.
+    private IntCounterMap[] rows = new IntCounterMap[64];
+    private int[] buyers = new int[64];
+
+    private volatile int[][] cache = new int[0][];
+
+    public Recommendations(Duration refreshInterval) {
+        long nanos = refreshInterval.toNanos();
+        Thread refresher = new Thread(() -> {
+            while (true) {
+                LockSupport.parkNanos(nanos);
+                try {
+                    refresh();
+                } catch (RuntimeException e) {
+                    System.err.println("[Recommendations] Refresh failed: " + e.getMessage());
+                }
+            }
+        }, "recommendation-refresh");
+        refresher.setDaemon(true);
+        refresher.start();
+    }
+
+    public void record(String user, String title) {
+        purchases.add(new Purchase(user, titles.code(title)));
+    }
+
+    // ---------- queries ----------
+
+    // Titles most often bought together with this one, best first.
+    public List<String> forTitle(String title, int limit) {
+        int t = titles.find(title);
+        int[][] snapshot = cache;
+        if (t < 0 || t >= snapshot.length || snapshot[t] == null) return List.of();
+        int[] top = snapshot[t];
+        List<String> result = new ArrayList<>(Math.min(limit, top.length));
+        for (int i = 0; i < top.length && result.size() < limit; i++) result.add(titles.value(top[i]));
+        return result;
+    }
+
+    // Based on the user's recent purchases, leaving out anything they already bought.
+    public List<String> forUser(String user, int limit) {
+        return forCart(user, List.of(), limit);
+    }
+
+    // Based on the cart and the user's recent purchases, leaving out the cart and anything the
+    // user already bought.
+    public List<String> forCart(String user, Collection<String> cartTitles, int limit) {
+        int[] seeds;
+        History h = histories.get(user);
+        IntCounterMap exclude = new IntCounterMap(cartTitles.size() + 8);
+        List<Integer> cartCodes = new ArrayList<>(cartTitles.size());
+        for (String title : cartTitles) {
+            int t = titles.find(title);
+            if (t >= 0) {
+                cartCodes.add(t);
+                exclude.add(t, 1);
+            }
+        }
+        if (h == null) {
+            seeds = new int[cartCodes.size()];
+        } else {
+            synchronized (h) {
+                int recent = Math.min(h.count, RECENT_TITLES);
+                seeds = new int[cartCodes.size() + recent];
+                for (int i = 0; i < recent; i++) seeds[cartCodes.size() + i] = h.recent[i];
+                h.owned.forEach((t, copies) -> exclude.add(t, 1));
+            }
+        }
+        for (int i = 0; i < cartCodes.size(); i++) seeds[i] = cartCodes.get(i);
+        return merge(seeds, exclude, limit);
+    }
+
+    // Sums rank weights across the cached rows of the seed titles.
+    private List<String> merge(int[] seeds, IntCounterMap exclude, int limit) {
+        int[][] snapshot = cache;
+        IntCounterMap scores = new IntCounterMap(seeds.length * CACHED_PER_TITLE);
+        for (int seed : seeds) {
+            if (seed >= snapshot.length || snapshot[seed] == null) continue;
+            int[] top = snapshot[seed];
+            for (int rank = 0; rank < top.length; rank++) {
+                if (!exclude.contains(top[rank])) scores.add(top[rank], CACHED_PER_TITLE - rank);
+            }
+        }
+        // limit is small, so insertion into a fixed top list beats sorting every candidate.
+        int[] best = new int[Math.min(limit, scores.size())];
+        int[] bestScores = new int[best.length];
+        int[] filled = {0};
+        scores.forEach((t, score) -> {
+            int n = filled[0];
+            if (n == best.length && !ranksAbove(score, t, bestScores[n - 1], best[n - 1])) return;
+            int i = n == best.length ? n - 1 : n;
+            while (i > 0 && ranksAbove(score, t, bestScores[i - 1], best[i - 1])) {
+                best[i] = best[i - 1];
+                bestScores[i] = bestScores[i - 1];
+                i--;
+            }
+            best[i] = t;
+            bestScores[i] = score;
+            if (n < best.length) filled[0]++;
+        });
+        List<String> result = new ArrayList<>(best.length);
+        for (int t : best) result.add(titles.value(t));
+        return result;
+    }
+
+    // Higher score first, then title order so equal scores come out the same every time.
+    private boolean ranksAbove(int score, int t, int otherScore, int other) {
+        return score != otherScore ? score > otherScore : titles.value(t).compareTo(titles.value(other)) < 0;
+    }
+
+    // ---------- maintenance ----------
+
+    // Applies the purchases queued since the last refresh and recomputes the cached rows they
+    // changed; the refresher calls this, and callers that need their own writes visible at once
+    // may too.
+    public void refresh() {
+        synchronized (lock) {
+            BitSet changed = new BitSet();
+            Purchase p;
+            while ((p = purchases.poll()) != null) apply(p, changed);
+            if (changed.isEmpty()) return;
+            int[][] next = Arrays.copyOf(cache, rows.length);
+            for (int t = changed.nextSetBit(0); t >= 0; t = changed.nextSetBit(t + 1)) next[t] = topOf(t);
+            cache = next;
+        }
+    }
+
+    private void apply(Purchase p, BitSet changed) {
+        int t = p.title();
+        History h = histories.computeIfAbsent(p.user(), u -> new History());
+        synchronized (h) {
+            if (h.owned.add(t, 1) > 1) return; // pair counts are per user, not per copy
+            ensureCapacity(t);
+            buyers[t]++;
+            int n = Math.min(h.count, RECENT_TITLES);
+            for (int i = 0; i < n; i++) {
+                int other = h.recent[i];
+                row(t).add(other, 1);
+                row(other).add(t, 1);
+                changed.set(other);
+            }
+            changed.set(t);
+            h.recent[h.count++ % RECENT_TITLES] = t;
+        }
+    }
+
+    private int[] topOf(int t) {
+        IntCounterMap row = rows[t];
+        if (row == null) return new int[0];
+        PriorityQueue<double[]> best = new PriorityQueue<>(CACHED_PER_TITLE + 1, Comparator.comparingDouble(e -> e[1]));
+        double self = buyers[t];
+        row.forEach((other, co) -> {
+            best.add(new double[] {other, co / Math.sqrt(self * buyers[other])});
+            if (best.size() > CACHED_PER_TITLE) best.poll();
+        });
+        int[] top = new int[best.size()];
+        for (int i = top.length - 1; i >= 0; i--) top[i] = (int) best.poll()[0];
+        return top;
+    }
+
+    public void clear() {
+        synchronized (lock) {
+            purchases.clear();
+            histories.clear();
+            rows = new IntCounterMap[64];
+            buyers = new int[64];
+            cache = new int[0][];
+        }
+        titles.clear();
+    }
+
+    public int getTitleCount() {
+        synchronized (lock) {
+            int n = 0;
+            for (int b : buyers) if (b > 0) n++;
+            return n;
+        }
+    }
+
+    private void ensureCapacity(int t) {
+        if (t < rows.length) return;
+        int capacity = Math.max(rows.length * 2, t + 1);
+        rows = Arrays.copyOf(rows, capacity);
+        buyers = Arrays.copyOf(buyers, capacity);
+    }
+
+    private IntCounterMap row(int t) {
+        IntCounterMap row = rows[t];
+        return row != null ? row : (rows[t] = new IntCounterMap(8));
+    }
+}
@@ -0,0 +1,323 @@
+package com.mycompany.sdadesign;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// ========== SALES TALLY ==========
+// Orders, copies and revenue (in cents) for one key; striped counters so concurrent checkouts
+// do not contend on a single cache line.
+class SalesTally {
+    private final LongAdder orders = new LongAdder();
+    private final LongAdder units = new LongAdder();
+    private final LongAdder cents = new LongAdder();
+
+    void add(int quantity, long revenueCents) {
+        orders.increment();
+        units.add(quantity);
+        cents.add(revenueCents);
+    }
+
+    public long getOrders() { return orders.sum(); }
+    public long getUnits() { return units.sum(); }
+    public double getRevenue() { return cents.sum() / 100.0; }
+}
+
+record RankedItem(String key, long units) {}
+
+// ========== SLIDING WINDOW ==========
+// Totals over the last `buckets` x `width`, kept in a ring of time buckets. A bucket is reset when
+// its slot comes round again, so adding and querying never touch more than the ring itself.
+// Counts are approximate only for an order racing a bucket reset at the window edge.
+class SlidingWindow {
+    private static final class Bucket {
+        volatile long slot = Long.MIN_VALUE;
+        final LongAdder units = new LongAdder();
+        final LongAdder cents = new LongAdder();
+    }
+
+    private final long widthMillis;
+    private final Bucket[] ring;
+
+    SlidingWindow(Duration width, int buckets) {
+        this.widthMillis = width.toMillis();
+        this.ring = new Bucket[buckets];
+        for (int i = 0; i < buckets; i++) ring[i] = new Bucket();
+    }
+
+    void add(long timeMillis, int quantity, long revenueCents) {
+        long slot = timeMillis / widthMillis;
+        Bucket b = ring[(int) Math.floorMod(slot, (long) ring.length)];
+        if (b.slot != slot) {
+            synchronized (b) {
+                if (b.slot > slot) return; // older than the window
+                if (b.slot < slot) {
+                    b.units.reset();
+                    b.cents.reset();
+                    b.slot = slot;
+                }
+            }
+        }
+        b.units.add(quantity);
+        b.cents.add(revenueCents);
+    }
+
+    public long units(long nowMillis) {
+        long total = 0;
+        for (Bucket b : ring) if (live(b, nowMillis)) total += b.units.sum();
+        return total;
+    }
+
+    public double revenue(long nowMillis) {
+        long total = 0;
+        for (Bucket b : ring) if (live(b, nowMillis)) total += b.cents.sum();
+        return total / 100.0;
+    }
+
+    private boolean live(Bucket b, long nowMillis) {
+        long now = nowMillis / widthMillis;
+        return b.slot <= now && b.slot > now - ring.length;
+    }
+}
+
+// ========== HEAVY HITTERS ==========
+// Space-Saving summary: tracks at most `capacity` keys and, when full, lets a new key take over
+// the smallest counter. Any key with more than total/capacity units is guaranteed to be kept.
+// Writers are spread over per-thread stripes, each a summary of its own behind its own lock, and
+// the stripes are summed on read. A key above total/capacity overall is above its share in at
+// least one stripe, so the guarantee holds for the sum. Within a stripe the counters form a
+// min-heap, so finding the smallest is O(1) and an update is O(log capacity).
+class HeavyHitters {
+    private static final int STRIPES = Math.min(16, Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() - 1) << 1));
+
+    private static final class Counter {
+        String key;
+        long count;
+        int position;
+    }
+
+    private static final class Stripe {
+        private final Map<String, Counter> index = new HashMap<>();
+        private final Counter[] heap;
+        private int size;
+
+        Stripe(int capacity) {
+            this.heap = new Counter[capacity];
+        }
+
+        synchronized void add(String key, long units) {
+            Counter counter = index.get(key);
+            if (counter == null) {
+                if (size < heap.length) {
+                    counter = new Counter();
+                    counter.key = key;
+                    counter.count = units;
+                    counter.position = size;
+                    heap[size++] = counter;
+                    index.put(key, counter);
+                    siftUp(counter.position);
+                    return;
+                }
+                counter = heap[0];
+                index.remove(counter.key);
+                counter.key = key;
+                index.put(key, counter);
+            }
+            counter.count += units;
+            siftDown(counter.position);
+        }
+
+        synchronized void mergeInto(Map<String, Long> totals) {
+            for (int i = 0; i < size; i++) totals.merge(heap[i].key, heap[i].count, Long::sum);
+        }
+
+        synchronized void clear() {
+            index.clear();
+            Arrays.fill(heap, 0, size, null);
+            size = 0;
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (heap[parent].count <= heap[i].count) return;
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int smallest = i;
+                int left = 2 * i + 1;
+                int right = left + 1;
+                if (left < size && heap[left].count < heap[smallest].count) smallest = left;
+                if (right < size && heap[right].count < heap[smallest].count) smallest = right;
+                if (smallest == i) return;
+                swap(i, smallest);
+                i = smallest;
+            }
+        }
+
+        private void swap(int i, int j) {
+            Counter a = heap[i];
+            heap[i] = heap[j];
+            heap[j] = a;
+            heap[i].position = i;
+            heap[j].position = j;
+        }
+    }
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    HeavyHitters(int capacity) {
+        for (int i = 0; i < STRIPES; i++) stripes[i] = new Stripe(capacity);
+    }
+
+    void add(String key, long units) {
+        long id = Thread.currentThread().threadId();
+        stripes[(int) (id ^ (id >>> 16)) & (STRIPES - 1)].add(key, units);
+    }
+
+    void mergeInto(Map<String, Long> totals) {
+        for (Stripe stripe : stripes) stripe.mergeInto(totals);
+    }
+
+    void clear() {
+        for (Stripe stripe : stripes) stripe.clear();
+    }
+
+    static List<RankedItem> top(Map<String, Long> totals, int k) {
+        return totals.entrySet().stream()
+            .sorted(Map.Entry.<String, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+            .limit(k)
+            .map(e -> new RankedItem(e.getKey(), e.getValue()))
+            .toList();
+    }
+}
+
+// Heavy hitters over a sliding window: one Space-Saving summary per time bucket, merged on query.
+// As in SlidingWindow, a bucket is only locked to reset it when its slot comes round again.
+class WindowedHeavyHitters {
+    private static final class Bucket {
+        volatile long slot = Long.MIN_VALUE;
+        final HeavyHitters summary;
+
+        Bucket(int capacity) {
+            this.summary = new HeavyHitters(capacity);
+        }
+    }
+
+    private final long widthMillis;
+    private final Bucket[] ring;
+
+    WindowedHeavyHitters(Duration width, int buckets, int capacity) {
+        this.widthMillis = width.toMillis();
+        this.ring = new Bucket[buckets];
+        for (int i = 0; i < buckets; i++) ring[i] = new Bucket(capacity);
+    }
+
+    void add(long timeMillis, String key, long units) {
+        long slot = timeMillis / widthMillis;
+        Bucket b = ring[(int) Math.floorMod(slot, (long) ring.length)];
+        if (b.slot != slot) {
+            synchronized (b) {
+                if (b.slot > slot) return; // older than the window
+                if (b.slot < slot) {
+                    b.summary.clear();
+                    b.slot = slot;
+                }
+            }
+        }
+        b.summary.add(key, units);
+    }
+
+    List<RankedItem> top(long nowMillis, int k) {
+        long now = nowMillis / widthMillis;
+        Map<String, Long> totals = new HashMap<>();
+        for (Bucket b : ring) {
+            long slot = b.slot;
+            if (slot <= now && slot > now - ring.length) b.summary.mergeInto(totals);
+        }
+        return HeavyHitters.top(totals, k);
+    }
+}
+
+// ========== SALES ANALYTICS ==========
+// Aggregates kept up to date as each order is logged, so dashboard queries read counters instead
+// of rescanning the order log: exact tallies per title, genre, user and payment method, sliding
+// windows for the last minute, hour and day, and top sellers overall and over the last hour.
+class SalesAnalytics {
+    private static final int TOP_CAPACITY = 256;
+
+    private final SalesTally total = new SalesTally();
+    private final Map<String, SalesTally> byTitle = new ConcurrentHashMap<>();
+    private final Map<String, SalesTally> byGenre = new ConcurrentHashMap<>();
+    private final Map<String, SalesTally> byUser = new ConcurrentHashMap<>();
+    private final Map<String, SalesTally> byMethod = new ConcurrentHashMap<>();
+
+    private final SlidingWindow lastMinute = new SlidingWindow(Duration.ofSeconds(1), 60);
+    private final SlidingWindow lastHour = new SlidingWindow(Duration.ofMinutes(1), 60);
+    private final SlidingWindow lastDay = new SlidingWindow(Duration.ofMinutes(30), 48);
+    private final Map<String, SlidingWindow> genreDay = new ConcurrentHashMap<>();
+
+    private final HeavyHitters topTitles = new HeavyHitters(TOP_CAPACITY);
+    private final WindowedHeavyHitters topTitlesHour = new WindowedHeavyHitters(Duration.ofMinutes(5), 12, TOP_CAPACITY);
+
+    // genre and method may be null when unknown (a book no longer in the catalog, an unpaid or
+    // replayed order); those orders still count everywhere else.
+    public void record(Order order, String genre, String method) {
+        int quantity = order.getQuantity();
+        long cents = Math.round(order.getPrice() * 100);
+        long time = order.getTimeMillis();
+
+        total.add(quantity, cents);
+        tally(byTitle, order.getTitle()).add(quantity, cents);
+        tally(byUser, order.getUser()).add(quantity, cents);
+        if (genre != null) {
+            tally(byGenre, genre).add(quantity, cents);
+            genreDay.computeIfAbsent(genre, g -> new SlidingWindow(Duration.ofMinutes(30), 48)).add(time, quantity, cents);
+        }
+        if (method != null) tally(byMethod, method).add(quantity, cents);
+
+        lastMinute.add(time, quantity, cents);
+        lastHour.add(time, quantity, cents);
+        lastDay.add(time, quantity, cents);
+        topTitles.add(order.getTitle(), quantity);
+        topTitlesHour.add(time, order.getTitle(), quantity);
+    }
+
+    private static SalesTally tally(Map<String, SalesTally> tallies, String key) {
+        SalesTally t = tallies.get(key);
+        return t != null ? t : tallies.computeIfAbsent(key, k -> new SalesTally());
+    }
+
+    // ---------- queries ----------
+
+    public SalesTally getTotal() { return total; }
+    public SalesTally forTitle(String title) { return byTitle.getOrDefault(title, new SalesTally()); }
+    public SalesTally forUser(String user) { return byUser.getOrDefault(user, new SalesTally()); }
+
+    public Map<String, SalesTally> byGenre() { return Collections.unmodifiableMap(byGenre); }
+    public Map<String, SalesTally> byMethod() { return Collections.unmodifiableMap(byMethod); }
+
+    public SlidingWindow lastMinute() { return lastMinute; }
+    public SlidingWindow lastHour() { return lastHour; }
+    public SlidingWindow lastDay() { return lastDay; }
+
+    public double genreRevenueLastDay(String genre, long nowMillis) {
+        SlidingWindow w = genreDay.get(genre);
+        return w == null ? 0.0 : w.revenue(nowMillis);
+    }
+
+    public List<RankedItem> topTitles(int k) {
+        Map<String, Long> totals = new HashMap<>();
+        topTitles.mergeInto(totals);
+        return HeavyHitters.top(totals, k);
+    }
+
+    public List<RankedItem> topTitlesLastHour(int k, long nowMillis) {
+        return topTitlesHour.top(nowMillis, k);
+    }
+}
@@ -1,6 +1,17 @@
 package com.mycompany.sdadesign;
 
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
 
 // ========== OBSERVER INTERFACES ==========
 interface Observer {
@@ -14,17 +25,15 @@ interface Subject {
 }
 
 // ========== USER ==========
+// Credentials live in UserDirectory; a User is just the identity that receives notifications.
 class User implements Observer {
     private final String username;
-    private final String password;
 
-    public User(String username, String password) {
+    public User(String username) {
         this.username = username;
-        this.password = password;
     }
 
     public String getUsername() { return username; }
-    public String getPassword() { return password; }
 
     @Override
     public void update(String message) {
@@ -35,119 +44,232 @@ class User implements Observer {
 
 // ========= ABSTRACT BOOK CLASS =========
 abstract class Book {
-    protected String title;
-    protected String author;
-    protected double price;
-    protected int quantity; // 
+    private static final VarHandle QUANTITY;
+    private static final VarHandle PRICE;
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            QUANTITY = lookup.findVarHandle(Book.class, "quantity", int.class);
+            PRICE = lookup.findVarHandle(Book.class, "price", double.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
 
-    public Book(String title, String author, double price) {
-        this.title = title;
-        this.author = author;
+    protected final BookMetadata metadata; // shared, see BookMetadataRegistry
+    protected volatile double price;
+    protected volatile int quantity; // copies in stock, not yet reserved
+    // Set once the book joins the catalog; price and stock changes from then on are published.
+    private CatalogChangeStream changes;
+
+    public Book(BookMetadata metadata, double price) {
+        this.metadata = metadata;
         this.price = price;
         this.quantity = 1; // 
     }
 
-    public String getTitle() { return title; }
-    public String getAuthor() { return author; }
+    public BookMetadata getMetadata() { return metadata; }
+    public String getTitle() { return metadata.title(); }
+    public String getAuthor() { return metadata.author(); }
+    public BookFormat getFormat() { return metadata.format(); }
     public double getPrice() { return price; }
 
+    public void setPrice(double price) {
+        priceChanged((double) PRICE.getAndSet(this, price), price);
+    }
+
     public int getQuantity() {
         return quantity;
     }
 
     public void setQuantity(int quantity) {
-        this.quantity = quantity;
+        stockChanged((int) QUANTITY.getAndSet(this, quantity), quantity);
     }
 
-    public abstract void displayDetails();
-}
+    // Takes qty copies out of stock with a CAS loop; fails without side effects if short.
+    public boolean tryReserve(int qty) {
+        while (true) {
+            int current = quantity;
+            if (current < qty) return false;
+            if (QUANTITY.compareAndSet(this, current, current - qty)) {
+                stockChanged(current, current - qty);
+                return true;
+            }
+        }
+    }
 
-// ========= BOOK TYPES =========
-class FictionBook extends Book {
-    public FictionBook(String title, String author, double price) {
-        super(title, author, price);
+    public void release(int qty) {
+        int before = (int) QUANTITY.getAndAdd(this, qty);
+        stockChanged(before, before + qty);
     }
 
-    @Override
-    public void displayDetails() {
-        System.out.println("[Fiction] " + title + " by " + author + " - $" + price + " | Qty: " + quantity);
+    void publishChangesTo(CatalogChangeStream stream) {
+        this.changes = stream;
     }
-}
 
-class NonFictionBook extends Book {
-    public NonFictionBook(String title, String author, double price) {
-        super(title, author, price);
+    protected void stockChanged(int before, int after) {
+        CatalogChangeStream stream = changes;
+        if (stream != null && before != after) stream.stockChanged(this, before, after);
     }
 
-    @Override
-    public void displayDetails() {
-        System.out.println("[Non-Fiction] " + title + " by " + author + " - $" + price + " | Qty: " + quantity);
+    protected void priceChanged(double before, double after) {
+        CatalogChangeStream stream = changes;
+        if (stream != null && before != after) stream.priceChanged(this, before, after);
+    }
+
+    // Genre key as accepted by BookFactory.createBook
+    public String getGenre() {
+        return metadata.genre().key();
     }
 }
 
-class ScienceBook extends Book {
-    public ScienceBook(String title, String author, double price) {
-        super(title, author, price);
+// ========= BOOK TYPES =========
+class FictionBook extends Book {
+    public FictionBook(BookMetadata metadata, double price) {
+        super(metadata, price);
     }
+}
 
-    @Override
-    public void displayDetails() {
-        System.out.println("[Science] " + title + " by " + author + " - $" + price + " | Qty: " + quantity);
+class NonFictionBook extends Book {
+    public NonFictionBook(BookMetadata metadata, double price) {
+        super(metadata, price);
+    }
+}
+
+class ScienceBook extends Book {
+    public ScienceBook(BookMetadata metadata, double price) {
+        super(metadata, price);
     }
 }
 
 // ========== BOOK FACTORIES ==========
+// Factories are stateless singletons; get one with BookFactory.forFormat or BookFormat.factory.
 interface BookFactory {
-    Book createBook(String genre, String title, String author, double price);
+    Book createBook(BookGenre genre, String title, String author, double price);
+
+    // Returns null for an unknown genre.
+    default Book createBook(String genre, String title, String author, double price) {
+        BookGenre g = BookGenre.parse(genre);
+        return g == null ? null : createBook(g, title, author, price);
+    }
+
+    // Returns null for an unknown format.
+    static BookFactory forFormat(String format) {
+        BookFormat f = BookFormat.parse(format);
+        return f == null ? null : f.factory();
+    }
+
+    static Book create(BookMetadata metadata, double price) {
+        return switch (metadata.genre()) {
+            case FICTION -> new FictionBook(metadata, price);
+            case NONFICTION -> new NonFictionBook(metadata, price);
+            case SCIENCE -> new ScienceBook(metadata, price);
+        };
+    }
 }
 
 class EBookFactory implements BookFactory {
-    public Book createBook(String genre, String title, String author, double price) {
-        return switch (genre.toLowerCase()) {
-            case "fiction" -> new FictionBook(title, author, price);
-            case "nonfiction" -> new NonFictionBook(title, author, price);
-            case "science" -> new ScienceBook(title, author, price);
-            default -> null;
-        };
+    private EBookFactory() {}
+
+    private static class Holder {
+        static final EBookFactory INSTANCE = new EBookFactory();
+    }
+
+    public static EBookFactory getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    public Book createBook(BookGenre genre, String title, String author, double price) {
+        return BookFactory.create(BookMetadataRegistry.getInstance().of(title, author, genre, BookFormat.EBOOK), price);
     }
 }
 
 class PhysicalBookFactory implements BookFactory {
-    public Book createBook(String genre, String title, String author, double price) {
-        return switch (genre.toLowerCase()) {
-            case "fiction" -> new FictionBook(title, author, price);
-            case "nonfiction" -> new NonFictionBook(title, author, price);
-            case "science" -> new ScienceBook(title, author, price);
-            default -> null;
-        };
+    private PhysicalBookFactory() {}
+
+    private static class Holder {
+        static final PhysicalBookFactory INSTANCE = new PhysicalBookFactory();
+    }
+
+    public static PhysicalBookFactory getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    public Book createBook(BookGenre genre, String title, String author, double price) {
+        return BookFactory.create(BookMetadataRegistry.getInstance().of(title, author, genre, BookFormat.PHYSICAL), price);
     }
 }
 
 // ========== PAYMENT STRATEGY ==========
 interface PaymentStrategy {
     void pay(String username, double amount);
-}
 
-class CreditCardPayment implements PaymentStrategy {
-    public void pay(String username, double amount) {
-        System.out.println(username + " paid $" + amount + " via Credit Card.");
+    default String getMethodName() {
+        return getClass().getSimpleName();
     }
 }
 
-class PaypalPayment implements PaymentStrategy {
-    public void pay(String username, double amount) {
-        System.out.println(username + " paid $" + amount + " via PayPal.");
+// Console strategies echo each charge; headless runs construct them quiet, since nobody reads
+// the console there and printing on every payment would serialize the server on it.
+abstract class AnnouncedPayment implements PaymentStrategy {
+    private final boolean announce;
+
+    protected AnnouncedPayment(boolean announce) {
+        this.announce = announce;
     }
-}
 
-class CryptoPayment implements PaymentStrategy {
     public void pay(String username, double amount) {
-        System.out.println(username + " paid $" + amount + " via Crypto.");
+        if (announce) System.out.println(username + " paid $" + amount + " via " + getMethodName() + ".");
     }
 }
 
+class CreditCardPayment extends AnnouncedPayment {
+    public CreditCardPayment() { this(true); }
+    public CreditCardPayment(boolean announce) { super(announce); }
+
+    public String getMethodName() { return "Credit Card"; }
+}
+
+class PaypalPayment extends AnnouncedPayment {
+    public PaypalPayment() { this(true); }
+    public PaypalPayment(boolean announce) { super(announce); }
+
+    public String getMethodName() { return "PayPal"; }
+}
+
+class CryptoPayment extends AnnouncedPayment {
+    public CryptoPayment() { this(true); }
+    public CryptoPayment(boolean announce) { super(announce); }
+
+    public String getMethodName() { return "Crypto"; }
+}
+
 // ========== ORDER ==========
-class Order {
+abstract class Order {
+    public abstract String getOrderId();
+    public abstract String getUser();
+    public abstract Date getDate();
+    public abstract double getPrice();
+    public abstract int getQuantity();
+    public abstract String getStatus();
+    public abstract String getTitle();
+
+    public long getTimeMillis() {
+        return getDate().getTime();
+    }
+
+    public OrderStatus getOrderStatus() {
+        return OrderStatus.parse(getStatus());
+    }
+
+    @Override
+    public String toString() {
+        return "Order by " + getUser() + " for " + getTitle() + " x" + getQuantity() + " [" + getStatus() + "]";
+    }
+}
+
+// An order that is not in the OrderStore: built at checkout, or read back from the journal.
+class DetachedOrder extends Order {
     private final String orderId;
     private final String user;
     private final Date date;
@@ -156,7 +278,7 @@ class Order {
     private final String status;
     private final String title;
 
-    public Order(String orderId, String user, Date date, double price, int quantity, String status, String title) {
+    public DetachedOrder(String orderId, String user, Date date, double price, int quantity, String status, String title) {
         this.orderId = orderId;
         this.user = user;
         this.date = date;
@@ -166,121 +288,434 @@ class Order {
         this.title = title;
     }
 
-    @Override
-    public String toString() {
-        return "Order by " + user + " for " + title + " x" + quantity + " [" + status + "]";
-    }
+    public String getOrderId() { return orderId; }
+    public String getUser() { return user; }
+    public Date getDate() { return date; }
+    public double getPrice() { return price; }
+    public int getQuantity() { return quantity; }
+    public String getStatus() { return status; }
+    public String getTitle() { return title; }
 }
 
 // ========== ORDER FACTORY ==========
 class OrderFactory {
     public static Order createOrder(String format, String genre, String orderId, String user,
                                     Date date, double price, int quantity, String status, String title) {
-        return new Order(orderId, user, date, price, quantity, status, title);
+        return new DetachedOrder(orderId, user, date, price, quantity, status, title);
+    }
+}
+
+// ========== CART SESSION ==========
+// Per-user cart and notification state; sessions of different users share nothing. Lines hold
+// their resolved Book and the cart keeps running totals, so pricing and payment never look a
+// title up again. Cart changes are guarded by the session's monitor, which also guards
+// retirement: once evicted, a session is retired and CartSessionStore.update moves on.
+class CartSession {
+    private final String username;
+    private final Map<String, CartLine> lines = new LinkedHashMap<>();
+    private final CartTotals totals = new CartTotals();
+    private final NotificationRing notifications;
+    private volatile long lastAccessNanos = System.nanoTime();
+    private boolean retired;
+
+    public CartSession(String username, int notificationCapacity) {
+        this.username = username;
+        this.notifications = new NotificationRing(notificationCapacity);
+    }
+
+    public String getUsername() { return username; }
+
+    public void touch() {
+        lastAccessNanos = System.nanoTime();
+    }
+
+    public long getLastAccessNanos() {
+        return lastAccessNanos;
+    }
+
+    synchronized void retire() {
+        retired = true;
+    }
+
+    synchronized void reinstate() {
+        retired = false;
+    }
+
+    synchronized boolean isRetired() {
+        return retired;
+    }
+
+    // Keyed by the catalog's spelling of the title.
+    public synchronized void add(Book book, int qty) {
+        CartLine line = lines.get(book.getTitle());
+        add(line == null ? new CartLine(book, qty) : line.withQuantity(line.quantity() + qty), qty);
+    }
+
+    // Puts a line back at the unit price it was added at, e.g. after a failed payment.
+    synchronized void restore(CartLine returned) {
+        CartLine line = lines.get(returned.book().getTitle());
+        add(line == null ? returned : line.withQuantity(line.quantity() + returned.quantity()), returned.quantity());
+    }
+
+    private void add(CartLine line, int added) {
+        lines.put(line.book().getTitle(), line);
+        totals.add(line.book(), line.unitCents(), added);
+    }
+
+    // Takes up to qty copies of the title out; returns what was removed, or null if it was not
+    // in the cart.
+    public synchronized CartLine remove(String title, int qty) {
+        CartLine line = lines.get(title);
+        if (line == null || qty <= 0) return null;
+        int removed = Math.min(qty, line.quantity());
+        if (removed == line.quantity()) {
+            lines.remove(title);
+        } else {
+            lines.put(title, line.withQuantity(line.quantity() - removed));
+        }
+        totals.add(line.book(), line.unitCents(), -removed);
+        return line.withQuantity(removed);
+    }
+
+    // Title -> quantity, in the order titles were first added.
+    public synchronized Map<String, Integer> getItems() {
+        Map<String, Integer> items = new LinkedHashMap<>();
+        for (CartLine line : lines.values()) items.put(line.book().getTitle(), line.quantity());
+        return items;
+    }
+
+    public synchronized List<CartLine> getLines() {
+        return List.copyOf(lines.values());
+    }
+
+    public synchronized CartTotals getTotals() {
+        return totals.copy();
+    }
+
+    public synchronized boolean isEmpty() {
+        return lines.isEmpty();
+    }
+
+    // Empties the cart, handing back its lines and their totals as of that moment.
+    public synchronized CartContents drain() {
+        CartContents contents = new CartContents(List.copyOf(lines.values()), totals.copy());
+        for (CartLine line : contents.lines()) totals.add(line.book(), line.unitCents(), -line.quantity());
+        lines.clear();
+        return contents;
+    }
+
+    public void notify(String message) {
+        notifications.add(message);
+    }
+
+    public List<String> getNotifications() {
+        return notifications.snapshot();
+    }
+
+    public boolean hasNotifications() {
+        return !notifications.isEmpty();
+    }
+}
+
+// ========== CART RESULTS ==========
+enum CartResult { ADDED, NOT_FOUND, OUT_OF_STOCK }
+
+record CartContents(List<CartLine> lines, CartTotals totals) {}
+
+record PaymentReceipt(String username, double total, List<Order> orders, List<String> unavailable) {
+    boolean isEmpty() {
+        return orders.isEmpty() && unavailable.isEmpty();
     }
 }
 
 // ========== CART / PAYMENT MANAGER ==========
 class PaymentCartNotificationManager {
-    private static PaymentCartNotificationManager instance;
-    private final Map<String, Map<String, Integer>> carts = new HashMap<>();
-    private final Map<String, List<String>> notifications = new HashMap<>();
-    private String loggedInUser;
+    private final InventoryManager inventory = new InventoryManager(Duration.ofMinutes(15));
+    // Idle carts are spilled to disk after 30 minutes and keep their last 50 notifications.
+    private final CartSessionStore sessions = new CartSessionStore(Duration.ofMinutes(30), 100_000, 50,
+        Path.of(System.getProperty("java.io.tmpdir"), "folioverse-carts"), inventory::releaseAll,
+        title -> BookStoreManager.getInstance().getBookByTitle(title));
+    private final PaymentPipeline payments = new PaymentPipeline(256, 8);
+    private final PricingEngine pricing = new PricingEngine();
+    private final IdempotencyKeys<PaymentReceipt> receipts = new IdempotencyKeys<>(Duration.ofHours(24));
+    private volatile String loggedInUser;
+
+    private final StoreMetrics metrics = StoreMetrics.getInstance();
+    private final LongAdder paymentFailures = metrics.counter("payments_failed");
+
+    private PaymentCartNotificationManager() {
+        metrics.gauge("carts_open", sessions::openCarts);
+        metrics.gauge("cart_sessions_live", sessions::size);
+        metrics.gauge("cart_sessions_spilled", sessions::getSpilled);
+        metrics.gauge("cart_sessions_restored", sessions::getRestored);
+        metrics.gauge("cart_sessions_evicted", sessions::getEvicted);
+        metrics.gauge("inventory_reserved_copies", inventory::reservedTotal);
+        metrics.gauge("payment_queue_depth", payments::getQueueDepth);
+    }
 
-    private PaymentCartNotificationManager() {}
+    private static class Holder {
+        static final PaymentCartNotificationManager INSTANCE = new PaymentCartNotificationManager();
+    }
 
     public static PaymentCartNotificationManager getInstance() {
-        if (instance == null) {
-            instance = new PaymentCartNotificationManager();
-        }
-        return instance;
+        return Holder.INSTANCE;
     }
 
     public void setLoggedInUser(String username) {
         this.loggedInUser = username;
-        carts.putIfAbsent(username, new HashMap<>());
-        notifications.putIfAbsent(username, new ArrayList<>());
+        session(username);
+    }
+
+    public CartSession session(String username) {
+        return sessions.get(username);
+    }
+
+    public CartSessionStore getSessions() {
+        return sessions;
+    }
+
+    public InventoryManager getInventory() {
+        return inventory;
+    }
+
+    public PaymentPipeline getPayments() {
+        return payments;
+    }
+
+    public PricingEngine getPricing() {
+        return pricing;
+    }
+
+    // What the user's cart would cost right now; O(rules), whatever the cart's size.
+    public PriceQuote quote(String username) {
+        return pricing.quote(session(username).getTotals());
     }
 
     public void addToCart(String title, int qty, BookStoreManager manager) {
-    Book book = manager.getBookByTitle(title);
-    if (book == null) {
-        System.out.println("❌ Book not found. Cannot add to cart.");
-        return;
+        addToCart(loggedInUser, title, qty, manager);
     }
 
-    Map<String, Integer> cart = carts.getOrDefault(loggedInUser, new HashMap<>());
-    cart.put(title, cart.getOrDefault(title, 0) + qty);
-    carts.put(loggedInUser, cart);
-    notifications.get(loggedInUser).add("Added " + qty + " of \"" + title + "\" to cart.");
-    System.out.println("✅ " + qty + " copy/copies of \"" + title + "\" added to cart.");
-}
+    public void addToCart(String username, String title, int qty, BookStoreManager manager) {
+        Book book = manager.getBookByTitle(title);
+        if (book == null) {
+            System.out.println("❌ Book not found. Cannot add to cart.");
+            return;
+        }
+        addToCart(username, book, qty);
+    }
+
+    // For callers that already looked the book up.
+    public void addToCart(Book book, int qty) {
+        addToCart(loggedInUser, book, qty);
+    }
+
+    public void addToCart(String username, Book book, int qty) {
+        switch (addItem(username, book, qty)) {
+            case OUT_OF_STOCK -> System.out.println("❌ Not enough stock. Available quantity: " + book.getQuantity());
+            case ADDED -> System.out.println("✅ " + qty + " copy/copies of \"" + book.getTitle() + "\" added to cart.");
+            default -> { }
+        }
+    }
+
+    // Same as addToCart without console output, for non-interactive callers.
+    public CartResult addItem(String username, String title, int qty, BookStoreManager manager) {
+        Book book = manager.getBookByTitle(title);
+        return book == null ? CartResult.NOT_FOUND : addItem(username, book, qty);
+    }
+
+    public CartResult addItem(String username, Book book, int qty) {
+        long start = System.nanoTime();
+        try {
+            if (inventory.reserve(username, book, qty) == null) return CartResult.OUT_OF_STOCK;
+            sessions.update(username, session -> {
+                session.add(book, qty);
+                session.notify("Added " + qty + " of \"" + book.getTitle() + "\" to cart.");
+            });
+            return CartResult.ADDED;
+        } finally {
+            metrics.record(StoreOperation.ADD_TO_CART, start);
+        }
+    }
 
+    // Takes up to qty copies out of the cart and returns them to stock. False if the title was
+    // not in the cart.
+    public boolean removeItem(String username, String title, int qty) {
+        CartLine removed = sessions.updateAndGet(username, session -> {
+            CartLine line = session.remove(title, qty);
+            if (line != null) {
+                session.notify("Removed " + line.quantity() + " of \"" + line.book().getTitle() + "\" from cart.");
+            }
+            return line;
+        });
+        if (removed == null) return false;
+        inventory.release(username, removed.book(), removed.quantity());
+        return true;
+    }
 
     public void viewCart() {
-        System.out.println("[Cart of " + loggedInUser + "]");
-        carts.getOrDefault(loggedInUser, new HashMap<>()).forEach((title, qty) ->
-            System.out.println("- " + title + ": " + qty));
+        viewCart(loggedInUser);
     }
 
-    public void checkout(BookStoreManager manager) {
-        Map<String, Integer> cart = carts.getOrDefault(loggedInUser, new HashMap<>());
-        if (cart.isEmpty()) {
+    public void viewCart(String username) {
+        System.out.println("[Cart of " + username + "]");
+        CartSession session = session(username);
+        List<CartLine> lines = session.getLines();
+        if (lines.isEmpty()) {
             System.out.println("Cart is empty.");
             return;
         }
-        notifications.get(loggedInUser).add("Checked out cart with " + cart.size() + " items.");
-        cart.clear();
+        for (CartLine line : lines) {
+            System.out.println("- " + line.book().getTitle() + ": " + line.quantity() + " x "
+                + Money.format(line.unitCents()) + " = " + Money.format(line.cents()));
+        }
+        PriceQuote quote = pricing.quote(session.getTotals());
+        System.out.println("Subtotal: " + Money.format(quote.subtotalCents()));
+        for (AppliedDiscount d : quote.discounts()) {
+            System.out.println("  " + d.description() + ": -" + Money.format(d.cents()));
+        }
+        System.out.println("Total: " + Money.format(quote.totalCents()));
+        Set<String> titles = new LinkedHashSet<>();
+        for (CartLine line : lines) titles.add(line.book().getTitle());
+        List<String> related = BookStoreManager.getInstance().getRecommendations().forCart(username, titles, 3);
+        if (!related.isEmpty()) System.out.println("Customers who bought these also bought: " + String.join(", ", related));
+    }
+
+    public void checkout(BookStoreManager manager) {
+        checkout(loggedInUser, manager);
+    }
+
+    public void checkout(String username, BookStoreManager manager) {
+        long start = System.nanoTime();
+        try {
+            List<CartLine> cart = sessions.updateAndGet(username, session -> {
+                List<CartLine> lines = session.drain().lines();
+                if (!lines.isEmpty()) session.notify("Checked out cart with " + lines.size() + " items.");
+                return lines;
+            });
+            inventory.releaseAll(username);
+            if (cart.isEmpty()) System.out.println("Cart is empty.");
+        } finally {
+            metrics.record(StoreOperation.CHECKOUT, start);
+        }
     }
 
     public void pay(String username, PaymentStrategy strategy) {
-    Map<String, Integer> cart = carts.getOrDefault(username, new HashMap<>());
-    if (cart.isEmpty()) {
-        System.out.println("Cart is empty.");
-        return;
+        PaymentReceipt receipt;
+        try {
+            receipt = settle(username, strategy);
+        } catch (CompletionException e) {
+            System.out.println("❌ Payment failed: " + e.getCause().getMessage() + ". Your items are back in the cart.");
+            return;
+        }
+        if (receipt.isEmpty()) {
+            System.out.println("Cart is empty.");
+            return;
+        }
+        for (String title : receipt.unavailable()) {
+            System.out.println("❌ \"" + title + "\" is out of stock and was removed from your order.");
+        }
+        if (receipt.orders().isEmpty()) {
+            System.out.println("Nothing left to pay for.");
+        }
     }
 
-    double total = 0.0;
-    BookStoreManager manager = BookStoreManager.getInstance();
-    List<Order> ordersToPlace = new ArrayList<>();
+    // Charges and places orders for everything in the user's cart; no console output of its own.
+    public PaymentReceipt settle(String username, PaymentStrategy strategy) {
+        return settleAsync(username, strategy, null).join();
+    }
 
-    for (Map.Entry<String, Integer> entry : cart.entrySet()) {
-        String title = entry.getKey();
-        int quantity = entry.getValue();
-        Book book = manager.getBookByTitle(title);
-        if (book != null) {
-            double subtotal = book.getPrice() * quantity;
-            total += subtotal;
+    // Retrying with the same idempotency key returns the first attempt's receipt instead of
+    // charging again. The key is scoped to the user. Without a key nothing can retry, so the
+    // receipt is not remembered.
+    public CompletableFuture<PaymentReceipt> settleAsync(String username, PaymentStrategy strategy, String idempotencyKey) {
+        long start = System.nanoTime();
+        CompletableFuture<PaymentReceipt> settled;
+        if (idempotencyKey != null) {
+            settled = receipts.run(username + '\n' + idempotencyKey, () -> startSettle(username, strategy, idempotencyKey));
+        } else {
+            try {
+                settled = startSettle(username, strategy, null);
+            } catch (RuntimeException e) {
+                settled = CompletableFuture.failedFuture(e);
+            }
+        }
+        return settled.whenComplete((receipt, failure) -> {
+            if (failure != null) paymentFailures.increment();
+            metrics.record(StoreOperation.PAY, start);
+        });
+    }
+
+    private CompletableFuture<PaymentReceipt> startSettle(String username, PaymentStrategy strategy, String idempotencyKey) {
+        CartContents cart = sessions.updateAndGet(username, CartSession::drain);
+        BookStoreManager manager = BookStoreManager.getInstance();
+        List<CartLine> committed = new ArrayList<>(cart.lines().size());
+        List<String> unavailable = new ArrayList<>();
+
+        for (CartLine line : cart.lines()) {
+            if (inventory.commit(username, line.book(), line.quantity())) {
+                committed.add(line);
+            } else {
+                unavailable.add(line.book().getTitle());
+            }
+        }
 
-            Order order = OrderFactory.createOrder(
-                "physical",  
-                "fiction",  
+        if (committed.isEmpty()) {
+            return CompletableFuture.completedFuture(new PaymentReceipt(username, 0.0, List.of(), unavailable));
+        }
+
+        // The drained totals are only stale when a line dropped out.
+        PriceQuote quote = pricing.quote(unavailable.isEmpty() ? cart.totals() : CartTotals.of(committed));
+        long[] lineCents = quote.allocate(committed);
+        Date placedAt = new Date();
+        List<Order> ordersToPlace = new ArrayList<>(committed.size());
+        for (int i = 0; i < committed.size(); i++) {
+            CartLine line = committed.get(i);
+            ordersToPlace.add(OrderFactory.createOrder(
+                "physical",
+                "fiction",
                 UUID.randomUUID().toString(),
                 username,
-                new Date(),
-                subtotal,
-                quantity,
-                "PLACED",
-                title
-            );
-            ordersToPlace.add(order);
+                placedAt,
+                Money.amount(lineCents[i]),
+                line.quantity(),
+                OrderStatus.PAID.label(),
+                line.book().getTitle()
+            ));
         }
-    }
-
-    strategy.pay(username, total);
-    notifications.get(username).add("Paid $" + total + " successfully.");
 
-    // Place all orders
-    for (Order o : ordersToPlace) {
-        manager.placeOrder(o);
+        double total = Money.amount(quote.totalCents());
+        PaymentReceipt receipt = new PaymentReceipt(username, total, ordersToPlace, unavailable);
+        return payments.charge(strategy, new PaymentRequest(idempotencyKey, username, total))
+            .handle((paid, failure) -> {
+                if (failure != null) {
+                    restoreCart(username, committed);
+                    throw new CompletionException(failure instanceof CompletionException ? failure.getCause() : failure);
+                }
+                sessions.update(username, session -> session.notify("Paid " + Money.format(quote.totalCents()) + " successfully."));
+                manager.placeOrders(ordersToPlace, strategy.getMethodName());
+                return receipt;
+            });
     }
 
-    cart.clear();
-}
+    // Nothing was charged: put the stock back and the lines back in the cart.
+    private void restoreCart(String username, List<CartLine> unpaid) {
+        for (CartLine line : unpaid) line.book().release(line.quantity());
+        sessions.update(username, session -> {
+            for (CartLine line : unpaid) session.restore(line);
+            session.notify("Payment failed; " + unpaid.size() + " items returned to cart.");
+        });
+    }
 
+    void reset() {
+        sessions.clear();
+        inventory.clear();
+        receipts.clear();
+        pricing.clear();
+        loggedInUser = null;
+    }
 
     public void viewNotifications(String username) {
-        List<String> userNotes = notifications.getOrDefault(username, new ArrayList<>());
+        List<String> userNotes = session(username).getNotifications();
         if (userNotes.isEmpty()) {
             System.out.println("No notifications.");
         } else {
@@ -291,36 +726,279 @@ class PaymentCartNotificationManager {
 
 // ========== SINGLETON MANAGER ==========
 class BookStoreManager implements Subject {
-    private static BookStoreManager instance;
-    private final List<Observer> observers = new ArrayList<>();
-    private final List<Book> books = new ArrayList<>();
-    private final List<User> users = new ArrayList<>();
-    private final List<Order> orders = new ArrayList<>();
-    private User loggedInUser;
+    private final NotificationDispatcher dispatcher = new NotificationDispatcher(65_536, 256);
+    private final Queue<Book> books = new ConcurrentLinkedQueue<>();
+    private final CatalogIndex catalogIndex = new CatalogIndex();
+    private final CatalogSearch catalogSearch = new CatalogSearch();
+    private final CatalogChangeStream changes = new CatalogChangeStream(1 << 16);
+    private final UserDirectory userDirectory = new UserDirectory(Duration.ofHours(24));
+    private final OrderStore orders = new OrderStore();
+    private volatile SalesAnalytics analytics = new SalesAnalytics();
+    private final Recommendations recommendations = new Recommendations(Duration.ofSeconds(1));
+    private volatile User loggedInUser;
+    private volatile StoreJournal journal;
+    // Books of a loaded snapshot not yet in the catalog indexes; null once warmup is done.
+    private volatile SnapshotCatalog pendingCatalog;
+    // Set in off-heap mode, where it replaces the heap catalog and its indexes.
+    private volatile OffHeapCatalog offHeap;
+    // Set in cluster mode, where books and orders live on the cluster's store nodes.
+    private volatile ShardedStore cluster;
+    // Set for the HTTP server and the simulator: nobody reads the console, so nothing prints to it.
+    private volatile boolean headless;
+    private volatile CompletableFuture<Void> catalogReady = CompletableFuture.completedFuture(null);
+
+    private final StoreMetrics metrics = StoreMetrics.getInstance();
+    private final LongAdder ordersPlaced = metrics.counter("orders_placed");
+    private final LongAdder lookupMisses = metrics.counter("book_lookup_misses");
+
+    private BookStoreManager() {
+        metrics.gauge("catalog_books", this::getBookCount);
+        metrics.gauge("book_metadata_interned", BookMetadataRegistry.getInstance()::size);
+        metrics.gauge("book_authors_interned", BookMetadataRegistry.getInstance()::authorCount);
+        metrics.gauge("orders_stored", this::getOrderCount);
+        metrics.gauge("accounts", userDirectory::size);
+        metrics.gauge("observers", dispatcher::subscriberCount);
+        metrics.gauge("notification_queue_depth", dispatcher::getQueueDepth);
+        metrics.gauge("notification_queue_high_water_mark", dispatcher::getHighWaterMark);
+        metrics.gauge("notifications_published", dispatcher::getPublished);
+        metrics.gauge("notifications_delivered", dispatcher::getDelivered);
+        metrics.gauge("catalog_changes_published", changes::getPublished);
+        metrics.gauge("catalog_changes_max_lag", changes::maxLag);
+        changes.subscribe("catalog-index", catalogIndex::onChange);
+        metrics.gauge("journal_queue_depth", () -> {
+            StoreJournal j = journal;
+            return j == null ? 0 : j.getPendingCount();
+        });
+    }
 
-    private BookStoreManager() {}
+    private static class Holder {
+        static final BookStoreManager INSTANCE = new BookStoreManager();
+    }
 
     public static BookStoreManager getInstance() {
-        if (instance == null) instance = new BookStoreManager();
-        return instance;
+        return Holder.INSTANCE;
     }
 
     public void addBook(Book book) {
-        books.add(book);
+        StoreJournal j = journal;
+        if (j != null) j.appendBook(book);
+        changes.added(indexBook(book));
         System.out.println("[Book Added] " + book.getTitle());
     }
 
+    // Bulk insert for imports: one journal batch and no per-book console output.
+    public void addBooks(Collection<Book> batch) {
+        StoreJournal j = journal;
+        if (j != null) j.appendBooks(batch);
+        ShardedStore shards = cluster;
+        if (shards != null) {
+            // One request per node rather than one per book.
+            shards.addBooks(batch);
+            for (Book book : batch) changes.added(new ClusterBook(shards, book));
+            return;
+        }
+        for (Book book : batch) changes.added(indexBook(book));
+    }
+
+    // Keeps every book added from now on in native memory instead of on the heap. Title lookups,
+    // carts, payments and stock and price changes work as before against OffHeapBook views;
+    // listings come back in storage order, and search is a plain scan without typo tolerance.
+    // Call before any book is added.
+    public void useOffHeapCatalog() {
+        offHeap = new OffHeapCatalog(changes);
+        BookMetadataRegistry.getInstance().setPooling(false);
+    }
+
+    // Routes the catalog and orders to the cluster's nodes: books are added to and looked up on the
+    // node owning their title, with stock held there through ClusterBook views, and orders are
+    // stored on the node owning their user. Listings, search, suggestions, order lookups and
+    // lifecycle moves are answered by the nodes; books come back as ClusterBook views, never the
+    // genre subclass, and orders as detached copies. Paging through all users' orders is refused,
+    // since its row cursors cannot be merged across nodes. Call before any book is added; the
+    // nodes keep no journal.
+    public void useCluster(ShardedStore shards) {
+        cluster = shards;
+    }
+
+    // Stops order notifications from being printed. Call before any user is added.
+    public void useHeadlessMode() {
+        headless = true;
+    }
+
+    public boolean isHeadless() {
+        return headless;
+    }
+
+    public OffHeapCatalog getOffHeapCatalog() {
+        return offHeap;
+    }
+
+    // Journals the new price, then applies it; the change reaches subscribers through the stream.
+    public void updatePrice(Book book, double price) {
+        StoreJournal j = journal;
+        if (j != null) j.appendPrice(book.getTitle(), price);
+        book.setPrice(price);
+    }
+
+    // Added, price and stock changes of catalog books, for caches and indexes that follow the
+    // catalog incrementally.
+    public CatalogChangeStream getChanges() {
+        return changes;
+    }
+
+    public Page<Book> queryBooks(BookQuery query, String cursor, int limit) {
+        ShardedStore shards = cluster;
+        if (shards != null) {
+            Page<Book> page = shards.pageBooks(query, cursor, limit);
+            return new Page<>(clusterViews(shards, page.items()), page.nextCursor());
+        }
+        awaitCatalog();
+        OffHeapCatalog nativeCatalog = offHeap;
+        return nativeCatalog != null ? nativeCatalog.page(query, cursor, limit) : catalogIndex.page(query, cursor, limit);
+    }
+
+    public Page<Order> queryOrders(OrderQuery query, String cursor, int limit) {
+        ShardedStore shards = cluster;
+        if (shards != null && query.user() != null) return shards.pageOrdersForUser(query, cursor, limit);
+        if (shards != null) throw new UnsupportedOperationException("Listing all orders is not available in cluster mode");
+        if (query.user() != null) return orders.pageForUser(query.user(), query.sort(), cursor, limit, query::matches);
+        return orders.page(query.sort(), cursor, limit, query::matches);
+    }
+
+    // Ranked full-text search over titles and authors; tolerates typos and a half-typed last word.
+    // While a snapshot is still warming, a plain scan instead (see searchWhileWarming).
+    public List<SearchHit> searchBooks(String query, int limit) {
+        ShardedStore shards = cluster;
+        if (shards != null) {
+            List<SearchHit> hits = new ArrayList<>();
+            for (SearchHit hit : shards.search(query, limit)) hits.add(new SearchHit(new ClusterBook(shards, hit.book()), hit.score()));
+            return hits;
+        }
+        OffHeapCatalog nativeCatalog = offHeap;
+        if (nativeCatalog != null) {
+            awaitCatalog();
+            return nativeCatalog.search(query, limit);
+        }
+        SnapshotCatalog pending = pendingCatalog;
+        return pending != null ? searchWhileWarming(pending, query, limit) : catalogSearch.search(query, limit);
+    }
+
+    public List<String> suggestTitles(String prefix, int limit) {
+        ShardedStore shards = cluster;
+        if (shards != null) return shards.suggestTitles(prefix, limit);
+        OffHeapCatalog nativeCatalog = offHeap;
+        if (nativeCatalog != null) {
+            awaitCatalog();
+            return nativeCatalog.titlesStartingWith(prefix, limit);
+        }
+        SnapshotCatalog pending = pendingCatalog;
+        return pending != null ? suggestWhileWarming(pending, prefix, limit) : catalogSearch.autocomplete(prefix, limit);
+    }
+
+    private record ScanHit(int record, Book book, String title, double score) {}
+
+    // The search index is incomplete until warmup ends, so this scans the snapshot's records
+    // that are not yet materialized, then the books indexed so far. As in the off-heap catalog,
+    // every query word must appear in the title (2 points) or the author (1 point), with no typo
+    // tolerance. Only the records that make the cut are materialized.
+    private List<SearchHit> searchWhileWarming(SnapshotCatalog pending, String query, int limit) {
+        String[] words = CatalogIndex.key(query.strip()).split("\\s+");
+        if (words[0].isEmpty() || limit <= 0) return List.of();
+        List<ScanHit> found = new ArrayList<>();
+        pending.forEachRecord((i, title, author) -> {
+            double score = pending.isMaterialized(i) ? 0 : scanScore(words, title, author);
+            if (score > 0) found.add(new ScanHit(i, null, title, score));
+            return true;
+        });
+        for (Book book : books) {
+            double score = scanScore(words, book.getTitle(), book.getAuthor());
+            if (score > 0) found.add(new ScanHit(-1, book, book.getTitle(), score));
+        }
+        found.sort(Comparator.comparingDouble(ScanHit::score).reversed().thenComparing(ScanHit::title));
+        // A record materialized during the scan can turn up from both sides.
+        Set<Book> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<SearchHit> result = new ArrayList<>(Math.min(limit, found.size()));
+        for (ScanHit hit : found) {
+            if (result.size() == limit) break;
+            Book book = hit.book() != null ? hit.book() : pending.get(hit.record(), this::indexBook);
+            if (seen.add(book)) result.add(new SearchHit(book, hit.score()));
+        }
+        return result;
+    }
+
+    private static double scanScore(String[] words, String title, String author) {
+        String t = CatalogIndex.key(title);
+        String a = CatalogIndex.key(author);
+        double score = 0;
+        for (String word : words) {
+            if (t.contains(word)) score += 2;
+            else if (a.contains(word)) score += 1;
+            else return 0;
+        }
+        return score;
+    }
+
+    // Titles starting with the prefix, indexed books first, then snapshot records in storage order.
+    private List<String> suggestWhileWarming(SnapshotCatalog pending, String prefix, int limit) {
+        String key = CatalogIndex.key(prefix.strip());
+        if (key.isEmpty() || limit <= 0) return List.of();
+        Set<String> result = new LinkedHashSet<>();
+        for (Book book : books) {
+            if (result.size() == limit) return new ArrayList<>(result);
+            if (CatalogIndex.key(book.getTitle()).startsWith(key)) result.add(book.getTitle());
+        }
+        pending.forEachRecord((i, title, author) -> {
+            if (CatalogIndex.key(title).startsWith(key)) result.add(title);
+            return result.size() < limit;
+        });
+        return new ArrayList<>(result);
+    }
+
+    public int getBookCount() {
+        ShardedStore shards = cluster;
+        if (shards != null) return shards.getBookCount();
+        OffHeapCatalog nativeCatalog = offHeap;
+        if (nativeCatalog != null) return nativeCatalog.size();
+        SnapshotCatalog pending = pendingCatalog;
+        return catalogIndex.size() + (pending == null ? 0 : pending.remaining());
+    }
+
     public void listBooks() {
-        if (books.isEmpty()) {
+        Collection<Book> catalog = catalogBooks();
+        if (catalog.isEmpty()) {
             System.out.println("[Info] No books available.");
             return;
         }
-        for (Book b : books) b.displayDetails();
+        StoreFormatter.console().books(catalog).flush();
     }
 
+    // Returns null if the username is already taken.
+    public User register(String username, String password, Role role) {
+        Account account = userDirectory.register(username, password, role);
+        if (account == null) return null;
+        StoreJournal j = journal;
+        if (j != null) j.appendAccount(account);
+        addUser(account.user());
+        return account.user();
+    }
+
+    public Session login(String username, String password, Role role) {
+        return userDirectory.login(username, password, role);
+    }
+
+    public Session getSession(String token) {
+        return userDirectory.session(token);
+    }
+
+    public UserDirectory getUserDirectory() {
+        return userDirectory;
+    }
+
+    // Subscribes the user to their own order notifications.
     public void addUser(User user) {
-        users.add(user);
-        registerObserver(user);
+        // Users only hear about their own orders, not every order in the store. A User prints
+        // what it hears, so headless runs do not subscribe it at all.
+        if (!headless) dispatcher.subscribe(user.getUsername(), user);
     }
 
     public void setLoggedInUser(User user) {
@@ -337,44 +1015,359 @@ class BookStoreManager implements Subject {
     }
 
     public boolean userExists(String username, String password) {
-        return users.stream().anyMatch(u -> u.getUsername().equals(username) && u.getPassword().equals(password));
+        return userDirectory.verify(username, password, Role.USER)
+            || userDirectory.verify(username, password, Role.ADMIN);
     }
 
     public void placeOrder(Order order) {
-        orders.add(order);
-        notifyObservers(order.toString());
+        long start = System.nanoTime();
+        try {
+            StoreJournal j = journal;
+            if (j != null) j.appendOrder(order);
+            ShardedStore shards = cluster;
+            if (shards != null) shards.placeOrder(order);
+            logOrder(order, null);
+            dispatcher.publish(order.getUser(), order.toString());
+        } finally {
+            metrics.record(StoreOperation.PLACE_ORDER, start);
+        }
+    }
+
+    // Commits a paid cart as one unit: a single journal batch, then the in-memory log.
+    public void placeOrders(List<Order> batch, String paymentMethod) {
+        long start = System.nanoTime();
+        try {
+            StoreJournal j = journal;
+            if (j != null) j.appendOrders(batch);
+            ShardedStore shards = cluster;
+            if (shards != null) shards.placeOrders(batch);
+            for (Order order : batch) logOrder(order, paymentMethod);
+            for (Order order : batch) dispatcher.publish(order.getUser(), order.toString());
+        } finally {
+            metrics.record(StoreOperation.PLACE_ORDER, start);
+        }
+    }
+
+    private void logOrder(Order order, String paymentMethod) {
+        if (cluster == null) orders.append(order);
+        ordersPlaced.increment();
+        Book book = findBook(order.getTitle());
+        analytics.record(order, book == null ? null : book.getGenre(), paymentMethod);
+        recommendations.record(order.getUser(), order.getTitle());
+    }
+
+    public SalesAnalytics getAnalytics() {
+        return analytics;
+    }
+
+    public Recommendations getRecommendations() {
+        return recommendations;
+    }
+
+    // Accepts any spelling of the title the catalog accepts.
+    public List<String> recommendForTitle(String title, int limit) {
+        Book book = findBook(title);
+        return recommendations.forTitle(book != null ? book.getTitle() : title, limit);
     }
 
     public void viewOrders() {
-        if (orders.isEmpty()) {
+        ShardedStore shards = cluster;
+        if (shards != null ? shards.getOrderCount() == 0 : orders.isEmpty()) {
             System.out.println("No orders yet.");
+            return;
+        }
+        StoreFormatter out = StoreFormatter.console();
+        if (shards != null) {
+            for (Order order : shards.getOrders()) out.order(order);
         } else {
-            orders.forEach(System.out::println);
+            for (int row = 0, n = orders.size(); row < n; row++) out.order(orders.get(row));
         }
+        out.flush();
+    }
+
+    public int getOrderCount() {
+        ShardedStore shards = cluster;
+        return shards != null ? shards.getOrderCount() : orders.size();
+    }
+
+    // ---------- order lifecycle ----------
+
+    public Order findOrder(String orderId) {
+        ShardedStore shards = cluster;
+        return shards != null ? shards.findOrder(orderId) : orders.find(orderId);
+    }
+
+    public List<Order> getOrdersForUser(String username) {
+        ShardedStore shards = cluster;
+        return shards != null ? shards.getOrdersForUser(username) : orders.forUser(username);
+    }
+
+    public List<Order> getOrdersBetween(long fromMillis, long toMillis) {
+        ShardedStore shards = cluster;
+        return shards != null ? shards.getOrdersBetween(fromMillis, toMillis) : orders.between(fromMillis, toMillis);
+    }
+
+    public List<Order> getOrdersWithStatus(OrderStatus status) {
+        ShardedStore shards = cluster;
+        return shards != null ? shards.getOrdersWithStatus(status) : orders.withStatus(status);
+    }
+
+    public long countOrders(OrderStatus status) {
+        ShardedStore shards = cluster;
+        return shards != null ? shards.countOrders(status) : orders.count(status);
+    }
+
+    // Moves a stored order one lifecycle step and journals the move; false if the order cannot
+    // take that step from where it is now. A cancelled order puts its copies back in stock. In
+    // cluster mode the step is taken on the node holding the order, and the caller's copy keeps
+    // its old status.
+    public boolean updateOrderStatus(Order order, OrderStatus next) {
+        ShardedStore shards = cluster;
+        boolean moved = shards != null ? shards.transition(order, next) : orders.transition(order, next);
+        if (!moved) return false;
+        StoreJournal j = journal;
+        if (j != null) j.appendOrderStatus(order.getOrderId(), next);
+        if (next == OrderStatus.CANCELLED) restock(order);
+        dispatcher.publish(order.getUser(), "Order for " + order.getTitle() + " is now " + next.label() + ".");
+        return true;
+    }
+
+    private void restock(Order order) {
+        Book book = findBook(order.getTitle());
+        if (book != null) book.release(order.getQuantity());
     }
 
     @Override
     public void registerObserver(Observer observer) {
-        observers.add(observer);
+        dispatcher.subscribe(NotificationDispatcher.BROADCAST, observer);
     }
 
     @Override
     public void removeObserver(Observer observer) {
-        observers.remove(observer);
+        dispatcher.unsubscribeAll(observer);
     }
 
     @Override
     public void notifyObservers(String message) {
-        observers.forEach(o -> o.update(message));
+        long start = System.nanoTime();
+        dispatcher.broadcast(message);
+        metrics.record(StoreOperation.NOTIFY_OBSERVERS, start);
+    }
+
+    // Rebuilds books, users and orders from the journal, then journals every later change.
+    // Stock is not journaled separately: each replayed order takes its quantity back out.
+    public int recover(StoreJournal journal) throws IOException {
+        return recover(journal, JournalPosition.START);
+    }
+
+    // Replays only what was journaled from `from` on, e.g. the tail after a snapshot.
+    public int recover(StoreJournal journal, JournalPosition from) throws IOException {
+        int records = journal.replay(new JournalReplayHandler() {
+            @Override
+            public void onBook(Book book) {
+                indexBook(book);
+            }
+
+            @Override
+            public void onAccount(Account account) {
+                userDirectory.restore(account);
+                addUser(account.user());
+            }
+
+            @Override
+            public void onOrder(Order order) {
+                logOrder(order, null);
+                Book book = findBook(order.getTitle());
+                if (book != null) book.setQuantity(Math.max(0, book.getQuantity() - order.getQuantity()));
+            }
+
+            @Override
+            public void onOrderStatus(String orderId, OrderStatus status) {
+                Order order = orders.find(orderId);
+                if (order != null && orders.restoreStatus(order, status) && status == OrderStatus.CANCELLED) {
+                    restock(order);
+                }
+            }
+
+            @Override
+            public void onPrice(String title, double price) {
+                Book book = findBook(title);
+                if (book != null) book.setPrice(price);
+            }
+        }, from);
+        this.journal = journal;
+        return records;
+    }
+
+    // ---------- snapshots ----------
+
+    void restoreAccount(Account account) {
+        userDirectory.restore(account);
+        addUser(account.user());
+    }
+
+    // Serves lookups from the snapshot right away. A background thread moves every book into
+    // the catalog indexes, then feeds the snapshot's orders to analytics and recommendations.
+    // Until the first part is done, search, suggestions and author lookups scan the mapped
+    // records, one pass per query, while paged listings, genre lookups and catalogBooks() wait.
+    // An off-heap catalog has no indexes to warm, so the records are copied in before returning.
+    void attachCatalog(SnapshotCatalog catalog) {
+        int snapshotOrders = orders.size();
+        CompletableFuture<Void> ready = new CompletableFuture<>();
+        OffHeapCatalog target = offHeap;
+        if (target != null) {
+            for (int i = 0; i < catalog.size(); i++) target.add(catalog.read(i));
+        } else {
+            pendingCatalog = catalog;
+        }
+        catalogReady = ready;
+        Thread.ofPlatform().daemon().name("snapshot-warmup").start(() -> {
+            try {
+                if (target == null) {
+                    for (int i = 0; i < catalog.size(); i++) catalog.get(i, this::indexBook);
+                    if (pendingCatalog == catalog) pendingCatalog = null;
+                }
+                ready.complete(null);
+                for (int row = 0; row < snapshotOrders; row++) {
+                    Order order = orders.get(row);
+                    ordersPlaced.increment();
+                    Book book = findBook(order.getTitle());
+                    analytics.record(order, book == null ? null : book.getGenre(), null);
+                    recommendations.record(order.getUser(), order.getTitle());
+                }
+            } catch (RuntimeException e) {
+                ready.completeExceptionally(e);
+                System.err.println("[Snapshot] Warmup failed: " + e.getMessage());
+            }
+        });
+    }
+
+    public void awaitCatalog() {
+        catalogReady.join();
+    }
+
+    // Returns the book as the catalog now holds it: itself, or its view in off-heap mode.
+    private Book indexBook(Book book) {
+        ShardedStore shards = cluster;
+        if (shards != null) {
+            shards.addBook(book);
+            return new ClusterBook(shards, book);
+        }
+        OffHeapCatalog nativeCatalog = offHeap;
+        if (nativeCatalog != null) return nativeCatalog.add(book);
+        books.add(book);
+        catalogIndex.add(book);
+        catalogSearch.add(book);
+        book.publishChangesTo(changes);
+        return book;
+    }
+
+    // The catalog index, falling back to the snapshot while warmup is still running.
+    private Book findBook(String title) {
+        ShardedStore shards = cluster;
+        if (shards != null) {
+            Book snapshot = title == null ? null : shards.getBookByTitle(title);
+            return snapshot == null ? null : new ClusterBook(shards, snapshot);
+        }
+        OffHeapCatalog nativeCatalog = offHeap;
+        if (nativeCatalog != null) return title == null ? null : nativeCatalog.find(title);
+        Book book = catalogIndex.findByTitle(title);
+        if (book != null) return book;
+        SnapshotCatalog pending = pendingCatalog;
+        if (pending == null) return null;
+        int i = pending.find(title);
+        return i < 0 ? null : pending.get(i, this::indexBook);
+    }
+
+    Collection<Book> catalogBooks() {
+        awaitCatalog();
+        ShardedStore shards = cluster;
+        if (shards != null) return clusterViews(shards, shards.getBooks());
+        OffHeapCatalog nativeCatalog = offHeap;
+        return nativeCatalog != null ? nativeCatalog.books() : Collections.unmodifiableCollection(books);
+    }
+
+    private static List<Book> clusterViews(ShardedStore shards, List<Book> snapshots) {
+        List<Book> views = new ArrayList<>(snapshots.size());
+        for (Book book : snapshots) views.add(new ClusterBook(shards, book));
+        return views;
+    }
+
+    OrderStore orderStore() {
+        return orders;
+    }
+
+    // Drops all in-memory state so benchmarks can start each trial from an empty store.
+    void reset() {
+        pendingCatalog = null;
+        offHeap = null;
+        cluster = null;
+        headless = false;
+        BookMetadataRegistry.getInstance().setPooling(true);
+        catalogReady = CompletableFuture.completedFuture(null);
+        books.clear();
+        catalogIndex.clear();
+        catalogSearch.clear();
+        userDirectory.clear();
+        clearOrders();
+        dispatcher.clear();
+        loggedInUser = null;
+    }
+
+    void clearOrders() {
+        orders.clear();
+        analytics = new SalesAnalytics();
+        recommendations.clear();
+    }
+
+    public NotificationDispatcher getDispatcher() {
+        return dispatcher;
     }
     public Book getBookByTitle(String title) {
-    for (Book book : books) {
-        if (book.getTitle().equalsIgnoreCase(title)) {
-            return book;
+        long start = System.nanoTime();
+        Book book = findBook(title);
+        if (book == null) lookupMisses.increment();
+        metrics.record(StoreOperation.BOOK_LOOKUP, start);
+        return book;
+    }
+
+    public List<Book> getBooksByAuthor(String author) {
+        ShardedStore shards = cluster;
+        if (shards != null) return author == null ? List.of() : clusterViews(shards, shards.getBooksByAuthor(author));
+        OffHeapCatalog nativeCatalog = offHeap;
+        if (nativeCatalog != null) {
+            awaitCatalog();
+            return author == null ? List.of() : nativeCatalog.findByAuthor(author);
+        }
+        SnapshotCatalog pending = pendingCatalog;
+        if (pending == null || author == null) return catalogIndex.findByAuthor(author);
+        // Still warming: matching records first, so any materialized meanwhile are in the index.
+        String key = CatalogIndex.key(author);
+        Set<Book> matches = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<Book> result = new ArrayList<>();
+        pending.forEachRecord((i, title, a) -> {
+            if (!pending.isMaterialized(i) && CatalogIndex.key(a).equals(key)) {
+                Book book = pending.get(i, this::indexBook);
+                if (matches.add(book)) result.add(book);
+            }
+            return true;
+        });
+        for (Book book : catalogIndex.findByAuthor(author)) {
+            if (matches.add(book)) result.add(book);
         }
+        return result;
+    }
+
+    // Off-heap and cluster books are all views (OffHeapBook, ClusterBook), so callers get plain
+    // Books there, never the genre subclass.
+    public List<Book> getBooksByGenre(Class<? extends Book> genre) {
+        ShardedStore shards = cluster;
+        if (shards != null) return clusterViews(shards, shards.getBooksByGenre(genre));
+        awaitCatalog();
+        OffHeapCatalog nativeCatalog = offHeap;
+        if (nativeCatalog != null) return nativeCatalog.findByGenre(genre);
+        return Collections.unmodifiableList(catalogIndex.findByGenre(genre));
     }
-    return null;
-}
 
 }
 
@@ -382,13 +1375,91 @@ class BookStoreManager implements Subject {
 
 public class Sdadesign {
     private static final Scanner scanner = new Scanner(System.in);
-    static final List<User> registeredUsers = new ArrayList<>();
-    static final List<User> registeredAdmins = new ArrayList<>();
+    // One instance per method: the payment pipeline batches by strategy instance.
+    private static final PaymentStrategy CARD = new CreditCardPayment();
+    private static final PaymentStrategy PAYPAL = new PaypalPayment();
+    private static final PaymentStrategy CRYPTO = new CryptoPayment();
+    private static final int PAGE_SIZE = 20;
+    private static final String USAGE = "Usage: sdadesign [--data-dir DIR] [--import FILE] [--serve PORT]"
+        + " [--metrics-file FILE] [--build-cds ARCHIVE] [--simulate SPEC] [--cluster NODES] [--offheap-catalog]"
+        + " [--exit-after-load]";
 
     public static void main(String[] args) {
         BookStoreManager manager = BookStoreManager.getInstance();
         PaymentCartNotificationManager pcm = PaymentCartNotificationManager.getInstance();
 
+        Path dataDir = null;
+        Path importFile = null;
+        Integer servePort = null;
+        Path metricsFile = null;
+        Path cdsArchive = null;
+        String simulation = null;
+        Integer clusterNodes = null;
+        boolean offHeapCatalog = false;
+        boolean exitAfterLoad = false;
+        for (int i = 0; i < args.length; i++) {
+            String flag = args[i];
+            boolean valued = switch (flag) {
+                case "--data-dir", "--import", "--serve", "--metrics-file", "--build-cds", "--simulate", "--cluster" -> true;
+                default -> false;
+            };
+            if (valued && i + 1 == args.length) usage(flag + " needs a value");
+            switch (flag) {
+                case "--data-dir" -> dataDir = Path.of(args[++i]);
+                case "--import" -> importFile = Path.of(args[++i]);
+                case "--serve" -> {
+                    try {
+                        servePort = Integer.parseInt(args[++i]);
+                    } catch (NumberFormatException e) {
+                        usage("--serve needs a port number, not " + args[i]);
+                    }
+                }
+                case "--metrics-file" -> metricsFile = Path.of(args[++i]);
+                case "--build-cds" -> cdsArchive = Path.of(args[++i]);
+                case "--simulate" -> simulation = args[++i];
+                case "--cluster" -> {
+                    try {
+                        clusterNodes = Integer.parseInt(args[++i]);
+                    } catch (NumberFormatException e) {
+                        usage("--cluster needs a node count, not " + args[i]);
+                    }
+                    if (clusterNodes < 1) usage("--cluster needs at least one node");
+                }
+                case "--offheap-catalog" -> offHeapCatalog = true;
+                case "--exit-after-load" -> exitAfterLoad = true;
+                default -> usage("Unknown option " + flag);
+            }
+        }
+        if (cdsArchive != null) {
+            buildCdsArchive(cdsArchive, dataDir);
+            return;
+        }
+        if (metricsFile != null) exportMetrics(metricsFile);
+        if (clusterNodes != null && (dataDir != null || offHeapCatalog)) {
+            usage("--cluster keeps the store on its nodes and cannot be combined with --data-dir or --offheap-catalog");
+        }
+        if (offHeapCatalog) manager.useOffHeapCatalog();
+        if (clusterNodes != null) startCluster(manager, clusterNodes);
+        if (servePort != null || simulation != null) manager.useHeadlessMode();
+        if (dataDir != null) {
+            openJournal(manager, pcm, dataDir);
+            pcm.getSessions().setSpillDirectory(dataDir.resolve("carts"));
+        }
+        if (importFile != null) importCatalog(manager, importFile);
+        if (exitAfterLoad) {
+            manager.awaitCatalog();
+            System.out.println("[Startup] " + manager.getBookCount() + " books, " + manager.getOrderCount() + " orders loaded.");
+            return;
+        }
+        if (simulation != null) {
+            simulate(manager, pcm, simulation);
+            return;
+        }
+        if (servePort != null) {
+            serve(manager, pcm, servePort);
+            return;
+        }
+
         System.out.println();
         System.out.println("================================================");
         System.out.println("              Welcome to FolioVerse             ");
@@ -418,6 +1489,311 @@ public class Sdadesign {
         }
     }
 
+    private static void usage(String problem) {
+        System.err.println("[Startup] " + problem);
+        System.err.println(USAGE);
+        System.exit(2);
+    }
+
+    // Starts from the snapshot when there is one and replays only the journal written after it.
+    // On shutdown the journal is closed and a fresh snapshot taken at its final position.
+    private static void openJournal(BookStoreManager manager, PaymentCartNotificationManager pcm, Path dir) {
+        try {
+            StoreJournal journal = StoreJournal.open(dir);
+            Path snapshot = dir.resolve(StoreSnapshot.FILE_NAME);
+            JournalPosition from = JournalPosition.START;
+            if (Files.exists(snapshot)) {
+                long start = System.nanoTime();
+                from = StoreSnapshot.load(snapshot, manager, pcm);
+                System.out.printf("[Snapshot] Loaded %s in %d ms%n", snapshot, (System.nanoTime() - start) / 1_000_000);
+            }
+            int records = manager.recover(journal, from);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    journal.close();
+                } catch (IOException e) {
+                    System.err.println("[Journal] Close failed: " + e.getMessage());
+                    return;
+                }
+                try {
+                    // Held copies go back on the shelf; restored carts reserve again at checkout.
+                    pcm.getInventory().releaseEverything();
+                    StoreSnapshot.write(snapshot, manager, pcm, journal.position());
+                } catch (IOException | RuntimeException e) {
+                    System.err.println("[Snapshot] Write failed: " + e.getMessage());
+                }
+            }));
+            System.out.println("[Journal] Restored " + records + " records from " + dir);
+        } catch (IOException e) {
+            System.out.println("[Journal] Could not open " + dir + ": " + e.getMessage());
+        }
+    }
+
+    // Records the classes a warm start loads into an AppCDS archive, by running this program once
+    // more with --exit-after-load. Start later runs with -XX:SharedArchiveFile=<archive>.
+    private static void buildCdsArchive(Path archive, Path dataDir) {
+        String classPath = System.getProperty("java.class.path");
+        for (String entry : classPath.split(java.io.File.pathSeparator)) {
+            if (Files.isDirectory(Path.of(entry))) {
+                System.out.println("[CDS] Run from the packaged jar; archives cannot include class directories like " + entry);
+                return;
+            }
+        }
+        String java = ProcessHandle.current().info().command().orElse("java");
+        List<String> command = new ArrayList<>(List.of(java, "-XX:ArchiveClassesAtExit=" + archive,
+            "-cp", classPath, Sdadesign.class.getName()));
+        if (dataDir != null) command.addAll(List.of("--data-dir", dataDir.toString()));
+        command.add("--exit-after-load");
+        try {
+            int exit = new ProcessBuilder(command).inheritIO().start().waitFor();
+            if (exit != 0) {
+                System.out.println("[CDS] Archive run exited with " + exit);
+                return;
+            }
+            System.out.println("[CDS] Wrote " + archive + "; start with -XX:SharedArchiveFile=" + archive);
+        } catch (IOException e) {
+            System.out.println("[CDS] Could not start " + java + ": " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // N store nodes on loopback ports in this JVM; the manager routes books and orders to them.
+    private static void startCluster(BookStoreManager manager, int nodes) {
+        try {
+            LocalCluster cluster = LocalCluster.start(nodes);
+            manager.useCluster(cluster.client());
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    cluster.close();
+                } catch (IOException e) {
+                    System.err.println("[Cluster] Close failed: " + e.getMessage());
+                }
+            }));
+            System.out.println("[Cluster] " + nodes + " store nodes started");
+        } catch (IOException e) {
+            System.out.println("[Cluster] Could not start: " + e.getMessage() + "; using the in-heap store");
+        }
+    }
+
+    private static void exportMetrics(Path file) {
+        StoreMetrics metrics = StoreMetrics.getInstance();
+        metrics.exportEvery(file, Duration.ofSeconds(15));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                metrics.writeTo(file);
+            } catch (IOException e) {
+                System.err.println("[Metrics] Could not write " + file + ": " + e.getMessage());
+            }
+        }));
+    }
+
+    private static void importCatalog(BookStoreManager manager, Path file) {
+        try {
+            ImportResult result = new CatalogImporter(manager).importFile(file);
+            System.out.println("[Import] " + result);
+        } catch (IOException | RuntimeException e) {
+            System.out.println("[Import] Failed to import " + file + ": " + e.getMessage());
+        }
+    }
+
+    private static void simulate(BookStoreManager manager, PaymentCartNotificationManager pcm, String spec) {
+        try {
+            new LoadSimulator(SimulationConfig.parse(spec), manager, pcm).run(System.out);
+        } catch (IllegalArgumentException e) {
+            System.out.println("[Simulate] " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void serve(BookStoreManager manager, PaymentCartNotificationManager pcm, int port) {
+        try {
+            StoreHttpServer server = new StoreHttpServer(port, manager, pcm);
+            server.start();
+            System.out.println("[Server] FolioVerse API listening on port " + server.getPort());
+        } catch (IOException e) {
+            System.out.println("[Server] Could not start on port " + port + ": " + e.getMessage());
+        }
+    }
+
+    private static void browseBooks(BookStoreManager manager) {
+        if (manager.getBookCount() == 0) {
+            System.out.println("[Info] No books available.");
+            return;
+        }
+        System.out.print("Sort by (1: Title, 2: Price): ");
+        BookSort sort = scanner.nextLine().trim().equals("2") ? BookSort.PRICE : BookSort.TITLE;
+
+        StoreFormatter out = StoreFormatter.console();
+        String cursor = null;
+        do {
+            Page<Book> page = manager.queryBooks(BookQuery.sortedBy(sort), cursor, PAGE_SIZE);
+            out.books(page.items()).flush();
+            cursor = page.nextCursor();
+        } while (cursor != null && nextPageWanted());
+    }
+
+    private static void browseOrders(BookStoreManager manager) {
+        System.out.print("Sort by (1: Date, 2: Price, 3: Title): ");
+        OrderSort sort = switch (scanner.nextLine().trim()) {
+            case "2" -> OrderSort.PRICE;
+            case "3" -> OrderSort.TITLE;
+            default -> OrderSort.DATE;
+        };
+
+        StoreFormatter out = StoreFormatter.console();
+        String cursor = null;
+        boolean any = false;
+        do {
+            Page<Order> page;
+            try {
+                page = manager.queryOrders(OrderQuery.sortedBy(sort), cursor, PAGE_SIZE);
+            } catch (UnsupportedOperationException e) {
+                System.out.println("❌ " + e.getMessage() + ".");
+                return;
+            }
+            any |= !page.items().isEmpty();
+            out.orders(page.items()).flush();
+            cursor = page.nextCursor();
+        } while (cursor != null && nextPageWanted());
+        if (!any) System.out.println("No orders yet.");
+    }
+
+    private static void updatePrice(BookStoreManager manager) {
+        System.out.print("Book title: ");
+        Book book = findTitle(manager, scanner.nextLine());
+        if (book == null) {
+            System.out.println("❌ Book not found.");
+            return;
+        }
+        System.out.print("New price (currently $" + book.getPrice() + "): ");
+        double price;
+        try {
+            price = Double.parseDouble(scanner.nextLine().trim());
+        } catch (NumberFormatException e) {
+            System.out.println("Invalid price.");
+            return;
+        }
+        if (price < 0) {
+            System.out.println("Invalid price.");
+            return;
+        }
+        manager.updatePrice(book, price);
+        System.out.println("✅ \"" + book.getTitle() + "\" now costs $" + price + ".");
+    }
+
+    // Finds orders through the user, time or status index, then moves one along its lifecycle.
+    private static void manageOrders(BookStoreManager manager) {
+        System.out.print("Show (1: By user, 2: Last hour, 3: By status): ");
+        List<Order> found;
+        switch (scanner.nextLine().trim()) {
+            case "1" -> {
+                System.out.print("Username: ");
+                found = manager.getOrdersForUser(scanner.nextLine().trim());
+            }
+            case "2" -> {
+                long now = System.currentTimeMillis();
+                found = manager.getOrdersBetween(now - Duration.ofHours(1).toMillis(), now + 1);
+            }
+            case "3" -> {
+                System.out.print("Status (pending/paid/shipped/delivered/cancelled): ");
+                try {
+                    found = manager.getOrdersWithStatus(OrderStatus.parse(scanner.nextLine().trim()));
+                } catch (IllegalArgumentException e) {
+                    System.out.println("Invalid status.");
+                    return;
+                }
+            }
+            default -> {
+                System.out.println("Invalid option.");
+                return;
+            }
+        }
+        if (found.isEmpty()) {
+            System.out.println("No matching orders.");
+            return;
+        }
+        StoreFormatter out = StoreFormatter.console();
+        for (int i = 0; i < found.size(); i++) out.text("#" + (i + 1) + " " + found.get(i));
+        out.flush();
+
+        System.out.print("Order # to update (Enter to go back): ");
+        String pick = scanner.nextLine().trim();
+        if (pick.isEmpty()) return;
+        Order order;
+        OrderStatus next;
+        try {
+            order = found.get(Integer.parseInt(pick) - 1);
+            System.out.print("New status (paid/shipped/delivered/cancelled): ");
+            next = OrderStatus.parse(scanner.nextLine().trim());
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            System.out.println("Invalid choice.");
+            return;
+        }
+        if (manager.updateOrderStatus(order, next)) {
+            System.out.println("✅ Order is now " + next.label() + ".");
+        } else {
+            Order current = Objects.requireNonNullElse(manager.findOrder(order.getOrderId()), order);
+            System.out.println("❌ A " + current.getStatus() + " order cannot become " + next.label() + ".");
+        }
+    }
+
+    private static void searchBooks(BookStoreManager manager) {
+        System.out.print("Search title or author: ");
+        List<SearchHit> hits = manager.searchBooks(scanner.nextLine(), PAGE_SIZE);
+        if (hits.isEmpty()) {
+            System.out.println("No matching books.");
+            return;
+        }
+        StoreFormatter out = StoreFormatter.console();
+        for (SearchHit hit : hits) out.book(hit.book());
+        out.flush();
+    }
+
+    // Looks a title up exactly, falling back to the closest search hits as suggestions.
+    private static Book findTitle(BookStoreManager manager, String title) {
+        Book book = manager.getBookByTitle(title);
+        if (book == null) {
+            List<SearchHit> hits = manager.searchBooks(title, 3);
+            if (!hits.isEmpty()) {
+                System.out.print("Did you mean: ");
+                System.out.println(String.join(", ", hits.stream().map(h -> h.book().getTitle()).toList()) + "?");
+            }
+        }
+        return book;
+    }
+
+    private static void showAnalytics(SalesAnalytics analytics) {
+        long now = System.currentTimeMillis();
+        SalesTally total = analytics.getTotal();
+        System.out.printf("All time:    %d orders, %d copies, $%.2f%n", total.getOrders(), total.getUnits(), total.getRevenue());
+        System.out.printf("Last minute: %d copies, $%.2f%n", analytics.lastMinute().units(now), analytics.lastMinute().revenue(now));
+        System.out.printf("Last hour:   %d copies, $%.2f%n", analytics.lastHour().units(now), analytics.lastHour().revenue(now));
+        System.out.printf("Last 24h:    %d copies, $%.2f%n", analytics.lastDay().units(now), analytics.lastDay().revenue(now));
+
+        System.out.println("\nRevenue by genre (all time / last 24h):");
+        analytics.byGenre().forEach((genre, t) ->
+            System.out.printf("- %s: $%.2f / $%.2f%n", genre, t.getRevenue(), analytics.genreRevenueLastDay(genre, now)));
+        System.out.println("\nRevenue by payment method:");
+        analytics.byMethod().forEach((method, t) ->
+            System.out.printf("- %s: %d orders, $%.2f%n", method, t.getOrders(), t.getRevenue()));
+
+        System.out.println("\nTop titles, last hour:");
+        for (RankedItem item : analytics.topTitlesLastHour(10, now)) {
+            System.out.println("- " + item.key() + ": " + item.units() + " copies");
+        }
+        System.out.println("\nTop titles, all time:");
+        for (RankedItem item : analytics.topTitles(10)) {
+            System.out.println("- " + item.key() + ": " + item.units() + " copies");
+        }
+    }
+
+    private static boolean nextPageWanted() {
+        System.out.print("Press Enter for the next page, or q to stop: ");
+        return !scanner.nextLine().trim().equalsIgnoreCase("q");
+    }
+
     private static void adminAuthMenu(BookStoreManager manager) {
         while (true) {
             System.out.println("\n------------------------------------------------");
@@ -437,10 +1813,11 @@ public class Sdadesign {
                     String uname = scanner.nextLine();
                     System.out.print("Enter Admin password: ");
                     String pass = scanner.nextLine();
-                    User admin = new User(uname, pass);
-                    registeredAdmins.add(admin);
-                    manager.addUser(admin);
-                    System.out.println("Admin registered successfully. Please log in.");
+                    if (manager.register(uname, pass, Role.ADMIN) == null) {
+                        System.out.println("Username already taken. Please choose another.");
+                    } else {
+                        System.out.println("Admin registered successfully. Please log in.");
+                    }
                 }
                 case 2 -> {
                     System.out.println("\n----- Admin Login -----");
@@ -449,17 +1826,13 @@ public class Sdadesign {
                     System.out.print("Password: ");
                     String pass = scanner.nextLine();
 
-                    boolean found = false;
-                    for (User admin : registeredAdmins) {
-                        if (admin.getUsername().equals(uname) && admin.getPassword().equals(pass)) {
-                            manager.setLoggedInUser(admin);
-                            System.out.println("Login successful. Welcome, Admin.");
-                            adminMenu(manager);
-                            found = true;
-                            break;
-                        }
-                    }
-                    if (!found) {
+                    Session session = manager.login(uname, pass, Role.ADMIN);
+                    if (session != null) {
+                        manager.setLoggedInUser(session.user());
+                        System.out.println("Login successful. Welcome, Admin.");
+                        adminMenu(manager);
+                        manager.getUserDirectory().logout(session.token());
+                    } else {
                         System.out.println("Incorrect credentials. Please try again.");
                     }
                 }
@@ -480,7 +1853,10 @@ public class Sdadesign {
             System.out.println("1. Add Book");
             System.out.println("2. List Books");
             System.out.println("3. View Orders");
-            System.out.println("4. Logout");
+            System.out.println("4. Sales Analytics");
+            System.out.println("5. Manage Orders");
+            System.out.println("6. Update Price");
+            System.out.println("7. Logout");
             System.out.print("Enter your choice: ");
 
             int option = scanner.nextInt();
@@ -489,13 +1865,7 @@ public class Sdadesign {
                 case 1 -> {
                     System.out.println("\n----- Add New Book -----");
                     System.out.print("Enter format (ebook/physical): ");
-                    String format = scanner.nextLine().toLowerCase();
-
-                    BookFactory factory = switch (format) {
-                        case "ebook" -> new EBookFactory();
-                        case "physical" -> new PhysicalBookFactory();
-                        default -> null;
-                    };
+                    BookFactory factory = BookFactory.forFormat(scanner.nextLine());
 
                     if (factory == null) {
                         System.out.println("❌ Invalid format. Please try again.");
@@ -503,7 +1873,7 @@ public class Sdadesign {
                     }
 
                     System.out.print("Enter genre (fiction/nonfiction/science): ");
-                    String genre = scanner.nextLine().toLowerCase();
+                    String genre = scanner.nextLine();
 
                     System.out.print("Enter title: ");
                     String title = scanner.nextLine();
@@ -528,13 +1898,25 @@ public class Sdadesign {
 
                 case 2 -> {
                     System.out.println("\n----- Available Books -----");
-                    manager.listBooks();
+                    browseBooks(manager);
                 }
                 case 3 -> {
                     System.out.println("\n----- Orders -----");
-                    manager.viewOrders();
+                    browseOrders(manager);
                 }
                 case 4 -> {
+                    System.out.println("\n----- Sales Analytics -----");
+                    showAnalytics(manager.getAnalytics());
+                }
+                case 5 -> {
+                    System.out.println("\n----- Manage Orders -----");
+                    manageOrders(manager);
+                }
+                case 6 -> {
+                    System.out.println("\n----- Update Price -----");
+                    updatePrice(manager);
+                }
+                case 7 -> {
                     manager.logoutUser();
                     System.out.println("Logged out successfully.");
                     return;
@@ -563,10 +1945,11 @@ public class Sdadesign {
                     String uname = scanner.nextLine();
                     System.out.print("Enter password: ");
                     String pass = scanner.nextLine();
-                    User user = new User(uname, pass);
-                    registeredUsers.add(user);
-                    manager.addUser(user);
-                    System.out.println("Registered successfully. Please log in.");
+                    if (manager.register(uname, pass, Role.USER) == null) {
+                        System.out.println("Username already taken. Please choose another.");
+                    } else {
+                        System.out.println("Registered successfully. Please log in.");
+                    }
                 }
                 case 2 -> {
                     System.out.println("\n----- User Login -----");
@@ -575,18 +1958,14 @@ public class Sdadesign {
                     System.out.print("Password: ");
                     String pass = scanner.nextLine();
 
-                    boolean found = false;
-                    for (User user : registeredUsers) {
-                        if (user.getUsername().equals(uname) && user.getPassword().equals(pass)) {
-                            manager.setLoggedInUser(user);
-                            pcm.setLoggedInUser(uname);
-                            System.out.println("Login successful.");
-                            loggedInUserMenu(manager, pcm);
-                            found = true;
-                            break;
-                        }
-                    }
-                    if (!found) {
+                    Session session = manager.login(uname, pass, Role.USER);
+                    if (session != null) {
+                        manager.setLoggedInUser(session.user());
+                        pcm.setLoggedInUser(uname);
+                        System.out.println("Login successful.");
+                        loggedInUserMenu(manager, pcm);
+                        manager.getUserDirectory().logout(session.token());
+                    } else {
                         System.out.println("Incorrect credentials. Try again.");
                     }
                 }
@@ -611,7 +1990,8 @@ public class Sdadesign {
             System.out.println("5. Notifications");
             System.out.println("6. Place Order");
             System.out.println("7. Make Payment");
-            System.out.println("8. Logout");
+            System.out.println("8. Search Books");
+            System.out.println("9. Logout");
             System.out.print("Enter your choice: ");
 
             int choice = scanner.nextInt();
@@ -619,14 +1999,14 @@ public class Sdadesign {
             switch (choice) {
                 case 1 -> {
                     System.out.println("\n----- Available Books -----");
-                    manager.listBooks();
+                    browseBooks(manager);
                 }
                 case 2 -> {
                     System.out.println("\n----- Add to Cart -----");
                     System.out.print("Book title: ");
                     String title = scanner.nextLine();
 
-                    Book book = manager.getBookByTitle(title);
+                    Book book = findTitle(manager, title);
                     if (book == null) {
                         System.out.println("❌ Book not found. Cannot add to cart.");
                         break; // Don't ask for quantity
@@ -639,7 +2019,7 @@ public class Sdadesign {
                     int qty = scanner.nextInt();
                     scanner.nextLine();
 
-                    pcm.addToCart(title, qty, manager);
+                    pcm.addToCart(book, qty);
                 }
                 case 3 -> {
                     System.out.println("\n----- Your Cart -----");
@@ -658,7 +2038,7 @@ public class Sdadesign {
                     System.out.println("\n----- Place Order -----");
                     System.out.print("Enter Book Title: ");
                     String bookTitle = scanner.nextLine();
-                    Book selectedBook = manager.getBookByTitle(bookTitle);
+                    Book selectedBook = findTitle(manager, bookTitle);
 
                     if (selectedBook == null) {
                         System.out.println("Book not found.");
@@ -669,37 +2049,30 @@ public class Sdadesign {
                     int quantity = scanner.nextInt();
                     scanner.nextLine();
 
-                    System.out.print("Format (ebook/physical): ");
-                    String format = scanner.nextLine().toLowerCase();
+                    if (quantity <= 0 || !selectedBook.tryReserve(quantity)) {
+                        System.out.println("Not enough stock. Available quantity: " + selectedBook.getQuantity());
+                        break;
+                    }
 
-                    BookFactory factory = switch (format) {
-                        case "ebook" -> new EBookFactory();
-                        case "physical" -> new PhysicalBookFactory();
-                        default -> null;
-                    };
+                    System.out.print("Format (ebook/physical): ");
+                    BookFormat format = BookFormat.parse(scanner.nextLine());
 
-                    if (factory == null) {
+                    if (format == null) {
+                        selectedBook.release(quantity);
                         System.out.println("Invalid format.");
                         break;
                     }
 
-                    Book orderedBook = factory.createBook(
-                        selectedBook instanceof FictionBook ? "fiction" :
-                        selectedBook instanceof NonFictionBook ? "nonfiction" :
-                        selectedBook instanceof ScienceBook ? "science" : "unknown",
-                        selectedBook.title, selectedBook.author, selectedBook.price
-                    );
-
                     Order order = OrderFactory.createOrder(
-                        format,
-                        "unknown",
+                        format.key(),
+                        selectedBook.getGenre(),
                         UUID.randomUUID().toString(),
                         manager.getLoggedInUser().getUsername(),
                         new Date(),
-                        selectedBook.price * quantity,
+                        selectedBook.getPrice() * quantity,
                         quantity,
-                        "Pending",
-                        selectedBook.title
+                        OrderStatus.PENDING.label(),
+                        selectedBook.getTitle()
                     );
 
                     manager.placeOrder(order);
@@ -710,9 +2083,9 @@ public class Sdadesign {
                     System.out.print("Choose payment method (1: Card, 2: PayPal, 3: Crypto): ");
                     int m = scanner.nextInt(); scanner.nextLine();
                     PaymentStrategy strategy = switch (m) {
-                        case 1 -> new CreditCardPayment();
-                        case 2 -> new PaypalPayment();
-                        case 3 -> new CryptoPayment();
+                        case 1 -> CARD;
+                        case 2 -> PAYPAL;
+                        case 3 -> CRYPTO;
                         default -> null;
                     };
                     if (strategy != null) {
@@ -722,6 +2095,10 @@ public class Sdadesign {
                     }
                 }
                 case 8 -> {
+                    System.out.println("\n----- Search Books -----");
+                    searchBooks(manager);
+                }
+                case 9 -> {
                     manager.logoutUser();
                     System.out.println("Logged out successfully.");
                     return;
@@ -0,0 +1,1007 @@
+package com.mycompany.sdadesign;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+// ========== SHARD RING ==========
+// Consistent hashing with virtual nodes: each node owns `vnodes` points on a 64-bit ring and a
+// key belongs to the first point at or after its hash. Adding or removing a node moves only the
+// keys next to that node's points. Keys hash case-insensitively, matching catalog lookups.
+class ShardRing {
+    static final int DEFAULT_VNODES = 160;
+
+    private final long[] points;
+    private final int[] owners;
+    private final int nodeCount;
+
+    public ShardRing(int nodeCount, int vnodes) {
+        this.nodeCount = nodeCount;
+        long[][] pairs = new long[nodeCount * vnodes][];
+        for (int n = 0; n < nodeCount; n++) {
+            for (int v = 0; v < vnodes; v++) pairs[n * vnodes + v] = new long[] {hash("node-" + n + "#" + v), n};
+        }
+        Arrays.sort(pairs, Comparator.comparingLong(p -> p[0]));
+        points = new long[pairs.length];
+        owners = new int[pairs.length];
+        for (int i = 0; i < pairs.length; i++) {
+            points[i] = pairs[i][0];
+            owners[i] = (int) pairs[i][1];
+        }
+    }
+
+    public int nodeCount() {
+        return nodeCount;
+    }
+
+    public int owner(String key) {
+        int i = Arrays.binarySearch(points, hash(key));
+        if (i < 0) i = -i - 1;
+        return owners[i == points.length ? 0 : i];
+    }
+
+    // FNV-1a over lower-cased chars, then the MurmurHash3 finalizer to spread nearby keys.
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= Character.toLowerCase(key.charAt(i));
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
+
+// ========== SHARD PROTOCOL ==========
+// Request: one op byte and its arguments. Response: a status byte, then the result or an error
+// message. Books and orders use the same field order as the journal. A request is always read to
+// its end before anything in it is checked, so a rejected request leaves the connection in step.
+final class ShardProtocol {
+    static final byte ADD_BOOKS = 1;
+    static final byte GET_BOOK = 2;
+    static final byte RESERVE = 3;
+    static final byte RELEASE = 4;
+    static final byte PLACE_ORDERS = 5;
+    static final byte LIST_BOOKS = 6;
+    static final byte LIST_ORDERS = 7;
+    static final byte COUNTS = 8;
+    static final byte SET_PRICE = 9;
+    static final byte SET_QUANTITY = 10;
+    static final byte PAGE_USER_ORDERS = 11;
+    static final byte FIND_ORDER = 12;
+    static final byte SET_ORDER_STATUS = 13;
+    static final byte ORDERS_BETWEEN = 14;
+    static final byte ORDERS_WITH_STATUS = 15;
+    static final byte COUNT_WITH_STATUS = 16;
+    static final byte PAGE_BOOKS = 17;
+    static final byte SEARCH = 18;
+    static final byte SUGGEST = 19;
+    static final int OP_COUNT = 19;
+
+    static final byte OK = 0;
+    static final byte ERROR = 1;
+
+    private ShardProtocol() {}
+
+    static void writeBook(DataOutputStream out, Book book) throws IOException {
+        out.writeUTF(book.getFormat().key());
+        out.writeUTF(book.getGenre());
+        out.writeUTF(book.getTitle());
+        out.writeUTF(book.getAuthor());
+        out.writeDouble(book.getPrice());
+        out.writeInt(book.getQuantity());
+    }
+
+    // Reads every field before checking the format and genre, so a bad book is fully consumed.
+    static Book readBook(DataInputStream in) throws IOException {
+        String format = in.readUTF();
+        String genre = in.readUTF();
+        String title = in.readUTF();
+        String author = in.readUTF();
+        double price = in.readDouble();
+        int quantity = in.readInt();
+        BookFactory factory = BookFactory.forFormat(format);
+        if (factory == null) throw new IllegalArgumentException("Unknown book format: " + format);
+        Book book = factory.createBook(genre, title, author, price);
+        if (book == null) throw new IllegalArgumentException("Unknown genre: " + genre);
+        book.setQuantity(quantity);
+        return book;
+    }
+
+    static void writeBooks(DataOutputStream out, Collection<? extends Book> books) throws IOException {
+        out.writeInt(books.size());
+        for (Book book : books) writeBook(out, book);
+    }
+
+    // Reads the whole list even past a bad book, then rejects all of it.
+    static List<Book> readBooks(DataInputStream in) throws IOException {
+        int n = in.readInt();
+        List<Book> books = new ArrayList<>(Math.max(0, Math.min(n, 1024)));
+        IllegalArgumentException invalid = null;
+        for (int i = 0; i < n; i++) {
+            try {
+                books.add(readBook(in));
+            } catch (IllegalArgumentException e) {
+                if (invalid == null) invalid = e;
+            }
+        }
+        if (invalid != null) throw invalid;
+        return books;
+    }
+
+    static void writeOrder(DataOutputStream out, Order order) throws IOException {
+        out.writeUTF(order.getOrderId());
+        out.writeUTF(order.getUser());
+        out.writeLong(order.getTimeMillis());
+        out.writeDouble(order.getPrice());
+        out.writeInt(order.getQuantity());
+        out.writeUTF(order.getStatus());
+        out.writeUTF(order.getTitle());
+    }
+
+    static Order readOrder(DataInputStream in) throws IOException {
+        return new DetachedOrder(in.readUTF(), in.readUTF(), new Date(in.readLong()),
+            in.readDouble(), in.readInt(), in.readUTF(), in.readUTF());
+    }
+
+    static void writeOrders(DataOutputStream out, Collection<? extends Order> orders) throws IOException {
+        out.writeInt(orders.size());
+        for (Order order : orders) writeOrder(out, order);
+    }
+
+    static List<Order> readOrders(DataInputStream in) throws IOException {
+        int n = in.readInt();
+        List<Order> orders = new ArrayList<>(Math.max(0, Math.min(n, 1024)));
+        for (int i = 0; i < n; i++) orders.add(readOrder(in));
+        return orders;
+    }
+
+    static void writeNullableUTF(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) out.writeUTF(value);
+    }
+
+    static String readNullableUTF(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    static void writeNullableDouble(DataOutputStream out, Double value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) out.writeDouble(value);
+    }
+
+    static Double readNullableDouble(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readDouble() : null;
+    }
+}
+
+// ========== BOOK PAGE KEY ==========
+// Where a page of books sorted by title or price resumes. Titles are unique across the cluster,
+// since each lives on the one node owning it, so the last book's sort key and title key name a
+// position every node can seek to; pages from all nodes merge on it. The cursor is that key.
+record BookPageKey(double price, String titleKey) {
+    static final Comparator<BookPageKey> BY_TITLE = Comparator.comparing(BookPageKey::titleKey);
+    static final Comparator<BookPageKey> BY_PRICE =
+        Comparator.comparingDouble(BookPageKey::price).thenComparing(BookPageKey::titleKey);
+
+    static BookPageKey of(Book book) {
+        return new BookPageKey(book.getPrice(), CatalogIndex.key(book.getTitle()));
+    }
+
+    static Comparator<BookPageKey> order(BookSort sort) {
+        return sort == BookSort.PRICE ? BY_PRICE : BY_TITLE;
+    }
+
+    String encode() {
+        String raw = price + ":" + titleKey;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static BookPageKey decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int colon = raw.indexOf(':');
+            return new BookPageKey(Double.parseDouble(raw.substring(0, colon)), raw.substring(colon + 1));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
+
+// ========== STORE NODE ==========
+// One shard: the books whose titles hash to it and the orders of the users who hash to it.
+// Serves the shard protocol on a loopback socket, one virtual thread per connection. Books are
+// kept in title order and in price order, and in a search index of their own, so the node can
+// answer its part of a listing or a search.
+class StoreNode implements Closeable {
+    private final ConcurrentSkipListMap<String, Book> books = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListSet<BookPageKey> byPrice = new ConcurrentSkipListSet<>(BookPageKey.BY_PRICE);
+    private final CatalogSearch search = new CatalogSearch();
+    private final AtomicInteger bookCount = new AtomicInteger();
+    // Serializes catalog writes, so a book's price entry always matches its price.
+    private final Object catalogLock = new Object();
+    private final OrderStore orders = new OrderStore();
+    private final ServerSocket socket;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public StoreNode(int port) throws IOException {
+        this.socket = new ServerSocket();
+        socket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 1024);
+    }
+
+    public void start() {
+        Thread.ofPlatform().daemon().name("store-node-" + getPort()).start(this::acceptLoop);
+    }
+
+    public int getPort() {
+        return socket.getLocalPort();
+    }
+
+    public int getBookCount() { return bookCount.get(); }
+    public int getOrderCount() { return orders.size(); }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+        executor.shutdownNow();
+    }
+
+    private void acceptLoop() {
+        while (!socket.isClosed()) {
+            try {
+                Socket client = socket.accept();
+                executor.execute(() -> serve(client));
+            } catch (IOException e) {
+                if (!socket.isClosed()) System.err.println("[Node " + getPort() + "] Accept failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private void serve(Socket client) {
+        try (client;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(client.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(client.getOutputStream()))) {
+            client.setTcpNoDelay(true);
+            while (true) {
+                int op = in.read();
+                if (op < 0) return;
+                if (op < 1 || op > ShardProtocol.OP_COUNT) {
+                    // Its arguments cannot be skipped, so the connection cannot be kept.
+                    out.writeByte(ShardProtocol.ERROR);
+                    out.writeUTF("Unknown op " + op);
+                    out.flush();
+                    return;
+                }
+                try {
+                    handle((byte) op, in, out);
+                } catch (RuntimeException e) {
+                    out.writeByte(ShardProtocol.ERROR);
+                    out.writeUTF(String.valueOf(e.getMessage()));
+                }
+                out.flush();
+            }
+        } catch (IOException e) {
+            // client went away
+        }
+    }
+
+    private void handle(byte op, DataInputStream in, DataOutputStream out) throws IOException {
+        switch (op) {
+            case ShardProtocol.ADD_BOOKS -> {
+                for (Book book : ShardProtocol.readBooks(in)) addBook(book);
+                out.writeByte(ShardProtocol.OK);
+            }
+            case ShardProtocol.GET_BOOK -> {
+                Book book = books.get(CatalogIndex.key(in.readUTF()));
+                out.writeByte(ShardProtocol.OK);
+                out.writeBoolean(book != null);
+                if (book != null) ShardProtocol.writeBook(out, book);
+            }
+            case ShardProtocol.RESERVE -> {
+                Book book = books.get(CatalogIndex.key(in.readUTF()));
+                int qty = in.readInt();
+                out.writeByte(ShardProtocol.OK);
+                out.writeBoolean(book != null && qty > 0 && book.tryReserve(qty));
+            }
+            case ShardProtocol.RELEASE -> {
+                Book book = books.get(CatalogIndex.key(in.readUTF()));
+                int qty = in.readInt();
+                if (book != null && qty > 0) book.release(qty);
+                out.writeByte(ShardProtocol.OK);
+            }
+            case ShardProtocol.PLACE_ORDERS -> {
+                orders.appendAll(ShardProtocol.readOrders(in));
+                out.writeByte(ShardProtocol.OK);
+            }
+            case ShardProtocol.SET_PRICE -> {
+                Book book = books.get(CatalogIndex.key(in.readUTF()));
+                double price = in.readDouble();
+                if (book != null) {
+                    synchronized (catalogLock) {
+                        byPrice.remove(BookPageKey.of(book));
+                        book.setPrice(price);
+                        byPrice.add(BookPageKey.of(book));
+                    }
+                }
+                out.writeByte(ShardProtocol.OK);
+            }
+            case ShardProtocol.SET_QUANTITY -> {
+                Book book = books.get(CatalogIndex.key(in.readUTF()));
+                int quantity = in.readInt();
+                if (book != null) book.setQuantity(quantity);
+                out.writeByte(ShardProtocol.OK);
+            }
+            case ShardProtocol.PAGE_USER_ORDERS -> {
+                String user = in.readUTF();
+                int sort = in.readByte();
+                String cursor = ShardProtocol.readNullableUTF(in);
+                int limit = in.readInt();
+                String status = ShardProtocol.readNullableUTF(in);
+                Long from = in.readBoolean() ? in.readLong() : null;
+                Long to = in.readBoolean() ? in.readLong() : null;
+                OrderQuery query = new OrderQuery(OrderSort.values()[sort], user,
+                    status == null ? null : OrderStatus.parse(status), from, to);
+                Page<Order> page = orders.pageForUser(user, query.sort(), cursor, limit, query::matches);
+                out.writeByte(ShardProtocol.OK);
+                ShardProtocol.writeOrders(out, page.items());
+                ShardProtocol.writeNullableUTF(out, page.nextCursor());
+            }
+            case ShardProtocol.FIND_ORDER -> {
+                Order order = orders.find(in.readUTF());
+                out.writeByte(ShardProtocol.OK);
+                out.writeBoolean(order != null);
+                if (order != null) ShardProtocol.writeOrder(out, order);
+            }
+            case ShardProtocol.SET_ORDER_STATUS -> {
+                Order order = orders.find(in.readUTF());
+                OrderStatus next = OrderStatus.parse(in.readUTF());
+                boolean moved = order != null && orders.transition(order, next);
+                out.writeByte(ShardProtocol.OK);
+                out.writeBoolean(moved);
+            }
+            case ShardProtocol.ORDERS_BETWEEN -> {
+                List<Order> result = orders.between(in.readLong(), in.readLong());
+                out.writeByte(ShardProtocol.OK);
+                ShardProtocol.writeOrders(out, result);
+            }
+            case ShardProtocol.ORDERS_WITH_STATUS -> {
+                List<Order> result = orders.withStatus(OrderStatus.parse(in.readUTF()));
+                out.writeByte(ShardProtocol.OK);
+                ShardProtocol.writeOrders(out, result);
+            }
+            case ShardProtocol.COUNT_WITH_STATUS -> {
+                long count = orders.count(OrderStatus.parse(in.readUTF()));
+                out.writeByte(ShardProtocol.OK);
+                out.writeLong(count);
+            }
+            case ShardProtocol.PAGE_BOOKS -> pageBooks(in, out);
+            case ShardProtocol.SEARCH -> {
+                String query = in.readUTF();
+                int limit = in.readInt();
+                List<SearchHit> hits = search.search(query, limit);
+                out.writeByte(ShardProtocol.OK);
+                out.writeInt(hits.size());
+                for (SearchHit hit : hits) {
+                    // The index keeps the first book of a title; send the one the node holds now.
+                    Book current = books.get(CatalogIndex.key(hit.book().getTitle()));
+                    ShardProtocol.writeBook(out, current != null ? current : hit.book());
+                    out.writeDouble(hit.score());
+                }
+            }
+            case ShardProtocol.SUGGEST -> {
+                String prefix = in.readUTF();
+                int limit = in.readInt();
+                List<String> titles = search.autocomplete(prefix, limit);
+                out.writeByte(ShardProtocol.OK);
+                out.writeInt(titles.size());
+                for (String title : titles) out.writeUTF(title);
+            }
+            case ShardProtocol.LIST_BOOKS -> {
+                out.writeByte(ShardProtocol.OK);
+                ShardProtocol.writeBooks(out, books.values());
+            }
+            case ShardProtocol.LIST_ORDERS -> {
+                String user = in.readUTF();
+                List<Order> result;
+                if (user.isEmpty()) {
+                    result = new ArrayList<>();
+                    for (int row = 0, n = orders.size(); row < n; row++) result.add(orders.get(row));
+                } else {
+                    result = orders.forUser(user);
+                }
+                out.writeByte(ShardProtocol.OK);
+                ShardProtocol.writeOrders(out, result);
+            }
+            case ShardProtocol.COUNTS -> {
+                out.writeByte(ShardProtocol.OK);
+                out.writeInt(bookCount.get());
+                out.writeInt(orders.size());
+            }
+            default -> throw new IllegalArgumentException("Unknown op " + op);
+        }
+    }
+
+    private void addBook(Book book) {
+        String key = CatalogIndex.key(book.getTitle());
+        synchronized (catalogLock) {
+            Book previous = books.put(key, book);
+            if (previous != null) {
+                byPrice.remove(BookPageKey.of(previous));
+            } else {
+                bookCount.incrementAndGet();
+                search.add(book);
+            }
+            byPrice.add(BookPageKey.of(book));
+        }
+    }
+
+    // Up to limit books after the cursor key in the query's order, then whether more match.
+    private void pageBooks(DataInputStream in, DataOutputStream out) throws IOException {
+        BookSort sort = BookSort.values()[in.readByte()];
+        String cursor = ShardProtocol.readNullableUTF(in);
+        int limit = in.readInt();
+        String genre = ShardProtocol.readNullableUTF(in);
+        String author = ShardProtocol.readNullableUTF(in);
+        Double minPrice = ShardProtocol.readNullableDouble(in);
+        Double maxPrice = ShardProtocol.readNullableDouble(in);
+        BookGenre g = genre == null ? null : BookGenre.parse(genre);
+        if (genre != null && g == null) throw new IllegalArgumentException("Unknown genre: " + genre);
+        BookQuery query = new BookQuery(sort, g == null ? null : g.bookType(), author, minPrice, maxPrice);
+        BookPageKey after = cursor == null ? null : BookPageKey.decode(cursor);
+
+        Iterator<Book> tail;
+        if (sort == BookSort.PRICE) {
+            Iterator<BookPageKey> keys = (after == null ? byPrice : byPrice.tailSet(after, false)).iterator();
+            tail = new Iterator<>() {
+                public boolean hasNext() { return keys.hasNext(); }
+                public Book next() {
+                    // Null when the entry went stale under a concurrent price change.
+                    BookPageKey k = keys.next();
+                    Book book = books.get(k.titleKey());
+                    return book != null && book.getPrice() == k.price() ? book : null;
+                }
+            };
+        } else {
+            tail = (after == null ? books : books.tailMap(after.titleKey(), false)).values().iterator();
+        }
+        List<Book> items = new ArrayList<>(Math.min(limit, 256));
+        boolean more = false;
+        while (tail.hasNext()) {
+            Book book = tail.next();
+            if (book == null || !query.matches(book)) continue;
+            if (items.size() == limit) {
+                more = true;
+                break;
+            }
+            items.add(book);
+        }
+        out.writeByte(ShardProtocol.OK);
+        ShardProtocol.writeBooks(out, items);
+        out.writeBoolean(more);
+    }
+}
+
+// ========== SHARDED STORE ==========
+// Routing client for a set of StoreNodes, with the BookStoreManager method names. Books go to
+// the node owning their title, orders to the node owning their user; listings, searches and
+// lookups by order id, status or time scatter to every node in parallel and merge. Each node has a pool of reusable connections, one per concurrent
+// caller, so requests to one node from different threads never wait on each other's socket.
+class ShardedStore implements Closeable {
+    private static final class Connection implements Closeable {
+        final Socket socket;
+        final DataInputStream in;
+        final DataOutputStream out;
+
+        Connection(int port) throws IOException {
+            socket = new Socket(InetAddress.getLoopbackAddress(), port);
+            socket.setTcpNoDelay(true);
+            in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+
+    @FunctionalInterface
+    private interface Request {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface Reply<T> {
+        T read(DataInputStream in) throws IOException;
+    }
+
+    private final int[] ports;
+    private final ShardRing ring;
+    private final List<Queue<Connection>> pools = new ArrayList<>();
+    private final ExecutorService scatter = Executors.newVirtualThreadPerTaskExecutor();
+
+    public ShardedStore(int[] ports) {
+        this.ports = ports.clone();
+        this.ring = new ShardRing(ports.length, ShardRing.DEFAULT_VNODES);
+        for (int i = 0; i < ports.length; i++) pools.add(new ConcurrentLinkedQueue<>());
+    }
+
+    public int getNodeCount() {
+        return ports.length;
+    }
+
+    public int nodeForTitle(String title) {
+        return ring.owner(title);
+    }
+
+    public int nodeForUser(String user) {
+        return ring.owner(user);
+    }
+
+    // ---------- catalog ----------
+
+    public void addBook(Book book) {
+        addBooks(List.of(book));
+    }
+
+    // One request per owning node.
+    public void addBooks(Collection<Book> books) {
+        Map<Integer, List<Book>> byNode = new HashMap<>();
+        for (Book book : books) byNode.computeIfAbsent(nodeForTitle(book.getTitle()), n -> new ArrayList<>()).add(book);
+        byNode.forEach((node, batch) -> call(node, out -> {
+            out.writeByte(ShardProtocol.ADD_BOOKS);
+            ShardProtocol.writeBooks(out, batch);
+        }));
+    }
+
+    // A snapshot of the book on its node; stock changes go through reserve and release.
+    public Book getBookByTitle(String title) {
+        return call(nodeForTitle(title), out -> {
+            out.writeByte(ShardProtocol.GET_BOOK);
+            out.writeUTF(title);
+        }, in -> in.readBoolean() ? ShardProtocol.readBook(in) : null);
+    }
+
+    public boolean reserve(String title, int qty) {
+        return call(nodeForTitle(title), out -> {
+            out.writeByte(ShardProtocol.RESERVE);
+            out.writeUTF(title);
+            out.writeInt(qty);
+        }, DataInputStream::readBoolean);
+    }
+
+    public void release(String title, int qty) {
+        call(nodeForTitle(title), out -> {
+            out.writeByte(ShardProtocol.RELEASE);
+            out.writeUTF(title);
+            out.writeInt(qty);
+        });
+    }
+
+    public void setPrice(String title, double price) {
+        call(nodeForTitle(title), out -> {
+            out.writeByte(ShardProtocol.SET_PRICE);
+            out.writeUTF(title);
+            out.writeDouble(price);
+        });
+    }
+
+    public void setQuantity(String title, int quantity) {
+        call(nodeForTitle(title), out -> {
+            out.writeByte(ShardProtocol.SET_QUANTITY);
+            out.writeUTF(title);
+            out.writeInt(quantity);
+        });
+    }
+
+    // One page of the whole catalog: each node pages its own books after the cursor key, and
+    // the first `limit` of their merged pages make this one.
+    public Page<Book> pageBooks(BookQuery query, String cursor, int limit) {
+        if (cursor != null) BookPageKey.decode(cursor); // reject a bad cursor before any request
+        String genre = null;
+        if (query.genre() != null) {
+            for (BookGenre g : BookGenre.values()) {
+                if (g.bookType() == query.genre()) genre = g.key();
+            }
+        }
+        // No node book is of a type outside the genres.
+        if (query.genre() != null && genre == null && query.genre() != Book.class) return new Page<>(List.of(), null);
+        String genreKey = genre;
+        List<Book> merged = new ArrayList<>();
+        boolean more = false;
+        for (Page<Book> part : gather(node -> call(node, out -> {
+            out.writeByte(ShardProtocol.PAGE_BOOKS);
+            out.writeByte(query.sort().ordinal());
+            ShardProtocol.writeNullableUTF(out, cursor);
+            out.writeInt(limit);
+            ShardProtocol.writeNullableUTF(out, genreKey);
+            ShardProtocol.writeNullableUTF(out, query.author());
+            ShardProtocol.writeNullableDouble(out, query.minPrice());
+            ShardProtocol.writeNullableDouble(out, query.maxPrice());
+        }, in -> new Page<>(ShardProtocol.readBooks(in), in.readBoolean() ? "" : null)))) {
+            merged.addAll(part.items());
+            more |= part.hasMore();
+        }
+        Comparator<BookPageKey> order = BookPageKey.order(query.sort());
+        merged.sort((a, b) -> order.compare(BookPageKey.of(a), BookPageKey.of(b)));
+        if (merged.size() > limit) {
+            merged = new ArrayList<>(merged.subList(0, limit));
+            more = true;
+        }
+        String next = more && !merged.isEmpty() ? BookPageKey.of(merged.get(merged.size() - 1)).encode() : null;
+        return new Page<>(merged, next);
+    }
+
+    // Ordered by title.
+    public List<Book> getBooksByAuthor(String author) {
+        return pageBooks(new BookQuery(BookSort.TITLE, null, author, null, null), null, Integer.MAX_VALUE).items();
+    }
+
+    // Ordered by title.
+    public List<Book> getBooksByGenre(Class<? extends Book> genre) {
+        return pageBooks(new BookQuery(BookSort.TITLE, genre, null, null, null), null, Integer.MAX_VALUE).items();
+    }
+
+    // Each node ranks its own books with its own term statistics, so scores from different nodes
+    // are comparable only roughly; the best `limit` of all of them are kept.
+    public List<SearchHit> search(String query, int limit) {
+        List<SearchHit> all = new ArrayList<>();
+        for (List<SearchHit> part : gather(node -> call(node, out -> {
+            out.writeByte(ShardProtocol.SEARCH);
+            out.writeUTF(query);
+            out.writeInt(limit);
+        }, in -> {
+            int n = in.readInt();
+            List<SearchHit> hits = new ArrayList<>(Math.max(0, Math.min(n, 1024)));
+            for (int i = 0; i < n; i++) hits.add(new SearchHit(ShardProtocol.readBook(in), in.readDouble()));
+            return hits;
+        }))) {
+            all.addAll(part);
+        }
+        all.sort(Comparator.comparingDouble(SearchHit::score).reversed()
+            .thenComparing(h -> h.book().getTitle()));
+        return all.size() > limit ? new ArrayList<>(all.subList(0, limit)) : all;
+    }
+
+    // Titles starting with the prefix first, in title order, then the nodes' other completions.
+    public List<String> suggestTitles(String prefix, int limit) {
+        String key = CatalogIndex.key(prefix.strip());
+        List<String> starting = new ArrayList<>();
+        Set<String> others = new LinkedHashSet<>();
+        for (List<String> part : gather(node -> call(node, out -> {
+            out.writeByte(ShardProtocol.SUGGEST);
+            out.writeUTF(prefix);
+            out.writeInt(limit);
+        }, in -> {
+            int n = in.readInt();
+            List<String> titles = new ArrayList<>(Math.max(0, Math.min(n, 1024)));
+            for (int i = 0; i < n; i++) titles.add(in.readUTF());
+            return titles;
+        }))) {
+            for (String title : part) {
+                if (CatalogIndex.key(title).startsWith(key)) starting.add(title);
+                else others.add(title);
+            }
+        }
+        starting.sort(String.CASE_INSENSITIVE_ORDER);
+        LinkedHashSet<String> result = new LinkedHashSet<>(starting);
+        result.addAll(others);
+        List<String> titles = new ArrayList<>(result);
+        return titles.size() > limit ? new ArrayList<>(titles.subList(0, limit)) : titles;
+    }
+
+    // Every book, ordered by title.
+    public List<Book> getBooks() {
+        List<Book> all = new ArrayList<>();
+        for (List<Book> part : gather(node -> call(node, out -> {
+            out.writeByte(ShardProtocol.LIST_BOOKS);
+        }, ShardProtocol::readBooks))) {
+            all.addAll(part);
+        }
+        all.sort(Comparator.comparing(Book::getTitle, String.CASE_INSENSITIVE_ORDER));
+        return all;
+    }
+
+    public int getBookCount() {
+        return gather(node -> counts(node)[0]).stream().mapToInt(Integer::intValue).sum();
+    }
+
+    // ---------- orders ----------
+
+    public void placeOrder(Order order) {
+        placeOrders(List.of(order));
+    }
+
+    public void placeOrders(List<Order> orders) {
+        Map<Integer, List<Order>> byNode = new HashMap<>();
+        for (Order order : orders) byNode.computeIfAbsent(nodeForUser(order.getUser()), n -> new ArrayList<>()).add(order);
+        byNode.forEach((node, batch) -> call(node, out -> {
+            out.writeByte(ShardProtocol.PLACE_ORDERS);
+            ShardProtocol.writeOrders(out, batch);
+        }));
+    }
+
+    // A user's orders all live on one node, so this is a single request.
+    public List<Order> getOrdersForUser(String user) {
+        return listOrders(nodeForUser(user), user);
+    }
+
+    // One page of a user's orders, paged on the user's node; its cursor is that node's.
+    public Page<Order> pageOrdersForUser(OrderQuery query, String cursor, int limit) {
+        return call(nodeForUser(query.user()), out -> {
+            out.writeByte(ShardProtocol.PAGE_USER_ORDERS);
+            out.writeUTF(query.user());
+            out.writeByte(query.sort().ordinal());
+            ShardProtocol.writeNullableUTF(out, cursor);
+            out.writeInt(limit);
+            ShardProtocol.writeNullableUTF(out, query.status() == null ? null : query.status().name());
+            out.writeBoolean(query.fromMillis() != null);
+            if (query.fromMillis() != null) out.writeLong(query.fromMillis());
+            out.writeBoolean(query.toMillis() != null);
+            if (query.toMillis() != null) out.writeLong(query.toMillis());
+        }, in -> new Page<>(ShardProtocol.readOrders(in), ShardProtocol.readNullableUTF(in)));
+    }
+
+    // Every order, oldest first.
+    public List<Order> getOrders() {
+        List<Order> all = new ArrayList<>();
+        for (List<Order> part : gather(node -> listOrders(node, ""))) all.addAll(part);
+        all.sort(Comparator.comparingLong(Order::getTimeMillis));
+        return all;
+    }
+
+    public int getOrderCount() {
+        return gather(node -> counts(node)[1]).stream().mapToInt(Integer::intValue).sum();
+    }
+
+    // Order ids do not say which node holds the order, so every node is asked.
+    public Order findOrder(String orderId) {
+        for (Order order : gather(node -> call(node, out -> {
+            out.writeByte(ShardProtocol.FIND_ORDER);
+            out.writeUTF(orderId);
+        }, in -> in.readBoolean() ? ShardProtocol.readOrder(in) : null))) {
+            if (order != null) return order;
+        }
+        return null;
+    }
+
+    // Moves the order one lifecycle step on the node owning its user; false if it cannot take
+    // that step from where it is now.
+    public boolean transition(Order order, OrderStatus next) {
+        return call(nodeForUser(order.getUser()), out -> {
+            out.writeByte(ShardProtocol.SET_ORDER_STATUS);
+            out.writeUTF(order.getOrderId());
+            out.writeUTF(next.name());
+        }, DataInputStream::readBoolean);
+    }
+
+    // Oldest first.
+    public List<Order> getOrdersBetween(long fromMillis, long toMillis) {
+        return gatherOrders(out -> {
+            out.writeByte(ShardProtocol.ORDERS_BETWEEN);
+            out.writeLong(fromMillis);
+            out.writeLong(toMillis);
+        });
+    }
+
+    // Oldest first.
+    public List<Order> getOrdersWithStatus(OrderStatus status) {
+        return gatherOrders(out -> {
+            out.writeByte(ShardProtocol.ORDERS_WITH_STATUS);
+            out.writeUTF(status.name());
+        });
+    }
+
+    public long countOrders(OrderStatus status) {
+        return gather(node -> call(node, out -> {
+            out.writeByte(ShardProtocol.COUNT_WITH_STATUS);
+            out.writeUTF(status.name());
+        }, DataInputStream::readLong)).stream().mapToLong(Long::longValue).sum();
+    }
+
+    private List<Order> gatherOrders(Request request) {
+        List<Order> all = new ArrayList<>();
+        for (List<Order> part : gather(node -> call(node, request, ShardProtocol::readOrders))) all.addAll(part);
+        all.sort(Comparator.comparingLong(Order::getTimeMillis));
+        return all;
+    }
+
+    private List<Order> listOrders(int node, String user) {
+        return call(node, out -> {
+            out.writeByte(ShardProtocol.LIST_ORDERS);
+            out.writeUTF(user);
+        }, ShardProtocol::readOrders);
+    }
+
+    private int[] counts(int node) {
+        return call(node, out -> {
+            out.writeByte(ShardProtocol.COUNTS);
+        }, in -> new int[] {in.readInt(), in.readInt()});
+    }
+
+    // ---------- transport ----------
+
+    private void call(int node, Request request) {
+        call(node, request, in -> null);
+    }
+
+    // A connection goes back to the pool only after a complete OK exchange; after an error reply,
+    // or a failure while writing or reading, its stream position is not trusted and it is closed.
+    private <T> T call(int node, Request request, Reply<T> reply) {
+        Queue<Connection> pool = pools.get(node);
+        Connection c = pool.poll();
+        boolean reusable = false;
+        try {
+            if (c == null) c = new Connection(ports[node]);
+            request.write(c.out);
+            c.out.flush();
+            if (c.in.readByte() != ShardProtocol.OK) {
+                throw new IllegalStateException("Node " + node + ": " + c.in.readUTF());
+            }
+            T result = reply.read(c.in);
+            reusable = true;
+            return result;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Node " + node + " unreachable", e);
+        } finally {
+            if (reusable) {
+                pool.offer(c);
+            } else {
+                closeQuietly(c);
+            }
+        }
+    }
+
+    private <T> List<T> gather(IntFunction<T> perNode) {
+        List<Future<T>> futures = new ArrayList<>(ports.length);
+        for (int node = 0; node < ports.length; node++) {
+            int n = node;
+            futures.add(scatter.submit(() -> perNode.apply(n)));
+        }
+        List<T> results = new ArrayList<>(ports.length);
+        try {
+            for (Future<T> f : futures) results.add(f.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while gathering from nodes");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException r) throw r;
+            throw new IllegalStateException(e.getCause());
+        }
+        return results;
+    }
+
+    private static void closeQuietly(Connection c) {
+        if (c == null) return;
+        try {
+            c.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    @Override
+    public void close() {
+        for (Queue<Connection> pool : pools) {
+            Connection c;
+            while ((c = pool.poll()) != null) closeQuietly(c);
+        }
+        scatter.shutdownNow();
+    }
+}
+
+// ========== LOCAL CLUSTER ==========
+// N store nodes in this JVM on ephemeral loopback ports, plus a client routed across them. Every
+// request still crosses a real socket, so routing and serialization costs show up when measuring.
+//
+//   try (LocalCluster cluster = LocalCluster.start(4)) {
+//       cluster.client().addBooks(books);
+//   }
+class LocalCluster implements Closeable {
+    private final List<StoreNode> nodes;
+    private final ShardedStore client;
+
+    private LocalCluster(List<StoreNode> nodes) {
+        this.nodes = nodes;
+        int[] ports = new int[nodes.size()];
+        for (int i = 0; i < ports.length; i++) ports[i] = nodes.get(i).getPort();
+        this.client = new ShardedStore(ports);
+    }
+
+    public static LocalCluster start(int nodeCount) throws IOException {
+        List<StoreNode> nodes = new ArrayList<>(nodeCount);
+        try {
+            for (int i = 0; i < nodeCount; i++) {
+                StoreNode node = new StoreNode(0);
+                nodes.add(node);
+                node.start();
+            }
+        } catch (IOException e) {
+            for (StoreNode node : nodes) node.close();
+            throw e;
+        }
+        return new LocalCluster(nodes);
+    }
+
+    public ShardedStore client() {
+        return client;
+    }
+
+    public List<StoreNode> nodes() {
+        return Collections.unmodifiableList(nodes);
+    }
+
+    @Override
+    public void close() throws IOException {
+        client.close();
+        for (StoreNode node : nodes) node.close();
+    }
+}
+
+// ========== CLUSTER BOOK ==========
+// A catalog book whose record lives on a store node, as BookStoreManager hands it out in
+// cluster mode. Title, author, genre and price are those of the lookup that made the view; stock
+// is read and changed on the owning node, so holds taken through different views of one title
+// draw on the same copies. Views of one title are equal.
+class ClusterBook extends Book {
+    private final ShardedStore cluster;
+
+    ClusterBook(ShardedStore cluster, Book snapshot) {
+        super(snapshot.getMetadata(), snapshot.getPrice());
+        this.cluster = cluster;
+    }
+
+    @Override
+    public int getQuantity() {
+        Book current = cluster.getBookByTitle(getTitle());
+        return current == null ? 0 : current.getQuantity();
+    }
+
+    @Override
+    public void setPrice(double price) {
+        cluster.setPrice(getTitle(), price);
+        this.price = price;
+    }
+
+    @Override
+    public void setQuantity(int quantity) {
+        cluster.setQuantity(getTitle(), quantity);
+    }
+
+    @Override
+    public boolean tryReserve(int qty) {
+        return cluster.reserve(getTitle(), qty);
+    }
+
+    @Override
+    public void release(int qty) {
+        cluster.release(getTitle(), qty);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof ClusterBook other && other.cluster == cluster
+            && CatalogIndex.key(other.getTitle()).equals(CatalogIndex.key(getTitle()));
+    }
+
+    @Override
+    public int hashCode() {
+        return CatalogIndex.key(getTitle()).hashCode();
+    }
+}
@@ -0,0 +1,91 @@
+package com.mycompany.sdadesign;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+// ========== PAGE ==========
+// One page of results; nextCursor is null on the last page.
+record Page<T>(List<T> items, String nextCursor) {
+    boolean hasMore() {
+        return nextCursor != null;
+    }
+}
+
+// ========== SORTED VIEW ==========
+// Items kept in sort-key order (ties broken by insertion sequence) so a page can resume from an
+// opaque cursor with an O(log n) seek instead of skipping over everything before it.
+class SortedView<T> {
+    private record Entry<T>(Comparable<Object> key, long seq, T value) {}
+
+    private static final Comparator<Entry<?>> ORDER =
+        Comparator.<Entry<?>, Comparable<Object>>comparing(Entry::key).thenComparingLong(Entry::seq);
+
+    private final ConcurrentSkipListSet<Entry<T>> entries = new ConcurrentSkipListSet<>(ORDER);
+    private final Function<T, ? extends Comparable<?>> keyOf;
+    private final Function<String, ? extends Comparable<?>> parseKey;
+
+    SortedView(Function<T, ? extends Comparable<?>> keyOf, Function<String, ? extends Comparable<?>> parseKey) {
+        this.keyOf = keyOf;
+        this.parseKey = parseKey;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Comparable<Object> cast(Comparable<?> key) {
+        return (Comparable<Object>) key;
+    }
+
+    public void add(T value, long seq) {
+        entries.add(new Entry<>(cast(keyOf.apply(value)), seq, value));
+    }
+
+    // Re-sorts a value whose key was oldKey under its current key, keeping its sequence. A no-op
+    // when the value is no longer filed under oldKey, e.g. a later change already moved it.
+    public void rekey(T value, Comparable<?> oldKey) {
+        Comparable<Object> key = cast(oldKey);
+        for (Entry<T> e : entries.subSet(new Entry<>(key, Long.MIN_VALUE, null), true, new Entry<>(key, Long.MAX_VALUE, null), true)) {
+            if (e.value() == value) {
+                entries.remove(e);
+                entries.add(new Entry<>(cast(keyOf.apply(value)), e.seq(), value));
+                return;
+            }
+        }
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public Page<T> page(String cursor, int limit, Predicate<? super T> filter) {
+        NavigableSet<Entry<T>> tail = cursor == null ? entries : entries.tailSet(decode(cursor), false);
+        List<T> items = new ArrayList<>(Math.min(limit, 256));
+        Entry<T> last = null;
+        for (Entry<T> e : tail) {
+            if (!filter.test(e.value())) continue;
+            if (items.size() == limit) {
+                return new Page<>(items, encode(last));
+            }
+            items.add(e.value());
+            last = e;
+        }
+        return new Page<>(items, null);
+    }
+
+    private String encode(Entry<T> e) {
+        String raw = e.seq() + ":" + e.key();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Entry<T> decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int colon = raw.indexOf(':');
+            return new Entry<>(cast(parseKey.apply(raw.substring(colon + 1))),
+                Long.parseLong(raw.substring(0, colon)), null);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
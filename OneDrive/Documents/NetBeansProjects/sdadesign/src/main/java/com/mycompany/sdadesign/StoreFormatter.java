@@ -0,0 +1,96 @@
+package com.mycompany.sdadesign;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.Collection;
+
+// ========== STORE FORMATTER ==========
+// Renders catalog and order rows into one reused line buffer and writes them through a buffered
+// writer, flushing once per page instead of building and printing a String per row. The console
+// has one shared instance; rows are written whole, so callers on other threads never split a line.
+class StoreFormatter {
+    private static volatile StoreFormatter console;
+
+    private final OutputStream stream;
+    private final Writer out;
+    private final StringBuilder line = new StringBuilder(128);
+
+    public StoreFormatter(OutputStream stream, Charset charset) {
+        this.stream = stream;
+        this.out = new BufferedWriter(new OutputStreamWriter(stream, charset), 64 * 1024);
+    }
+
+    // Rebuilt only if System.out has been replaced since, e.g. muted by a benchmark.
+    public static StoreFormatter console() {
+        PrintStream stdout = System.out;
+        StoreFormatter c = console;
+        if (c == null || c.stream != stdout) {
+            synchronized (StoreFormatter.class) {
+                c = console;
+                if (c == null || c.stream != stdout) console = c = new StoreFormatter(stdout, stdout.charset());
+            }
+        }
+        return c;
+    }
+
+    public synchronized StoreFormatter book(Book b) {
+        line.setLength(0);
+        line.append('[').append(label(b)).append("] ")
+            .append(b.getTitle()).append(" by ").append(b.getAuthor())
+            .append(" - $").append(b.getPrice())
+            .append(" | Qty: ").append(b.getQuantity()).append('\n');
+        return write();
+    }
+
+    public synchronized StoreFormatter order(Order o) {
+        line.setLength(0);
+        line.append("Order by ").append(o.getUser())
+            .append(" for ").append(o.getTitle())
+            .append(" x").append(o.getQuantity())
+            .append(" [").append(o.getStatus()).append("]\n");
+        return write();
+    }
+
+    public StoreFormatter books(Collection<? extends Book> books) {
+        for (Book b : books) book(b);
+        return this;
+    }
+
+    public StoreFormatter orders(Collection<? extends Order> orders) {
+        for (Order o : orders) order(o);
+        return this;
+    }
+
+    public synchronized StoreFormatter text(String text) {
+        line.setLength(0);
+        line.append(text).append('\n');
+        return write();
+    }
+
+    public synchronized void flush() {
+        try {
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private StoreFormatter write() {
+        try {
+            out.append(line);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return this;
+    }
+
+    private static String label(Book b) {
+        return b.getMetadata().genre().label();
+    }
+}
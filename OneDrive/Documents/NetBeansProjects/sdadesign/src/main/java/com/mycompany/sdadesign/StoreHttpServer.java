@@ -0,0 +1,361 @@
+package com.mycompany.sdadesign;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// ========== HTTP API SERVER ==========
+// Headless JSON front end for the store managers. Every request runs on its own virtual thread.
+//
+//   POST /register   body: user=&password=  create a shopper account
+//   POST /login      body: user=&password=  returns a session token
+//   GET  /books?sort=title|price&genre=&author=&minPrice=&maxPrice=&cursor=&limit=
+//   GET  /books/search?q=&limit=             ranked full-text search, typo tolerant
+//   GET  /books/search?title=|author=|genre= indexed lookups
+//   GET  /books/suggest?prefix=&limit=       title autocompletion
+//   GET  /books/related?title=&limit=        titles often bought together with this one
+//   GET  /cart                               cart contents and prices, with related titles
+//   GET  /recommendations?limit=             for the caller, from their purchase history
+//   POST /cart?title=&qty=                   add to cart
+//   DELETE /cart?title=&qty=                 remove copies from the cart (all of them without qty)
+//   POST /pay?method=card|paypal|crypto&key=   key (or an Idempotency-Key header) makes retries safe
+//   GET  /orders?sort=date|price|title&status=&cursor=&limit=   the caller's orders
+//   POST /orders/cancel?id=                  cancel one of the caller's orders before it ships
+//   GET  /metrics                            Prometheus text snapshot of StoreMetrics
+//
+// Listings return {"items":[...],"next":cursor}; pass next back as cursor for the following page.
+// POST bodies are form-encoded (application/x-www-form-urlencoded) and their fields are read like
+// query parameters. Passwords are only accepted in the body, never in the URL, which ends up in
+// access logs and history.
+//
+// Cart, pay and orders need the token, sent only as "Authorization: Bearer <token>"; a token in
+// the URL is refused for the same reason as a password, and one in the body is ignored.
+class StoreHttpServer {
+    private static final int MAX_PAGE = 1000;
+    private static final int MAX_FORM_BYTES = 64 * 1024;
+    // Quiet: a charge is not echoed to the server's console.
+    private static final PaymentStrategy CARD = new CreditCardPayment(false);
+    private static final PaymentStrategy PAYPAL = new PaypalPayment(false);
+    private static final PaymentStrategy CRYPTO = new CryptoPayment(false);
+
+    private final BookStoreManager manager;
+    private final PaymentCartNotificationManager pcm;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public StoreHttpServer(int port, BookStoreManager manager, PaymentCartNotificationManager pcm) throws IOException {
+        this.manager = manager;
+        this.pcm = pcm;
+        this.server = HttpServer.create(new InetSocketAddress(port), 1024);
+        server.setExecutor(executor);
+        server.createContext("/register", handler("POST", this::register));
+        server.createContext("/login", handler("POST", this::login));
+        server.createContext("/books/search", handler("GET", this::searchBooks));
+        server.createContext("/books/suggest", handler("GET", this::suggestTitles));
+        server.createContext("/books/related", handler("GET", this::relatedTitles));
+        server.createContext("/recommendations", handler("GET", this::recommendations));
+        server.createContext("/books", handler("GET", this::listBooks));
+        server.createContext("/cart", this::cart);
+        server.createContext("/pay", handler("POST", this::pay));
+        server.createContext("/orders/cancel", handler("POST", this::cancelOrder));
+        server.createContext("/orders", handler("GET", this::orders));
+        server.createContext("/metrics", handler("GET", params -> new Response(200,
+            StoreMetrics.getInstance().prometheus(), "text/plain; version=0.0.4; charset=utf-8")));
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private record Response(int status, String body, String contentType) {
+        Response(int status, String body) {
+            this(status, body, "application/json; charset=utf-8");
+        }
+    }
+
+    private interface Endpoint {
+        Response handle(Map<String, String> params);
+    }
+
+    private HttpHandler handler(String method, Endpoint endpoint) {
+        return exchange -> {
+            if (!exchange.getRequestMethod().equalsIgnoreCase(method)) {
+                send(exchange, new Response(405, Json.error("Use " + method)));
+                return;
+            }
+            dispatch(exchange, endpoint);
+        };
+    }
+
+    private void dispatch(HttpExchange exchange, Endpoint endpoint) throws IOException {
+        Response response;
+        try {
+            Map<String, String> params = form(exchange.getRequestURI().getRawQuery());
+            if (params.containsKey("password")) throw new IllegalArgumentException("Send the password in the request body");
+            if (params.containsKey("token")) throw new IllegalArgumentException("Send the token in the Authorization header");
+            if (exchange.getRequestMethod().equalsIgnoreCase("POST")) {
+                // One byte past the limit tells a full-size form from a truncated one.
+                byte[] body = exchange.getRequestBody().readNBytes(MAX_FORM_BYTES + 1);
+                if (body.length > MAX_FORM_BYTES) {
+                    send(exchange, new Response(413, Json.error("Request body is over " + MAX_FORM_BYTES + " bytes")));
+                    return;
+                }
+                params.putAll(form(new String(body, StandardCharsets.UTF_8)));
+                params.remove("token");
+            }
+            String auth = exchange.getRequestHeaders().getFirst("Authorization");
+            if (auth != null && auth.startsWith("Bearer ")) params.put("token", auth.substring(7).trim());
+            String idempotencyKey = exchange.getRequestHeaders().getFirst("Idempotency-Key");
+            if (idempotencyKey != null) params.put("key", idempotencyKey.trim());
+            response = endpoint.handle(params);
+        } catch (SecurityException e) {
+            response = new Response(401, Json.error(e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            response = new Response(400, Json.error(e.getMessage()));
+        } catch (UnsupportedOperationException e) {
+            response = new Response(501, Json.error(e.getMessage()));
+        } catch (RuntimeException e) {
+            response = new Response(500, Json.error("Internal error"));
+        }
+        send(exchange, response);
+    }
+
+    private static void send(HttpExchange exchange, Response response) throws IOException {
+        byte[] body = response.body().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", response.contentType());
+        exchange.sendResponseHeaders(response.status(), body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static Map<String, String> form(String raw) {
+        Map<String, String> params = new HashMap<>();
+        if (raw == null || raw.isBlank()) return params;
+        for (String pair : raw.strip().split("&")) {
+            int eq = pair.indexOf('=');
+            String key = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            params.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    private static String required(Map<String, String> params, String name) {
+        String value = params.get(name);
+        if (value == null || value.isBlank()) throw new IllegalArgumentException("Missing parameter: " + name);
+        return value;
+    }
+
+    private static int intParam(Map<String, String> params, String name, int fallback) {
+        String value = params.get(name);
+        if (value == null) return fallback;
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not a number: " + name);
+        }
+    }
+
+    private String authenticatedUser(Map<String, String> params) {
+        Session session = manager.getSession(params.get("token"));
+        if (session == null) throw new SecurityException("Log in first");
+        return session.user().getUsername();
+    }
+
+    // ---------- endpoints ----------
+
+    private Response register(Map<String, String> params) {
+        String user = required(params, "user");
+        if (manager.register(user, required(params, "password"), Role.USER) == null) {
+            return new Response(409, Json.error("Username already taken"));
+        }
+        return new Response(201, "{\"user\":" + Json.quote(user) + "}");
+    }
+
+    private Response login(Map<String, String> params) {
+        Session session = manager.login(required(params, "user"), required(params, "password"), Role.USER);
+        if (session == null) throw new SecurityException("Incorrect credentials");
+        return new Response(200, "{\"token\":" + Json.quote(session.token())
+            + ",\"expires\":" + session.expiresAtMillis() + "}");
+    }
+
+    private static int limit(Map<String, String> params) {
+        return Math.min(MAX_PAGE, Math.max(1, intParam(params, "limit", 50)));
+    }
+
+    private static Double doubleParam(Map<String, String> params, String name) {
+        String value = params.get(name);
+        if (value == null || value.isBlank()) return null;
+        try {
+            return Double.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not a number: " + name);
+        }
+    }
+
+    private static Class<? extends Book> genreParam(String genre) {
+        if (genre == null || genre.isBlank()) return null;
+        BookGenre g = BookGenre.parse(genre);
+        if (g == null) throw new IllegalArgumentException("Unknown genre: " + genre);
+        return g.bookType();
+    }
+
+    private Response listBooks(Map<String, String> params) {
+        BookQuery query = new BookQuery(BookSort.parse(params.get("sort")), genreParam(params.get("genre")),
+            params.get("author"), doubleParam(params, "minPrice"), doubleParam(params, "maxPrice"));
+        Page<Book> page = manager.queryBooks(query, params.get("cursor"), limit(params));
+        return new Response(200, Json.page(page, Json::book));
+    }
+
+    private Response searchBooks(Map<String, String> params) {
+        List<Book> matches;
+        if (params.containsKey("q")) {
+            matches = manager.searchBooks(params.get("q"), limit(params)).stream().map(SearchHit::book).toList();
+        } else if (params.containsKey("title")) {
+            Book book = manager.getBookByTitle(params.get("title"));
+            matches = book == null ? List.of() : List.of(book);
+        } else if (params.containsKey("author")) {
+            matches = manager.getBooksByAuthor(params.get("author"));
+        } else if (params.containsKey("genre")) {
+            Class<? extends Book> genre = genreParam(params.get("genre"));
+            if (genre == null) throw new IllegalArgumentException("Give one of q, title, author or genre");
+            matches = manager.queryBooks(new BookQuery(BookSort.TITLE, genre, null, null, null), null, MAX_PAGE).items();
+        } else {
+            throw new IllegalArgumentException("Give one of q, title, author or genre");
+        }
+        return new Response(200, Json.array(matches, Json::book));
+    }
+
+    private Response suggestTitles(Map<String, String> params) {
+        List<String> titles = manager.suggestTitles(required(params, "prefix"), Math.min(limit(params), 20));
+        return new Response(200, Json.array(titles, Json::quote));
+    }
+
+    private Response relatedTitles(Map<String, String> params) {
+        List<String> titles = manager.recommendForTitle(required(params, "title"), Math.min(limit(params), 20));
+        return new Response(200, Json.array(titles, Json::quote));
+    }
+
+    private Response recommendations(Map<String, String> params) {
+        String user = authenticatedUser(params);
+        List<String> titles = manager.getRecommendations().forUser(user, Math.min(limit(params), 20));
+        return new Response(200, Json.array(titles, Json::quote));
+    }
+
+    private void cart(HttpExchange exchange) throws IOException {
+        switch (exchange.getRequestMethod().toUpperCase(Locale.ROOT)) {
+            case "GET" -> dispatch(exchange, this::viewCart);
+            case "POST" -> dispatch(exchange, this::addToCart);
+            case "DELETE" -> dispatch(exchange, this::removeFromCart);
+            default -> send(exchange, new Response(405, Json.error("Use GET, POST or DELETE")));
+        }
+    }
+
+    private Response viewCart(Map<String, String> params) {
+        String user = authenticatedUser(params);
+        CartSession session = pcm.session(user);
+        List<CartLine> lines = session.getLines();
+        PriceQuote quote = pcm.getPricing().quote(session.getTotals());
+        StringJoiner items = new StringJoiner(",", "[", "]");
+        Set<String> titles = new LinkedHashSet<>();
+        for (CartLine line : lines) {
+            titles.add(line.book().getTitle());
+            items.add("{\"title\":" + Json.quote(line.book().getTitle()) + ",\"quantity\":" + line.quantity()
+                + ",\"price\":" + Money.amount(line.unitCents()) + ",\"lineTotal\":" + Money.amount(line.cents()) + "}");
+        }
+        StringJoiner discounts = new StringJoiner(",", "[", "]");
+        for (AppliedDiscount d : quote.discounts()) {
+            discounts.add("{\"description\":" + Json.quote(d.description()) + ",\"amount\":" + Money.amount(d.cents()) + "}");
+        }
+        List<String> related = manager.getRecommendations().forCart(user, titles, 5);
+        return new Response(200, "{\"user\":" + Json.quote(user) + ",\"items\":" + items
+            + ",\"subtotal\":" + Money.amount(quote.subtotalCents()) + ",\"discounts\":" + discounts
+            + ",\"total\":" + Money.amount(quote.totalCents())
+            + ",\"related\":" + Json.array(related, Json::quote) + "}");
+    }
+
+    private Response addToCart(Map<String, String> params) {
+        String user = authenticatedUser(params);
+        String title = required(params, "title");
+        int qty = intParam(params, "qty", 1);
+        if (qty <= 0) throw new IllegalArgumentException("qty must be positive");
+        return switch (pcm.addItem(user, title, qty, manager)) {
+            case ADDED -> new Response(200, "{\"added\":" + qty + "}");
+            case NOT_FOUND -> new Response(404, Json.error("Book not found"));
+            case OUT_OF_STOCK -> new Response(409, Json.error("Not enough stock"));
+        };
+    }
+
+    private Response removeFromCart(Map<String, String> params) {
+        String user = authenticatedUser(params);
+        String title = required(params, "title");
+        int qty = intParam(params, "qty", Integer.MAX_VALUE);
+        if (qty <= 0) throw new IllegalArgumentException("qty must be positive");
+        Book book = manager.getBookByTitle(title);
+        if (book == null || !pcm.removeItem(user, book.getTitle(), qty)) {
+            return new Response(404, Json.error("Not in cart"));
+        }
+        return new Response(200, "{\"removed\":" + Json.quote(book.getTitle()) + "}");
+    }
+
+    private Response pay(Map<String, String> params) {
+        String user = authenticatedUser(params);
+        PaymentStrategy strategy = switch (params.getOrDefault("method", "card").toLowerCase(Locale.ROOT)) {
+            case "card" -> CARD;
+            case "paypal" -> PAYPAL;
+            case "crypto" -> CRYPTO;
+            default -> throw new IllegalArgumentException("Unknown payment method");
+        };
+        String key = params.containsKey("key") ? required(params, "key") : null;
+        PaymentReceipt receipt;
+        try {
+            receipt = pcm.settleAsync(user, strategy, key).join();
+        } catch (CompletionException e) {
+            return new Response(402, Json.error("Payment failed: " + e.getCause().getMessage()));
+        }
+        if (receipt.isEmpty()) return new Response(409, Json.error("Cart is empty"));
+        return new Response(200, "{\"total\":" + receipt.total()
+            + ",\"orders\":" + Json.array(receipt.orders(), Json::order)
+            + ",\"unavailable\":" + Json.array(receipt.unavailable(), Json::quote) + "}");
+    }
+
+    private Response orders(Map<String, String> params) {
+        String status = params.get("status");
+        OrderQuery query = new OrderQuery(OrderSort.parse(params.get("sort")), authenticatedUser(params),
+            status == null || status.isBlank() ? null : OrderStatus.parse(status), null, null);
+        Page<Order> page = manager.queryOrders(query, params.get("cursor"), limit(params));
+        return new Response(200, Json.page(page, Json::order));
+    }
+
+    private Response cancelOrder(Map<String, String> params) {
+        String user = authenticatedUser(params);
+        Order order = manager.findOrder(required(params, "id"));
+        if (order == null || !order.getUser().equals(user)) return new Response(404, Json.error("Order not found"));
+        boolean cancelled = manager.updateOrderStatus(order, OrderStatus.CANCELLED);
+        // Re-read: a cluster order is a detached copy that does not see the move.
+        Order current = Objects.requireNonNullElse(manager.findOrder(order.getOrderId()), order);
+        if (!cancelled) {
+            return new Response(409, Json.error("Order is " + current.getStatus() + " and can no longer be cancelled"));
+        }
+        return new Response(200, Json.order(current));
+    }
+}
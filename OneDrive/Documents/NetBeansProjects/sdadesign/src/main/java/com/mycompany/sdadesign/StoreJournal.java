@@ -0,0 +1,354 @@
+package com.mycompany.sdadesign;
+
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.zip.CRC32;
+
+// ========== JOURNAL REPLAY ==========
+interface JournalReplayHandler {
+    void onBook(Book book);
+    void onAccount(Account account);
+    void onOrder(Order order);
+    void onOrderStatus(String orderId, OrderStatus status);
+    void onPrice(String title, double price);
+}
+
+// Where the journal ends: a segment number and a byte offset inside it.
+record JournalPosition(int segment, int offset) {
+    static final JournalPosition START = new JournalPosition(0, 0);
+}
+
+// ========== STORE JOURNAL ==========
+// Append-only log of store changes in memory-mapped segment files. Each record is
+// [length][type][payload][crc32]; a zero length marks the end of the written part of a segment.
+// Appends are group-committed: one writer thread copies every queued record into the mapped
+// segment and forces it once per batch before acknowledging the whole batch.
+class StoreJournal implements Closeable {
+    static final long DEFAULT_SEGMENT_SIZE = 64L * 1024 * 1024;
+
+    private static final byte ORDER = 3;
+    private static final byte ACCOUNT = 4;
+    private static final byte ORDER_STATUS = 5;
+    private static final byte PRICE = 6;
+    private static final byte BOOK = 7;
+    private static final int HEADER = Integer.BYTES + Byte.BYTES;
+    private static final int TRAILER = Integer.BYTES;
+
+    private record PendingRecord(byte[] frame, CompletableFuture<Void> durable) {}
+
+    private final Path dir;
+    private final long segmentSize;
+    private final BlockingQueue<PendingRecord> pending = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+    private int segmentNumber;
+    private volatile boolean closed;
+
+    private StoreJournal(Path dir, long segmentSize) {
+        this.dir = dir;
+        this.segmentSize = segmentSize;
+        this.writer = new Thread(this::writeLoop, "journal-writer");
+        this.writer.setDaemon(true);
+    }
+
+    public static StoreJournal open(Path dir) throws IOException {
+        return open(dir, DEFAULT_SEGMENT_SIZE);
+    }
+
+    public static StoreJournal open(Path dir, long segmentSize) throws IOException {
+        Files.createDirectories(dir);
+        StoreJournal journal = new StoreJournal(dir, segmentSize);
+        List<Path> segments = journal.segments();
+        if (segments.isEmpty()) {
+            journal.openSegment(1);
+        } else {
+            Path last = segments.get(segments.size() - 1);
+            journal.openSegment(segmentNumber(last));
+            journal.segment.position(endOfData(journal.segment));
+        }
+        journal.writer.start();
+        return journal;
+    }
+
+    // ---------- appends ----------
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    public void appendBook(Book book) {
+        append(BOOK, out -> writeBook(out, book));
+    }
+
+    private static void writeBook(DataOutputStream out, Book book) throws IOException {
+        out.writeUTF(book.getFormat().key());
+        out.writeUTF(book.getGenre());
+        out.writeUTF(book.getTitle());
+        out.writeUTF(book.getAuthor());
+        out.writeDouble(book.getPrice());
+        out.writeInt(book.getQuantity());
+    }
+
+    // Queues the whole batch before waiting, so it shares as few forces as possible.
+    public void appendBooks(Collection<Book> books) {
+        CompletableFuture<Void> last = null;
+        for (Book book : books) {
+            last = enqueue(BOOK, out -> writeBook(out, book));
+        }
+        if (last != null) last.join();
+    }
+
+    public void appendAccount(Account account) {
+        append(ACCOUNT, out -> {
+            out.writeUTF(account.user().getUsername());
+            out.writeByte(account.role().ordinal());
+            out.writeByte(account.salt().length);
+            out.write(account.salt());
+            out.writeByte(account.hash().length);
+            out.write(account.hash());
+        });
+    }
+
+    public void appendOrder(Order order) {
+        append(ORDER, out -> writeOrder(out, order));
+    }
+
+    public void appendOrders(Collection<Order> orders) {
+        CompletableFuture<Void> last = null;
+        for (Order order : orders) {
+            last = enqueue(ORDER, out -> writeOrder(out, order));
+        }
+        if (last != null) last.join();
+    }
+
+    public void appendOrderStatus(String orderId, OrderStatus status) {
+        append(ORDER_STATUS, out -> {
+            out.writeUTF(orderId);
+            out.writeUTF(status.name());
+        });
+    }
+
+    public void appendPrice(String title, double price) {
+        append(PRICE, out -> {
+            out.writeUTF(title);
+            out.writeDouble(price);
+        });
+    }
+
+    private static void writeOrder(DataOutputStream out, Order order) throws IOException {
+        out.writeUTF(order.getOrderId());
+        out.writeUTF(order.getUser());
+        out.writeLong(order.getTimeMillis());
+        out.writeDouble(order.getPrice());
+        out.writeInt(order.getQuantity());
+        out.writeUTF(order.getStatus());
+        out.writeUTF(order.getTitle());
+    }
+
+    private interface PayloadWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    // Returns once the record, and everything queued with it, has been forced to disk.
+    private void append(byte type, PayloadWriter payload) {
+        enqueue(type, payload).join();
+    }
+
+    private CompletableFuture<Void> enqueue(byte type, PayloadWriter payload) {
+        if (closed) throw new IllegalStateException("Journal is closed");
+        byte[] frame = encode(type, payload);
+        if (frame.length + Integer.BYTES > segmentSize) {
+            throw new IllegalArgumentException("Journal record larger than a segment: " + frame.length + " bytes");
+        }
+        PendingRecord record = new PendingRecord(frame, new CompletableFuture<>());
+        pending.add(record);
+        // close() may have drained the queue between the check above and the add. If the record
+        // is still queued nobody will write it; if it is gone, the writer or close() has it.
+        if (closed && pending.remove(record)) throw new IllegalStateException("Journal is closed");
+        return record.durable();
+    }
+
+    private static byte[] encode(byte type, PayloadWriter payload) {
+        try {
+            ByteArrayOutputStream body = new ByteArrayOutputStream(128);
+            payload.write(new DataOutputStream(body));
+            byte[] bytes = body.toByteArray();
+
+            CRC32 crc = new CRC32();
+            crc.update(type);
+            crc.update(bytes);
+
+            ByteArrayOutputStream frame = new ByteArrayOutputStream(HEADER + bytes.length + TRAILER);
+            DataOutputStream out = new DataOutputStream(frame);
+            out.writeInt(bytes.length);
+            out.writeByte(type);
+            out.write(bytes);
+            out.writeInt((int) crc.getValue());
+            return frame.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeLoop() {
+        List<PendingRecord> batch = new ArrayList<>();
+        while (!closed || !pending.isEmpty()) {
+            try {
+                batch.add(pending.take());
+                pending.drainTo(batch);
+                for (PendingRecord r : batch) {
+                    if (segment.remaining() < r.frame().length + Integer.BYTES) {
+                        roll();
+                    }
+                    segment.put(r.frame());
+                }
+                segment.force();
+                for (PendingRecord r : batch) r.durable().complete(null);
+            } catch (InterruptedException e) {
+                if (closed) continue;
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException | RuntimeException e) {
+                for (PendingRecord r : batch) r.durable().completeExceptionally(e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    // ---------- segments ----------
+
+    private List<Path> segments() throws IOException {
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "journal-*.log")) {
+            List<Path> result = new ArrayList<>();
+            stream.forEach(result::add);
+            result.sort(Comparator.comparingInt(StoreJournal::segmentNumber));
+            return result;
+        }
+    }
+
+    private static int segmentNumber(Path segment) {
+        String name = segment.getFileName().toString();
+        return Integer.parseInt(name.substring("journal-".length(), name.length() - ".log".length()));
+    }
+
+    private Path segmentPath(int number) {
+        return dir.resolve(String.format("journal-%06d.log", number));
+    }
+
+    private void openSegment(int number) throws IOException {
+        channel = FileChannel.open(segmentPath(number),
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        segmentNumber = number;
+    }
+
+    private void roll() throws IOException {
+        segment.force();
+        channel.close();
+        openSegment(segmentNumber + 1);
+    }
+
+    // Position just past the last intact record; a torn or corrupt tail is treated as unwritten.
+    private static int endOfData(MappedByteBuffer buffer) {
+        int pos = 0;
+        while (pos + HEADER + TRAILER <= buffer.limit()) {
+            int length = buffer.getInt(pos);
+            if (length <= 0 || pos + HEADER + length + TRAILER > buffer.limit()) break;
+            if (!checksumMatches(buffer, pos, length)) break;
+            pos += HEADER + length + TRAILER;
+        }
+        return pos;
+    }
+
+    private static boolean checksumMatches(MappedByteBuffer buffer, int pos, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(pos + Integer.BYTES, Byte.BYTES + length));
+        return (int) crc.getValue() == buffer.getInt(pos + HEADER + length);
+    }
+
+    // End of everything written so far; exact once no appends are in flight, e.g. after close().
+    public JournalPosition position() {
+        return new JournalPosition(segmentNumber, segment.position());
+    }
+
+    // ---------- replay ----------
+
+    public int replay(JournalReplayHandler handler) throws IOException {
+        return replay(handler, JournalPosition.START);
+    }
+
+    // Replays only the records at or after `from`, e.g. those written after a snapshot.
+    public int replay(JournalReplayHandler handler, JournalPosition from) throws IOException {
+        int records = 0;
+        for (Path path : segments()) {
+            int number = segmentNumber(path);
+            if (number < from.segment()) continue;
+            try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+                MappedByteBuffer buffer = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+                int end = endOfData(buffer);
+                int pos = number == from.segment() ? Math.min(from.offset(), end) : 0;
+                while (pos < end) {
+                    int length = buffer.getInt(pos);
+                    byte type = buffer.get(pos + Integer.BYTES);
+                    byte[] payload = new byte[length];
+                    buffer.get(pos + HEADER, payload);
+                    dispatch(type, new DataInputStream(new ByteArrayInputStream(payload)), handler);
+                    pos += HEADER + length + TRAILER;
+                    records++;
+                }
+            }
+        }
+        return records;
+    }
+
+    private static void dispatch(byte type, DataInputStream in, JournalReplayHandler handler) throws IOException {
+        switch (type) {
+            case BOOK -> {
+                BookFormat format = BookFormat.parse(in.readUTF());
+                if (format == null) throw new IOException("Unknown book format in journal");
+                String genre = in.readUTF();
+                Book book = format.factory().createBook(genre, in.readUTF(), in.readUTF(), in.readDouble());
+                if (book == null) throw new IOException("Unknown genre in journal: " + genre);
+                book.setQuantity(in.readInt());
+                handler.onBook(book);
+            }
+            case ACCOUNT -> {
+                User user = new User(in.readUTF());
+                Role role = Role.values()[in.readByte()];
+                byte[] salt = in.readNBytes(in.readUnsignedByte());
+                byte[] hash = in.readNBytes(in.readUnsignedByte());
+                handler.onAccount(new Account(user, role, salt, hash));
+            }
+            case ORDER -> handler.onOrder(new DetachedOrder(
+                in.readUTF(), in.readUTF(), new Date(in.readLong()), in.readDouble(), in.readInt(), in.readUTF(), in.readUTF()));
+            case ORDER_STATUS -> handler.onOrderStatus(in.readUTF(), OrderStatus.parse(in.readUTF()));
+            case PRICE -> handler.onPrice(in.readUTF(), in.readDouble());
+            default -> throw new IOException("Unknown journal record type " + type);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        writer.interrupt();
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Records queued as the writer exited would otherwise leave their appenders waiting forever.
+        List<PendingRecord> unwritten = new ArrayList<>();
+        pending.drainTo(unwritten);
+        for (PendingRecord r : unwritten) r.durable().completeExceptionally(new IllegalStateException("Journal is closed"));
+        segment.force();
+        channel.close();
+    }
+}
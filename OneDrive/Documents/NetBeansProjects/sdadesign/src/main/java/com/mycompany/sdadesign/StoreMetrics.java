@@ -0,0 +1,264 @@
+package com.mycompany.sdadesign;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+// ========== STORE OPERATIONS ==========
+enum StoreOperation {
+    ADD_TO_CART("add_to_cart"),
+    CHECKOUT("checkout"),
+    PAY("pay"),
+    PLACE_ORDER("place_order"),
+    BOOK_LOOKUP("book_lookup"),
+    NOTIFY_OBSERVERS("notify_observers");
+
+    private final String metricName;
+
+    StoreOperation(String metricName) {
+        this.metricName = metricName;
+    }
+
+    public String metricName() {
+        return metricName;
+    }
+}
+
+// ========== JFR EVENT ==========
+// Emitted once per instrumented call while a recording has it enabled, e.g.
+//   java -XX:StartFlightRecording:settings=profile ...
+// When no recording wants it, isEnabled() is false and the JIT drops the allocation.
+@Name("com.mycompany.sdadesign.StoreOperation")
+@Label("Store Operation")
+@Category("FolioVerse")
+@Description("One instrumented bookstore operation and how long it took")
+@StackTrace(false)
+class StoreOperationEvent extends Event {
+    @Label("Operation")
+    String operation;
+
+    @Label("Latency")
+    @Timespan(Timespan.NANOSECONDS)
+    long latency;
+}
+
+// ========== LATENCY RECORDER ==========
+// Log-linear histogram in the style of HdrHistogram: exact below 128 ns, then 64 sub-buckets per
+// power of two (under 1.6% error), with everything above 2^40 ns (about 18 minutes) in the last
+// bucket. Buckets are striped by thread so concurrent recorders rarely share a cache line;
+// recording is two array increments and never allocates.
+class LatencyRecorder {
+    private static final int SUB_BITS = 6;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int LINEAR = SUB_COUNT * 2;
+    private static final int MAX_EXPONENT = 40;
+    private static final int BUCKETS = LINEAR + (MAX_EXPONENT - SUB_BITS) * SUB_COUNT;
+    private static final int STRIPES = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors()) * 2 - 1);
+
+    // Slot BUCKETS of each stripe holds that stripe's sum.
+    private final AtomicLongArray[] stripes = new AtomicLongArray[STRIPES];
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    LatencyRecorder() {
+        for (int i = 0; i < STRIPES; i++) stripes[i] = new AtomicLongArray(BUCKETS + 1);
+    }
+
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        AtomicLongArray stripe = stripes[(int) Thread.currentThread().threadId() & (STRIPES - 1)];
+        stripe.getAndIncrement(index(nanos));
+        stripe.getAndAdd(BUCKETS, nanos);
+        if (nanos > max.get()) max.accumulate(nanos);
+    }
+
+    static int index(long value) {
+        if (value < LINEAR) return (int) value;
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        if (shift > MAX_EXPONENT - SUB_BITS) return BUCKETS - 1;
+        return LINEAR + (shift - 1) * SUB_COUNT + (int) ((value >>> shift) - SUB_COUNT);
+    }
+
+    // Highest value that lands in the bucket.
+    static long upperBound(int index) {
+        if (index < LINEAR) return index;
+        int shift = (index - LINEAR) / SUB_COUNT + 1;
+        long sub = (index - LINEAR) % SUB_COUNT + SUB_COUNT;
+        return ((sub + 1) << shift) - 1;
+    }
+
+    private long[] snapshot() {
+        long[] merged = new long[BUCKETS + 1];
+        for (AtomicLongArray stripe : stripes) {
+            for (int i = 0; i <= BUCKETS; i++) merged[i] += stripe.get(i);
+        }
+        return merged;
+    }
+
+    public long getCount() {
+        long[] merged = snapshot();
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) count += merged[i];
+        return count;
+    }
+
+    public long getSum() {
+        long sum = 0;
+        for (AtomicLongArray stripe : stripes) sum += stripe.get(BUCKETS);
+        return sum;
+    }
+
+    public long getMax() { return max.get(); }
+
+    public long percentile(double p) {
+        long[] merged = snapshot();
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) total += merged[i];
+        if (total == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(p / 100.0 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += merged[i];
+            if (seen >= rank) return Math.min(upperBound(i), max.get());
+        }
+        return max.get();
+    }
+
+    public void reset() {
+        for (AtomicLongArray stripe : stripes) {
+            for (int i = 0; i <= BUCKETS; i++) stripe.set(i, 0);
+        }
+        max.reset();
+    }
+}
+
+// ========== STORE METRICS ==========
+// Process-wide latency recorders (one per StoreOperation), counters and gauges, exported as a
+// Prometheus text snapshot. Instrumented methods do
+//
+//   long start = System.nanoTime();
+//   try { ... } finally { metrics.record(StoreOperation.PAY, start); }
+class StoreMetrics {
+    private static final String PREFIX = "folioverse_";
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private final LatencyRecorder[] latencies = new LatencyRecorder[StoreOperation.values().length];
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+
+    private StoreMetrics() {
+        for (int i = 0; i < latencies.length; i++) latencies[i] = new LatencyRecorder();
+    }
+
+    private static class Holder {
+        static final StoreMetrics INSTANCE = new StoreMetrics();
+    }
+
+    public static StoreMetrics getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    public void record(StoreOperation op, long startNanos) {
+        long latency = System.nanoTime() - startNanos;
+        latencies[op.ordinal()].record(latency);
+        StoreOperationEvent event = new StoreOperationEvent();
+        if (event.isEnabled()) {
+            event.operation = op.metricName();
+            event.latency = latency;
+            event.commit();
+        }
+    }
+
+    public LatencyRecorder latency(StoreOperation op) {
+        return latencies[op.ordinal()];
+    }
+
+    // Callers on hot paths should keep the returned adder rather than look it up per call.
+    public LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, k -> new LongAdder());
+    }
+
+    public void gauge(String name, LongSupplier value) {
+        gauges.put(name, value);
+    }
+
+    public void reset() {
+        for (LatencyRecorder r : latencies) r.reset();
+        for (LongAdder c : counters.values()) c.reset();
+    }
+
+    // ---------- export ----------
+
+    public String prometheus() {
+        StringBuilder out = new StringBuilder(4096);
+        out.append("# HELP ").append(PREFIX).append("operation_latency_seconds Latency of store operations.\n");
+        out.append("# TYPE ").append(PREFIX).append("operation_latency_seconds summary\n");
+        for (StoreOperation op : StoreOperation.values()) {
+            LatencyRecorder r = latency(op);
+            String labels = "{operation=\"" + op.metricName() + "\"";
+            for (double q : QUANTILES) {
+                out.append(PREFIX).append("operation_latency_seconds").append(labels)
+                    .append(",quantile=\"").append(q).append("\"} ").append(seconds(r.percentile(q * 100))).append('\n');
+            }
+            out.append(PREFIX).append("operation_latency_seconds_sum").append(labels).append("} ")
+                .append(seconds(r.getSum())).append('\n');
+            out.append(PREFIX).append("operation_latency_seconds_count").append(labels).append("} ")
+                .append(r.getCount()).append('\n');
+        }
+        for (Map.Entry<String, LongAdder> c : new TreeMap<>(counters).entrySet()) {
+            out.append("# TYPE ").append(PREFIX).append(c.getKey()).append("_total counter\n");
+            out.append(PREFIX).append(c.getKey()).append("_total ").append(c.getValue().sum()).append('\n');
+        }
+        for (Map.Entry<String, LongSupplier> g : new TreeMap<>(gauges).entrySet()) {
+            out.append("# TYPE ").append(PREFIX).append(g.getKey()).append(" gauge\n");
+            out.append(PREFIX).append(g.getKey()).append(' ').append(g.getValue().getAsLong()).append('\n');
+        }
+        return out.toString();
+    }
+
+    private static String seconds(long nanos) {
+        return Double.toString(nanos / 1e9);
+    }
+
+    // Replaces the file atomically so a scraper never reads half a snapshot.
+    public void writeTo(Path file) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.writeString(tmp, prometheus(), StandardCharsets.UTF_8);
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Rewrites the file every interval from a daemon thread, for node_exporter's textfile collector
+    // or any other file-based scraper.
+    public void exportEvery(Path file, Duration interval) {
+        Thread exporter = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    writeTo(file);
+                    Thread.sleep(interval);
+                } catch (IOException e) {
+                    System.err.println("[Metrics] Could not write " + file + ": " + e.getMessage());
+                    return;
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }, "metrics-exporter");
+        exporter.setDaemon(true);
+        exporter.start();
+    }
+}
@@ -0,0 +1,53 @@
+package com.mycompany.sdadesign;
+
+import java.util.Locale;
+
+// ========== SORT ORDERS ==========
+enum BookSort {
+    TITLE, PRICE;
+
+    static BookSort parse(String text) {
+        return text == null || text.isBlank() ? TITLE : valueOf(text.trim().toUpperCase(Locale.ROOT));
+    }
+}
+
+enum OrderSort {
+    DATE, PRICE, TITLE;
+
+    static OrderSort parse(String text) {
+        return text == null || text.isBlank() ? DATE : valueOf(text.trim().toUpperCase(Locale.ROOT));
+    }
+}
+
+// ========== QUERIES ==========
+// Null fields do not filter.
+record BookQuery(BookSort sort, Class<? extends Book> genre, String author, Double minPrice, Double maxPrice) {
+    static BookQuery sortedBy(BookSort sort) {
+        return new BookQuery(sort, null, null, null, null);
+    }
+
+    boolean matches(Book b) {
+        return (genre == null || genre.isInstance(b))
+            && (author == null || b.getAuthor().equalsIgnoreCase(author))
+            && (minPrice == null || b.getPrice() >= minPrice)
+            && (maxPrice == null || b.getPrice() <= maxPrice);
+    }
+}
+
+record OrderQuery(OrderSort sort, String user, OrderStatus status, Long fromMillis, Long toMillis) {
+    static OrderQuery sortedBy(OrderSort sort) {
+        return new OrderQuery(sort, null, null, null, null);
+    }
+
+    static OrderQuery forUser(String user) {
+        return new OrderQuery(OrderSort.DATE, user, null, null, null);
+    }
+
+    boolean matches(Order o) {
+        long time = o.getTimeMillis();
+        return (user == null || o.getUser().equals(user))
+            && (status == null || o.getOrderStatus() == status)
+            && (fromMillis == null || time >= fromMillis)
+            && (toMillis == null || time < toMillis);
+    }
+}
@@ -0,0 +1,394 @@
+package com.mycompany.sdadesign;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+// ========== SNAPSHOT WRITER ==========
+// Sequential writer through one direct buffer. Primitive columns are copied into it with bulk
+// view puts, so large arrays reach the file without an intermediate heap byte[].
+class SnapshotWriter implements Closeable {
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+
+    SnapshotWriter(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    public long position() throws IOException {
+        return channel.position() + buffer.position();
+    }
+
+    public void putByte(int value) throws IOException { ensure(Byte.BYTES); buffer.put((byte) value); }
+    public void putInt(int value) throws IOException { ensure(Integer.BYTES); buffer.putInt(value); }
+    public void putLong(long value) throws IOException { ensure(Long.BYTES); buffer.putLong(value); }
+    public void putDouble(double value) throws IOException { ensure(Double.BYTES); buffer.putDouble(value); }
+
+    public void putString(String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        putInt(bytes.length);
+        putBytes(bytes, bytes.length);
+    }
+
+    public void putBytes(byte[] values, int n) throws IOException {
+        for (int i = 0; i < n; ) {
+            ensure(1);
+            int k = Math.min(n - i, buffer.remaining());
+            buffer.put(values, i, k);
+            i += k;
+        }
+    }
+
+    public void putInts(int[] values, int n) throws IOException {
+        for (int i = 0; i < n; ) {
+            ensure(Integer.BYTES);
+            int k = Math.min(n - i, buffer.remaining() / Integer.BYTES);
+            buffer.asIntBuffer().put(values, i, k);
+            buffer.position(buffer.position() + k * Integer.BYTES);
+            i += k;
+        }
+    }
+
+    public void putLongs(long[] values, int n) throws IOException {
+        for (int i = 0; i < n; ) {
+            ensure(Long.BYTES);
+            int k = Math.min(n - i, buffer.remaining() / Long.BYTES);
+            buffer.asLongBuffer().put(values, i, k);
+            buffer.position(buffer.position() + k * Long.BYTES);
+            i += k;
+        }
+    }
+
+    public void putDoubles(double[] values, int n) throws IOException {
+        for (int i = 0; i < n; ) {
+            ensure(Double.BYTES);
+            int k = Math.min(n - i, buffer.remaining() / Double.BYTES);
+            buffer.asDoubleBuffer().put(values, i, k);
+            buffer.position(buffer.position() + k * Double.BYTES);
+            i += k;
+        }
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) flush();
+    }
+
+    public void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) channel.write(buffer);
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+    }
+}
+
+// ========== SNAPSHOT CATALOG ==========
+// The books of a mapped snapshot, read in place. find() probes the on-disk hash table and decodes
+// only titles whose stored hash matches; get() builds a record's Book the first time anyone asks
+// and hands every later caller that same instance.
+class SnapshotCatalog {
+    private final ByteBuffer records;
+    private final ByteBuffer offsets;
+    private final ByteBuffer table;
+    private final int count;
+    private final int mask;
+    private final AtomicReferenceArray<Book> materialized;
+    private final AtomicInteger materializedCount = new AtomicInteger();
+
+    SnapshotCatalog(ByteBuffer records, ByteBuffer offsets, ByteBuffer table, int count, int slots) {
+        this.records = records;
+        this.offsets = offsets;
+        this.table = table;
+        this.count = count;
+        this.mask = slots - 1;
+        this.materialized = new AtomicReferenceArray<>(count);
+    }
+
+    public int size() {
+        return count;
+    }
+
+    // Records no one has asked for yet.
+    public int remaining() {
+        return count - materializedCount.get();
+    }
+
+    // Index of the record with this title (any case), or -1.
+    public int find(String title) {
+        String key = CatalogIndex.key(title);
+        int hash = StoreSnapshot.titleHash(key);
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int entry = table.getInt(slot * 8 + 4);
+            if (entry == 0) return -1;
+            if (table.getInt(slot * 8) == hash && CatalogIndex.key(titleAt(entry - 1)).equals(key)) return entry - 1;
+        }
+    }
+
+    // onFirst runs once per record, in the thread that built its Book.
+    public Book get(int index, Consumer<Book> onFirst) {
+        Book book = materialized.get(index);
+        if (book != null) return book;
+        Book fresh = decode(index);
+        if (materialized.compareAndSet(index, null, fresh)) {
+            materializedCount.incrementAndGet();
+            onFirst.accept(fresh);
+            return fresh;
+        }
+        return materialized.get(index);
+    }
+
+    public boolean isMaterialized(int index) {
+        return materialized.get(index) != null;
+    }
+
+    // Visits records in storage order, reading title and author in place without building Books,
+    // until the visitor returns false.
+    public void forEachRecord(RecordVisitor visitor) {
+        ByteBuffer in = records.duplicate();
+        for (int i = 0; i < count; i++) {
+            in.position(offsets.getInt(i * 4) + 2 + Double.BYTES + Integer.BYTES);
+            String title = StoreSnapshot.getString(in);
+            if (!visitor.visit(i, title, StoreSnapshot.getString(in))) return;
+        }
+    }
+
+    @FunctionalInterface
+    interface RecordVisitor {
+        boolean visit(int index, String title, String author);
+    }
+
+    // A fresh Book for the record, not kept here; for copying the catalog elsewhere.
+    public Book read(int index) {
+        return decode(index);
+    }
+
+    // Record: format byte, genre byte, price, quantity, title, author.
+    private Book decode(int index) {
+        ByteBuffer in = records.duplicate().position(offsets.getInt(index * 4));
+        BookFormat format = BookFormat.values()[in.get()];
+        BookGenre genre = BookGenre.values()[in.get()];
+        double price = in.getDouble();
+        int quantity = in.getInt();
+        String title = StoreSnapshot.getString(in);
+        String author = StoreSnapshot.getString(in);
+        Book book = format.factory().createBook(genre, title, author, price);
+        book.setQuantity(quantity);
+        return book;
+    }
+
+    private String titleAt(int index) {
+        ByteBuffer in = records.duplicate().position(offsets.getInt(index * 4) + 2 + Double.BYTES + Integer.BYTES);
+        return StoreSnapshot.getString(in);
+    }
+}
+
+// ========== STORE SNAPSHOT ==========
+// Whole-store image next to the journal: books, accounts, orders and open carts, plus the journal
+// position it covers. Startup maps the file, restores accounts, orders (a bulk copy per column)
+// and carts, and replays only the journal written after the snapshot. Books stay in the mapped
+// file: lookups read them in place and a background thread materializes the rest into the
+// catalog indexes, so the store serves title lookups, carts and payments before the catalog is
+// warm, and search, suggestions and author lookups by scanning the records. Paged and genre
+// listings wait for the warmup.
+//
+// Layout: header, sections, then a footer of section offsets whose own offset is the last 8 bytes.
+//   header  magic, version, journal segment, journal offset
+//   books   records, then an int offset per record, then a hash table of (title hash, index + 1)
+//   accounts, orders (OrderStore columns), carts
+class StoreSnapshot {
+    static final String FILE_NAME = "store.snapshot";
+
+    private static final long MAGIC = 0x464F4C494F534E50L; // "FOLIOSNP"
+    private static final int VERSION = 2;
+
+    private StoreSnapshot() {}
+
+    // ---------- write ----------
+
+    // Writes to a temporary file and renames it over the old snapshot, so a crash mid-write
+    // leaves the previous snapshot in place.
+    public static void write(Path file, BookStoreManager manager, PaymentCartNotificationManager pcm,
+                             JournalPosition position) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                 StandardOpenOption.TRUNCATE_EXISTING);
+             SnapshotWriter out = new SnapshotWriter(channel)) {
+            out.putLong(MAGIC);
+            out.putInt(VERSION);
+            out.putInt(position.segment());
+            out.putInt(position.offset());
+
+            // Streams the catalog rather than copying it, which would pull every off-heap book onto the heap.
+            Collection<Book> catalog = manager.catalogBooks();
+            long recordsAt = out.position();
+            int[] offsets = new int[Math.max(16, catalog.size())];
+            int[] hashes = new int[offsets.length];
+            int bookCount = 0;
+            for (Book book : catalog) {
+                if (bookCount == offsets.length) {
+                    offsets = Arrays.copyOf(offsets, bookCount * 2);
+                    hashes = Arrays.copyOf(hashes, bookCount * 2);
+                }
+                offsets[bookCount] = (int) (out.position() - recordsAt);
+                hashes[bookCount++] = titleHash(CatalogIndex.key(book.getTitle()));
+                out.putByte(book.getFormat().ordinal());
+                out.putByte(book.getMetadata().genre().ordinal());
+                out.putDouble(book.getPrice());
+                out.putInt(book.getQuantity());
+                out.putString(book.getTitle());
+                out.putString(book.getAuthor());
+            }
+            long offsetsAt = out.position();
+            out.putInts(offsets, bookCount);
+            long tableAt = out.position();
+            int slots = Integer.highestOneBit(Math.max(2, bookCount * 2 - 1)) << 1;
+            int[] table = new int[slots * 2];
+            for (int i = 0; i < bookCount; i++) {
+                int hash = hashes[i];
+                int slot = hash & (slots - 1);
+                while (table[slot * 2 + 1] != 0) slot = (slot + 1) & (slots - 1);
+                table[slot * 2] = hash;
+                table[slot * 2 + 1] = i + 1;
+            }
+            out.putInts(table, table.length);
+
+            long accountsAt = out.position();
+            Collection<Account> accounts = List.copyOf(manager.getUserDirectory().accounts());
+            out.putInt(accounts.size());
+            for (Account account : accounts) {
+                out.putString(account.user().getUsername());
+                out.putByte(account.role().ordinal());
+                out.putInt(account.salt().length);
+                out.putBytes(account.salt(), account.salt().length);
+                out.putInt(account.hash().length);
+                out.putBytes(account.hash(), account.hash().length);
+            }
+
+            long ordersAt = out.position();
+            manager.orderStore().writeTo(out);
+
+            long cartsAt = out.position();
+            List<CartSession> carts = pcm.getSessions().liveSessions().stream().filter(s -> !s.isEmpty()).toList();
+            out.putInt(carts.size());
+            for (CartSession cart : carts) {
+                List<CartLine> lines = cart.getLines();
+                out.putString(cart.getUsername());
+                out.putInt(lines.size());
+                for (CartLine line : lines) {
+                    out.putString(line.book().getTitle());
+                    out.putInt(line.quantity());
+                    out.putLong(line.unitCents());
+                }
+            }
+
+            long footerAt = out.position();
+            out.putInt(bookCount);
+            out.putInt(slots);
+            for (long at : new long[] {recordsAt, offsetsAt, tableAt, accountsAt, ordersAt, cartsAt}) out.putLong(at);
+            out.putLong(footerAt);
+            if (out.position() > Integer.MAX_VALUE) throw new IOException("Snapshot larger than 2 GB");
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // ---------- load ----------
+
+    // Restores into an empty store and returns the journal position the snapshot covers.
+    public static JournalPosition load(Path file, BookStoreManager manager, PaymentCartNotificationManager pcm)
+            throws IOException {
+        MappedByteBuffer map;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) throw new IOException("Snapshot larger than 2 GB");
+            map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (map.getLong(0) != MAGIC || map.getInt(8) != VERSION) throw new IOException("Not a store snapshot: " + file);
+        JournalPosition position = new JournalPosition(map.getInt(12), map.getInt(16));
+
+        int footer = (int) map.getLong(map.limit() - Long.BYTES);
+        int bookCount = map.getInt(footer);
+        int slots = map.getInt(footer + 4);
+        int[] at = new int[6];
+        for (int i = 0; i < at.length; i++) at[i] = (int) map.getLong(footer + 8 + i * Long.BYTES);
+
+        ByteBuffer accounts = map.slice(at[3], at[4] - at[3]);
+        for (int n = accounts.getInt(); n > 0; n--) {
+            User user = new User(getString(accounts));
+            Role role = Role.values()[accounts.get()];
+            byte[] salt = new byte[accounts.getInt()];
+            accounts.get(salt);
+            byte[] hash = new byte[accounts.getInt()];
+            accounts.get(hash);
+            manager.restoreAccount(new Account(user, role, salt, hash));
+        }
+
+        manager.orderStore().readFrom(map.slice(at[4], at[5] - at[4]));
+
+        manager.attachCatalog(new SnapshotCatalog(map.slice(at[0], at[1] - at[0]), map.slice(at[1], at[2] - at[1]),
+            map.slice(at[2], at[3] - at[2]), bookCount, slots));
+
+        // Cart lines hold books, so carts come back after the catalog is attached.
+        ByteBuffer carts = map.slice(at[5], footer - at[5]);
+        for (int n = carts.getInt(); n > 0; n--) {
+            String username = getString(carts);
+            List<CartLine> restored = new ArrayList<>();
+            for (int lines = carts.getInt(); lines > 0; lines--) {
+                Book book = manager.getBookByTitle(getString(carts));
+                int quantity = carts.getInt();
+                long unitCents = carts.getLong();
+                if (book != null) restored.add(new CartLine(book, quantity, unitCents));
+            }
+            pcm.getSessions().update(username, session -> restored.forEach(session::restore));
+        }
+        return position;
+    }
+
+    // ---------- encoding ----------
+
+    static int titleHash(String key) {
+        int h = key.hashCode() * 0x9E3779B9;
+        return h ^ h >>> 16;
+    }
+
+    static String getString(ByteBuffer in) {
+        int length = in.getInt();
+        String value;
+        if (in.hasArray()) {
+            value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        } else {
+            byte[] bytes = new byte[length];
+            in.get(in.position(), bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+        }
+        in.position(in.position() + length);
+        return value;
+    }
+
+    static void getInts(ByteBuffer in, int[] into, int n) {
+        in.asIntBuffer().get(into, 0, n);
+        in.position(in.position() + n * Integer.BYTES);
+    }
+
+    static void getLongs(ByteBuffer in, long[] into, int n) {
+        in.asLongBuffer().get(into, 0, n);
+        in.position(in.position() + n * Long.BYTES);
+    }
+
+    static void getDoubles(ByteBuffer in, double[] into, int n) {
+        in.asDoubleBuffer().get(into, 0, n);
+        in.position(in.position() + n * Double.BYTES);
+    }
+}
@@ -0,0 +1,139 @@
+package com.mycompany.sdadesign;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.security.spec.InvalidKeySpecException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+// ========== ROLES / ACCOUNTS ==========
+enum Role { USER, ADMIN }
+
+record Account(User user, Role role, byte[] salt, byte[] hash) {}
+
+record Session(String token, User user, Role role, long expiresAtMillis) {
+    boolean isExpired() {
+        return System.currentTimeMillis() > expiresAtMillis;
+    }
+}
+
+// ========== USER DIRECTORY ==========
+// Accounts keyed by username with salted PBKDF2 password hashes; plaintext passwords are never
+// kept. Successful logins get a random session token so later requests skip the hash entirely.
+class UserDirectory {
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int ITERATIONS = 100_000;
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+    private static final long SWEEP_INTERVAL_MILLIS = 60_000;
+
+    private final Map<String, Account> accounts = new ConcurrentHashMap<>();
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final SecureRandom random = new SecureRandom();
+    private final Duration sessionTtl;
+    private final AtomicLong lastSweepMillis = new AtomicLong(System.currentTimeMillis());
+    // Hashed against for unknown usernames so a miss costs the same as a wrong password.
+    private final byte[] dummySalt = new byte[SALT_BYTES];
+
+    public UserDirectory(Duration sessionTtl) {
+        this.sessionTtl = sessionTtl;
+    }
+
+    // Returns null if the username is already taken.
+    public Account register(String username, String password, Role role) {
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        Account account = new Account(new User(username), role, salt, hash(password, salt));
+        return accounts.putIfAbsent(username, account) == null ? account : null;
+    }
+
+    // Puts back an account read from the journal; the hash is taken as is.
+    public void restore(Account account) {
+        accounts.put(account.user().getUsername(), account);
+    }
+
+    public boolean exists(String username) {
+        return accounts.containsKey(username);
+    }
+
+    public Account find(String username) {
+        return accounts.get(username);
+    }
+
+    public boolean verify(String username, String password, Role role) {
+        Account account = accounts.get(username);
+        if (account == null) {
+            hash(password, dummySalt);
+            return false;
+        }
+        boolean matches = MessageDigest.isEqual(account.hash(), hash(password, account.salt()));
+        return matches && account.role() == role;
+    }
+
+    public Session login(String username, String password, Role role) {
+        if (!verify(username, password, role)) return null;
+        byte[] tokenBytes = new byte[32];
+        random.nextBytes(tokenBytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(tokenBytes);
+        long now = System.currentTimeMillis();
+        Session session = new Session(token, accounts.get(username).user(), role, now + sessionTtl.toMillis());
+        sessions.put(token, session);
+        sweepExpiredSessions(now);
+        return session;
+    }
+
+    // Sessions that are never logged out are only found by a sweep. At most one login a minute
+    // pays for it, so the map stays bounded by the logins of one TTL.
+    private void sweepExpiredSessions(long now) {
+        long last = lastSweepMillis.get();
+        if (now - last < SWEEP_INTERVAL_MILLIS || !lastSweepMillis.compareAndSet(last, now)) return;
+        sessions.values().removeIf(Session::isExpired);
+    }
+
+    public int sessionCount() {
+        return sessions.size();
+    }
+
+    public Session session(String token) {
+        if (token == null) return null;
+        Session session = sessions.get(token);
+        if (session != null && session.isExpired()) {
+            sessions.remove(token, session);
+            return null;
+        }
+        return session;
+    }
+
+    public void logout(String token) {
+        if (token != null) sessions.remove(token);
+    }
+
+    public int size() {
+        return accounts.size();
+    }
+
+    public Collection<Account> accounts() {
+        return Collections.unmodifiableCollection(accounts.values());
+    }
+
+    public void clear() {
+        accounts.clear();
+        sessions.clear();
+    }
+
+    static byte[] hash(String password, byte[] salt) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, ITERATIONS, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (NoSuchAlgorithmException | InvalidKeySpecException e) {
+            throw new IllegalStateException("Password hashing unavailable", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}